@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.benchmarks;
+
+import fathom.rest.Context;
+import fathom.rest.controller.extractors.BeanExtractor;
+import fathom.rest.controller.extractors.BodyExtractor;
+import fathom.rest.controller.extractors.ParamExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the argument extractors against a prepared request context.
+ *
+ * @author James Moger
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArgumentExtractorBenchmark {
+
+    private RestEnvironment environment;
+
+    private ParamExtractor intParamExtractor;
+
+    private ParamExtractor stringParamExtractor;
+
+    private BeanExtractor beanExtractor;
+
+    private BodyExtractor bodyExtractor;
+
+    private BenchmarkRequest paramRequest;
+
+    private BenchmarkRequest bodyRequest;
+
+    @Setup
+    public void setup() {
+        environment = new RestEnvironment();
+
+        intParamExtractor = new ParamExtractor();
+        intParamExtractor.setName("id");
+        intParamExtractor.setObjectType(int.class);
+
+        stringParamExtractor = new ParamExtractor();
+        stringParamExtractor.setName("name");
+        stringParamExtractor.setObjectType(String.class);
+
+        beanExtractor = new BeanExtractor();
+        beanExtractor.setObjectType(Item.class);
+
+        bodyExtractor = new BodyExtractor();
+        bodyExtractor.setObjectType(String.class);
+
+        paramRequest = new BenchmarkRequest("GET", "/bench/items")
+                .parameter("id", "42")
+                .parameter("name", "apples")
+                .parameter("description", "a bushel of apples");
+
+        bodyRequest = new BenchmarkRequest("POST", "/bench/items")
+                .body("text/plain; charset=UTF-8", "a bushel of apples");
+    }
+
+    private Context newContext(BenchmarkRequest request) {
+        return environment.newContext(request, new BenchmarkResponse(), null);
+    }
+
+    @Benchmark
+    public Object paramInt() {
+        return intParamExtractor.extract(newContext(paramRequest));
+    }
+
+    @Benchmark
+    public Object paramString() {
+        return stringParamExtractor.extract(newContext(paramRequest));
+    }
+
+    @Benchmark
+    public Object bean() {
+        return beanExtractor.extract(newContext(paramRequest));
+    }
+
+    @Benchmark
+    public Object body() {
+        return bodyExtractor.extract(newContext(bodyRequest));
+    }
+
+    @Benchmark
+    public Object contextOnly() {
+        // baseline for the cost of creating the request context
+        return newContext(paramRequest);
+    }
+
+}
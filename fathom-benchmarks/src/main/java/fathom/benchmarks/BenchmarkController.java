@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.benchmarks;
+
+import fathom.rest.controller.Body;
+import fathom.rest.controller.Consumes;
+import fathom.rest.controller.Controller;
+import fathom.rest.controller.GET;
+import fathom.rest.controller.POST;
+import fathom.rest.controller.Param;
+import fathom.rest.controller.Path;
+import fathom.rest.controller.Produces;
+import fathom.rest.controller.Return;
+
+/**
+ * Controller dispatched by the {@link ControllerDispatchBenchmark}.
+ *
+ * @author James Moger
+ */
+@Path("/bench")
+@Produces(Produces.TEXT)
+public class BenchmarkController extends Controller {
+
+    @GET("/items/{id: [0-9]+}")
+    @Return(code = 200, onResult = String.class)
+    public String getItem(int id, @Param String name) {
+        return name + " #" + id;
+    }
+
+    @POST("/items")
+    @Consumes(Consumes.TEXT)
+    @Return(code = 200, onResult = String.class)
+    public String postItem(@Body String content) {
+        return "received " + content.length();
+    }
+
+}
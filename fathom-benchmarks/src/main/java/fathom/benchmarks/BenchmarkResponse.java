@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.benchmarks;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A lightweight, in-memory HttpServletResponse.
+ *
+ * @author James Moger
+ * @see BenchmarkRequest
+ */
+public class BenchmarkResponse extends HttpServletResponseWrapper {
+
+    private static final HttpServletResponse UNSUPPORTED = (HttpServletResponse) Proxy.newProxyInstance(
+            BenchmarkResponse.class.getClassLoader(), new Class<?>[]{HttpServletResponse.class},
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException("HttpServletResponse." + method.getName());
+            });
+
+    private final Map<String, List<String>> headers;
+
+    private final ByteArrayOutputStream content;
+
+    private int status;
+
+    private String contentType;
+
+    private String characterEncoding;
+
+    private Locale locale;
+
+    private boolean committed;
+
+    public BenchmarkResponse() {
+        super(UNSUPPORTED);
+        this.headers = new LinkedHashMap<>();
+        this.content = new ByteArrayOutputStream(256);
+        this.status = SC_OK;
+        this.characterEncoding = StandardCharsets.UTF_8.name();
+        this.locale = Locale.ENGLISH;
+    }
+
+    public byte[] getContent() {
+        return content.toByteArray();
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    @Override
+    public void sendError(int status) {
+        sendError(status, null);
+    }
+
+    @Override
+    public void sendError(int status, String message) {
+        this.status = status;
+        this.committed = true;
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        setHeader("Location", location);
+        sendError(SC_FOUND);
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return headers.containsKey(name.toLowerCase());
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = headers.get(name.toLowerCase());
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        List<String> values = headers.get(name.toLowerCase());
+        return values == null ? Collections.emptyList() : values;
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return headers.keySet();
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        List<String> values = new ArrayList<>(1);
+        values.add(value);
+        headers.put(name.toLowerCase(), values);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        List<String> values = headers.get(name.toLowerCase());
+        if (values == null) {
+            setHeader(name, value);
+        } else {
+            values.add(value);
+        }
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, String.valueOf(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, String.valueOf(date));
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        addHeader("Set-Cookie", cookie.getName() + "=" + cookie.getValue());
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String characterEncoding) {
+        this.characterEncoding = characterEncoding;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setIntHeader("Content-Length", length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        setHeader("Content-Length", String.valueOf(length));
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(int b) {
+                committed = true;
+                content.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                committed = true;
+                content.write(b, off, len);
+            }
+        };
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        return new PrintWriter(new OutputStreamWriter(getOutputStream(), StandardCharsets.UTF_8), true);
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void flushBuffer() {
+        committed = true;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return content.size();
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        headers.clear();
+        status = SC_OK;
+    }
+
+    @Override
+    public void resetBuffer() {
+        content.reset();
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a complete request dispatch through the RestServlet, the pippo
+ * RouteDispatcher, and the ControllerHandler.
+ *
+ * @author James Moger
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerDispatchBenchmark {
+
+    private RestEnvironment environment;
+
+    @Setup
+    public void setup() {
+        environment = new RestEnvironment();
+    }
+
+    @Benchmark
+    public BenchmarkResponse getWithParameters() throws Exception {
+        BenchmarkRequest request = new BenchmarkRequest("GET", "/bench/items/42")
+                .header("Accept", "text/plain")
+                .parameter("name", "apples");
+        BenchmarkResponse response = new BenchmarkResponse();
+        environment.getServlet().service(request, response);
+        return response;
+    }
+
+    @Benchmark
+    public BenchmarkResponse postWithBody() throws Exception {
+        BenchmarkRequest request = new BenchmarkRequest("POST", "/bench/items")
+                .header("Accept", "text/plain")
+                .body("text/plain; charset=UTF-8", "a bushel of apples");
+        BenchmarkResponse response = new BenchmarkResponse();
+        environment.getServlet().service(request, response);
+        return response;
+    }
+
+    @Benchmark
+    public BenchmarkResponse notFound() throws Exception {
+        BenchmarkRequest request = new BenchmarkRequest("GET", "/bench/missing")
+                .header("Accept", "text/plain");
+        BenchmarkResponse response = new BenchmarkResponse();
+        environment.getServlet().service(request, response);
+        return response;
+    }
+
+}
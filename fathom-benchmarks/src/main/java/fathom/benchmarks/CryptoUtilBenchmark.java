@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.benchmarks;
+
+import fathom.utils.CryptoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CryptoUtil hashes and HMACs.
+ *
+ * @author James Moger
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoUtilBenchmark {
+
+    private final String message = "GET /api/v1/items/42?name=apples HTTP/1.1";
+
+    private final String secretKey = "f5b0a1c0e2d94b6b8d1c3e5f7a9b2c4d";
+
+    @Benchmark
+    public String sha256() {
+        return CryptoUtil.getHashSHA256(message);
+    }
+
+    @Benchmark
+    public String sha1() {
+        return CryptoUtil.getHashSHA1(message);
+    }
+
+    @Benchmark
+    public String md5() {
+        return CryptoUtil.getHashMD5(message);
+    }
+
+    @Benchmark
+    public String hmacSHA256() {
+        return CryptoUtil.getHmacSHA256(message, secretKey);
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import fathom.conf.Settings;
+import fathom.metrics.Counted;
+import fathom.metrics.CountedInterceptor;
+import fathom.metrics.Metered;
+import fathom.metrics.MeteredInterceptor;
+import fathom.metrics.Metrics;
+import fathom.metrics.Timed;
+import fathom.metrics.TimedInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.inject.matcher.Matchers.annotatedWith;
+import static com.google.inject.matcher.Matchers.any;
+
+/**
+ * Measures the overhead of the Timed, Metered, and Counted interceptors per call.
+ * <p>
+ * The lookup benchmark repeats the annotation, name, and registry resolution which
+ * the interceptors used to perform on every call.
+ *
+ * @author James Moger
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsInterceptorBenchmark {
+
+    private MeasuredService service;
+
+    private MetricRegistry metricRegistry;
+
+    @Setup
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        service = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Settings.class).toInstance(new Settings());
+                bind(MetricRegistry.class).toInstance(metricRegistry);
+                bindInterceptor(any(), annotatedWith(Timed.class), new TimedInterceptor(getProvider(Metrics.class)));
+                bindInterceptor(any(), annotatedWith(Metered.class), new MeteredInterceptor(getProvider(Metrics.class)));
+                bindInterceptor(any(), annotatedWith(Counted.class), new CountedInterceptor(getProvider(Metrics.class)));
+            }
+        }).getInstance(MeasuredService.class);
+    }
+
+    @Benchmark
+    public int plain() {
+        return service.plain();
+    }
+
+    @Benchmark
+    public int timed() {
+        return service.timed();
+    }
+
+    @Benchmark
+    public int metered() {
+        return service.metered();
+    }
+
+    @Benchmark
+    public int counted() {
+        return service.counted();
+    }
+
+    @Benchmark
+    public int activeCounted() {
+        return service.activeCounted();
+    }
+
+    @Benchmark
+    public Timer lookup() throws NoSuchMethodException {
+        String name = MeasuredService.class.getMethod("timed").getAnnotation(Timed.class).value();
+        if (name.isEmpty()) {
+            name = MetricRegistry.name(MeasuredService.class, "timed");
+        }
+        return metricRegistry.timer(name);
+    }
+
+    public static class MeasuredService {
+
+        private int value;
+
+        public int plain() {
+            return value++;
+        }
+
+        @Timed
+        public int timed() {
+            return value++;
+        }
+
+        @Metered
+        public int metered() {
+            return value++;
+        }
+
+        @Counted
+        public int counted() {
+            return value++;
+        }
+
+        @Counted(active = true)
+        public int activeCounted() {
+            return value++;
+        }
+    }
+
+}
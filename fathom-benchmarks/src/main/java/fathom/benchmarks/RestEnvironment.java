@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Stage;
+import fathom.conf.Settings;
+import fathom.rest.Context;
+import fathom.rest.RestModule;
+import fathom.rest.RestServlet;
+import fathom.rest.RoutesModule;
+import ro.pippo.core.Application;
+import ro.pippo.core.ContentTypeEngines;
+import ro.pippo.core.Languages;
+import ro.pippo.core.Messages;
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+import ro.pippo.core.route.RouteMatch;
+import ro.pippo.core.route.Router;
+import ro.pippo.core.util.HttpCacheToolkit;
+import ro.pippo.core.util.MimeTypes;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A minimal, offline fathom-rest runtime: a pippo Application, a Guice injector with the
+ * same bindings as the RestModule, the {@link BenchmarkController} routes, and a RestServlet.
+ *
+ * @author James Moger
+ */
+public class RestEnvironment {
+
+    private final Settings settings;
+
+    private final Application application;
+
+    private final Injector injector;
+
+    private final RestServlet servlet;
+
+    public RestEnvironment() {
+        this.settings = new Settings();
+        this.application = new Application(RestModule.getPippoSettings(settings));
+        application.init();
+
+        this.injector = Guice.createInjector(Stage.PRODUCTION, new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Settings.class).toInstance(settings);
+                bind(Application.class).toInstance(application);
+                bind(Router.class).toInstance(application.getRouter());
+                bind(Messages.class).toInstance(application.getMessages());
+                bind(Languages.class).toInstance(application.getLanguages());
+                bind(MimeTypes.class).toInstance(application.getMimeTypes());
+                bind(HttpCacheToolkit.class).toInstance(application.getHttpCacheToolkit());
+                bind(ContentTypeEngines.class).toInstance(application.getContentTypeEngines());
+                bind(MetricRegistry.class).toInstance(new MetricRegistry());
+            }
+        });
+
+        injector.getInstance(Routes.class).init();
+
+        this.servlet = new RestServlet(application);
+        servlet.init();
+    }
+
+    public Application getApplication() {
+        return application;
+    }
+
+    public Injector getInjector() {
+        return injector;
+    }
+
+    public RestServlet getServlet() {
+        return servlet;
+    }
+
+    /**
+     * Creates a route context for the request without dispatching it.
+     *
+     * @param request
+     * @param response
+     * @param routeMatches
+     * @return a route context
+     */
+    public Context newContext(BenchmarkRequest request, BenchmarkResponse response, List<RouteMatch> routeMatches) {
+        return new Context(application, new Request(request, application), new Response(response, application),
+                routeMatches == null ? Collections.emptyList() : routeMatches);
+    }
+
+    static class Routes extends RoutesModule {
+
+        @Override
+        protected void setup() {
+            addControllers(BenchmarkController.class);
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.benchmarks;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import fathom.authc.StandardCredentials;
+import fathom.authz.Authorizations;
+import fathom.conf.Settings;
+import fathom.realm.Account;
+import fathom.security.SecurityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures permission checks and authentication against a MemoryRealm.
+ *
+ * @author James Moger
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityBenchmark {
+
+    private Authorizations authorizations;
+
+    private SecurityManager securityManager;
+
+    private StandardCredentials clearCredentials;
+
+    private StandardCredentials hashedCredentials;
+
+    private StandardCredentials invalidCredentials;
+
+    @Setup
+    public void setup() {
+        authorizations = new Authorizations()
+                .addRoles("normal", "reviewer")
+                .addPermissions("secure:view", "items:read,write:42", "orders:*", "reports:view:2015,2016");
+
+        Settings settings = new Settings();
+        settings.overrideSetting("security.configurationFile", "classpath:conf/realms.conf");
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Settings.class).toInstance(settings);
+            }
+        });
+
+        securityManager = injector.getInstance(SecurityManager.class);
+        securityManager.start();
+
+        clearCredentials = new StandardCredentials("admin", "admin");
+        hashedCredentials = new StandardCredentials("user", "secret");
+        invalidCredentials = new StandardCredentials("user", "wrong");
+    }
+
+    @TearDown
+    public void tearDown() {
+        securityManager.stop();
+    }
+
+    @Benchmark
+    public boolean isPermittedExact() {
+        return authorizations.isPermitted("secure:view");
+    }
+
+    @Benchmark
+    public boolean isPermittedWildcard() {
+        return authorizations.isPermitted("orders:delete:7");
+    }
+
+    @Benchmark
+    public boolean isPermittedDenied() {
+        return authorizations.isPermitted("items:delete:42");
+    }
+
+    @Benchmark
+    public boolean hasRole() {
+        return authorizations.hasRole("reviewer");
+    }
+
+    @Benchmark
+    public Account authenticateClear() {
+        return securityManager.authenticate(clearCredentials);
+    }
+
+    @Benchmark
+    public Account authenticateHashed() {
+        return securityManager.authenticate(hashedCredentials);
+    }
+
+    @Benchmark
+    public Account authenticateInvalid() {
+        return securityManager.authenticate(invalidCredentials);
+    }
+
+}
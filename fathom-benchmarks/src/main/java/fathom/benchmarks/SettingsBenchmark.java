@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.benchmarks;
+
+import fathom.conf.Settings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the typed Settings getters.
+ *
+ * @author James Moger
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettingsBenchmark {
+
+    private Settings settings;
+
+    @Setup
+    public void setup() {
+        settings = new Settings();
+        settings.overrideSetting("bench.string", "apples");
+        settings.overrideSetting("bench.int", 42);
+        settings.overrideSetting("bench.boolean", true);
+        settings.overrideSetting("bench.bytes", "50 MB");
+    }
+
+    @Benchmark
+    public String getString() {
+        return settings.getString("bench.string", null);
+    }
+
+    @Benchmark
+    public int getInteger() {
+        return settings.getInteger("bench.int", 0);
+    }
+
+    @Benchmark
+    public boolean getBoolean() {
+        return settings.getBoolean("bench.boolean", false);
+    }
+
+    @Benchmark
+    public long getBytes() {
+        return settings.getBytes("bench.bytes", "1 MB");
+    }
+
+    @Benchmark
+    public int getMissingInteger() {
+        return settings.getInteger("bench.missing", 7);
+    }
+
+}
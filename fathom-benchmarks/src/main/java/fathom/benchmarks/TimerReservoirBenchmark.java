@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import fathom.conf.Settings;
+import fathom.metrics.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures concurrent Timer updates with the configurable reservoirs while a
+ * reporter thread takes snapshots.
+ * <p>
+ * Run with more threads than cores (e.g. -tg 15,1) to observe the contention of the
+ * sampling reservoirs.
+ *
+ * @author James Moger
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerReservoirBenchmark {
+
+    @Param({"exponentiallyDecaying", "slidingTimeWindow", "hdrHistogram"})
+    public String reservoir;
+
+    private Timer timer;
+
+    @Setup
+    public void setup() {
+        Settings settings = new Settings();
+        settings.overrideSetting("metrics.timers.reservoir", reservoir);
+        settings.overrideSetting("metrics.timers.window", "10 seconds");
+        timer = new Metrics(new MetricRegistry(), settings).timer("benchmark");
+    }
+
+    @Benchmark
+    @Group("timer")
+    @GroupThreads(7)
+    public void update() {
+        timer.update(ThreadLocalRandom.current().nextLong(1000, 5_000_000), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Group("timer")
+    @GroupThreads(1)
+    public double snapshot() {
+        Snapshot snapshot = timer.getSnapshot();
+        return snapshot.get99thPercentile();
+    }
+
+}
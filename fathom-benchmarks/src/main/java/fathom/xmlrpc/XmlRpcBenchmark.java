@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.xmlrpc;
+
+import com.google.inject.Guice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures XML-RPC request parsing, response encoding, and the complete
+ * parse, invoke, and encode cycle.
+ * <p>
+ * This benchmark lives in the fathom.xmlrpc package because the request
+ * and response codecs are package-private.
+ *
+ * @author James Moger
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlRpcBenchmark {
+
+    private static final String REQUEST = "<?xml version=\"1.0\"?>"
+            + "<methodCall><methodName>bench.describe</methodName><params>"
+            + "<param><value><int>42</int></value></param>"
+            + "<param><value><string>apples</string></value></param>"
+            + "<param><value><array><data>"
+            + "<value><double>1.5</double></value>"
+            + "<value><boolean>1</boolean></value>"
+            + "<value><dateTime.iso8601>20150101T12:00:00</dateTime.iso8601></value>"
+            + "</data></array></value></param>"
+            + "</params></methodCall>";
+
+    private byte[] requestBytes;
+
+    private XmlRpcMethodRegistrar registrar;
+
+    private XmlRpcResponse response;
+
+    private Map<String, Object> result;
+
+    @Setup
+    public void setup() {
+        requestBytes = REQUEST.getBytes(StandardCharsets.UTF_8);
+
+        registrar = new XmlRpcMethodRegistrar(Guice.createInjector());
+        registrar.addMethodGroup("bench", BenchmarkMethods.class);
+        response = new XmlRpcResponse(registrar);
+
+        result = new BenchmarkMethods().describe(42, "apples", new ArrayList<>(Arrays.asList(1.5d, true, new Date())));
+    }
+
+    @Benchmark
+    public XmlRpcRequest parseRequest() {
+        XmlRpcRequest request = new XmlRpcRequest();
+        request.parse(new ByteArrayInputStream(requestBytes));
+        return request;
+    }
+
+    @Benchmark
+    public byte[] encodeResponse() {
+        XmlRpcResponse.XmlWriter writer = new XmlRpcResponse.XmlWriter();
+        response.writeResponse(result, writer);
+        return writer.getBytes();
+    }
+
+    @Benchmark
+    public byte[] process() {
+        XmlRpcRequest request = new XmlRpcRequest();
+        request.parse(new ByteArrayInputStream(requestBytes));
+        return response.process(request);
+    }
+
+    public static class BenchmarkMethods {
+
+        // XML-RPC arrays are matched as ArrayList parameters
+        @XmlRpc
+        public Map<String, Object> describe(int id, String name, ArrayList<Object> values) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", id);
+            map.put("name", name);
+            map.put("values", values);
+            map.put("count", values.size());
+            return map;
+        }
+    }
+
+}
@@ -17,9 +17,12 @@ package fathom;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Injector;
 import fathom.conf.Settings;
 import fathom.exception.FatalException;
+import fathom.utils.ClassUtil;
 import fathom.utils.RequireUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,10 +30,26 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Listens for Service registrations from fathom.Module & manages the service lifecycle.
+ * <p>
+ * Services are started in their preferred start order.  Services which share a start
+ * order are started concurrently on a bounded executor, respecting the dependencies
+ * declared with {@link DependsOn}.  Services are stopped in the reverse order in which
+ * they were started.
  *
  * @author James Moger
  */
@@ -38,15 +57,21 @@ public final class Services {
 
     private static final Logger log = LoggerFactory.getLogger(Services.class);
 
+    private static final int UNORDERED = Integer.MAX_VALUE;
+
     private final Settings settings;
     private final List<Class<? extends Service>> classes;
     private final List<Service> instances;
+    private final List<Service> startedOrder;
+    private final Map<Service, Long> startupTimes;
     private boolean started;
 
     public Services(Settings settings) {
         this.settings = settings;
         this.classes = new ArrayList<>();
         this.instances = new ArrayList<>();
+        this.startedOrder = new ArrayList<>();
+        this.startupTimes = Collections.synchronizedMap(new LinkedHashMap<>());
     }
 
     public void register(Class<? extends Service> serviceClass) {
@@ -67,6 +92,17 @@ public final class Services {
         return Collections.unmodifiableList(instances);
     }
 
+    /**
+     * Returns the startup time, in milliseconds, of each started service.
+     *
+     * @return the service startup times
+     */
+    public Map<Service, Long> getStartupTimes() {
+        synchronized (startupTimes) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(startupTimes));
+        }
+    }
+
     public synchronized void start(Injector injector) {
         started = true;
 
@@ -101,25 +137,54 @@ public final class Services {
                     service.getClass().getName());
         }
 
-        for (Service service : instances) {
-            log.info("Starting service '{}'", service.getClass().getName());
-            try {
-                service.start();
-            } catch (Exception e) {
-                log.error("Failed to start '{}'", service.getClass().getName(), e);
+        Map<Integer, List<Service>> groups = groupByStartOrder(instances);
+        Map<Service, List<Service>> dependencies = resolveDependencies(groups);
+
+        int maxThreads = settings.getInteger(Settings.Setting.services_startThreads,
+                Math.max(2, Runtime.getRuntime().availableProcessors()));
+        int largestGroup = groups.entrySet().stream().filter(group -> group.getKey() != UNORDERED)
+                .mapToInt(group -> group.getValue().size()).max().orElse(0);
+        int threads = Math.min(maxThreads, largestGroup);
+
+        long startTime = System.nanoTime();
+        ExecutorService executor = null;
+        if (threads > 1) {
+            executor = Executors.newFixedThreadPool(threads,
+                    new ThreadFactoryBuilder().setNameFormat("fathom-service-start-%d").setDaemon(true).build());
+        }
 
-                if (e instanceof FatalException) {
+        try {
+            for (Map.Entry<Integer, List<Service>> group : groups.entrySet()) {
+                // services without a preferred start order are started sequentially
+                ExecutorService groupExecutor = group.getKey() == UNORDERED ? null : executor;
+                FatalException failure = startGroup(group.getValue(), dependencies, groupExecutor);
+                if (failure != null) {
                     stop();
                     System.exit(1);
                 }
             }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
         }
+
+        log.info("Started {} service(s) in {} ms", startedOrder.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
     }
 
     public synchronized void stop() {
-        // stop the services in the reverse order
-        Collections.reverse(instances);
-        for (Service service : instances) {
+        // stop the services in the reverse order of their start
+        List<Service> stopOrder = new ArrayList<>(startedOrder);
+        Collections.reverse(stopOrder);
+        for (int i = instances.size() - 1; i >= 0; i--) {
+            Service service = instances.get(i);
+            if (!stopOrder.contains(service)) {
+                stopOrder.add(service);
+            }
+        }
+
+        for (Service service : stopOrder) {
             if (service.isRunning()) {
                 log.info("Stopping service '{}'", service.getClass().getName());
                 try {
@@ -130,4 +195,191 @@ public final class Services {
             }
         }
     }
+
+    /**
+     * Groups the sorted services by their preferred start order.  Services with a
+     * negative start order are grouped as unordered and started last.
+     */
+    private Map<Integer, List<Service>> groupByStartOrder(List<Service> services) {
+        Map<Integer, List<Service>> groups = new TreeMap<>();
+        for (Service service : services) {
+            int order = service.getPreferredStartOrder() < 0 ? UNORDERED : service.getPreferredStartOrder();
+            List<Service> group = groups.get(order);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(order, group);
+            }
+            group.add(service);
+        }
+        return groups;
+    }
+
+    /**
+     * Resolves the declared dependencies of each service to the registered services
+     * within the same start order group and validates the dependency graph.
+     */
+    private Map<Service, List<Service>> resolveDependencies(Map<Integer, List<Service>> groups) {
+        Map<Service, Integer> orders = new IdentityHashMap<>();
+        for (Map.Entry<Integer, List<Service>> group : groups.entrySet()) {
+            for (Service service : group.getValue()) {
+                orders.put(service, group.getKey());
+            }
+        }
+
+        Map<Service, List<Service>> dependencies = new IdentityHashMap<>();
+        for (Service service : instances) {
+            List<Service> list = new ArrayList<>();
+            DependsOn dependsOn = ClassUtil.getAnnotation(service.getClass(), DependsOn.class);
+            if (dependsOn != null) {
+                for (Class<? extends Service> dependencyClass : dependsOn.value()) {
+                    boolean found = false;
+                    for (Service dependency : instances) {
+                        if (dependency != service && dependencyClass.isInstance(dependency)) {
+                            found = true;
+                            int order = orders.get(dependency);
+                            if (order > orders.get(service)) {
+                                throw new FatalException("Service '{}' depends on '{}' which has a later start order",
+                                        service.getClass().getName(), dependency.getClass().getName());
+                            } else if (order == orders.get(service)) {
+                                list.add(dependency);
+                            }
+                        }
+                    }
+
+                    if (!found) {
+                        log.warn("Service '{}' depends on '{}' which is not registered",
+                                service.getClass().getName(), dependencyClass.getName());
+                    }
+                }
+            }
+            dependencies.put(service, list);
+        }
+
+        // reject dependency cycles
+        for (Service service : instances) {
+            checkCycle(service, dependencies, new LinkedHashSet<>());
+        }
+
+        return dependencies;
+    }
+
+    private void checkCycle(Service service, Map<Service, List<Service>> dependencies, Set<Service> path) {
+        if (!path.add(service)) {
+            throw new FatalException("Service '{}' has a circular dependency", service.getClass().getName());
+        }
+        for (Service dependency : dependencies.get(service)) {
+            checkCycle(dependency, dependencies, path);
+        }
+        path.remove(service);
+    }
+
+    /**
+     * Starts a group of services which share a start order.  Each service is started once
+     * its dependencies have started.  The group is always allowed to settle so that the
+     * reported failure is the first failed service of the group in start order.
+     *
+     * @return the first fatal failure or null
+     */
+    private FatalException startGroup(List<Service> group, Map<Service, List<Service>> dependencies, ExecutorService executor) {
+        if (executor == null || group.size() == 1) {
+            // start sequentially on the calling thread
+            List<Service> ordered = new ArrayList<>();
+            for (Service service : group) {
+                sortDependencies(service, dependencies, ordered);
+            }
+            for (Service service : ordered) {
+                FatalException failure = startService(service);
+                if (failure != null) {
+                    return failure;
+                }
+            }
+            return null;
+        }
+
+        Map<Service, CompletableFuture<FatalException>> futures = new IdentityHashMap<>();
+        for (Service service : group) {
+            schedule(service, dependencies, executor, futures);
+        }
+
+        FatalException failure = null;
+        for (Service service : group) {
+            FatalException result;
+            try {
+                result = futures.get(service).join();
+            } catch (CompletionException e) {
+                // an Error escaped Service.start()
+                throw Throwables.propagate(e.getCause());
+            }
+
+            if (failure == null && result != null) {
+                failure = result;
+            }
+        }
+        return failure;
+    }
+
+    private void sortDependencies(Service service, Map<Service, List<Service>> dependencies, List<Service> ordered) {
+        if (!ordered.contains(service)) {
+            for (Service dependency : dependencies.get(service)) {
+                sortDependencies(dependency, dependencies, ordered);
+            }
+            ordered.add(service);
+        }
+    }
+
+    private CompletableFuture<FatalException> schedule(Service service, Map<Service, List<Service>> dependencies,
+                                                       ExecutorService executor,
+                                                       Map<Service, CompletableFuture<FatalException>> futures) {
+        CompletableFuture<FatalException> future = futures.get(service);
+        if (future != null) {
+            return future;
+        }
+
+        List<Service> serviceDependencies = dependencies.get(service);
+        CompletableFuture<?>[] prerequisites = new CompletableFuture<?>[serviceDependencies.size()];
+        for (int i = 0; i < prerequisites.length; i++) {
+            prerequisites[i] = schedule(serviceDependencies.get(i), dependencies, executor, futures);
+        }
+
+        future = CompletableFuture.allOf(prerequisites).thenApplyAsync(ignored -> {
+            for (CompletableFuture<?> prerequisite : prerequisites) {
+                Object failure = prerequisite.join();
+                if (failure != null) {
+                    log.error("Skipped starting '{}' because a dependency failed", service.getClass().getName());
+                    return (FatalException) failure;
+                }
+            }
+            return startService(service);
+        }, executor);
+
+        futures.put(service, future);
+        return future;
+    }
+
+    /**
+     * Starts a service and records the startup time.
+     *
+     * @return the fatal failure or null
+     */
+    private FatalException startService(Service service) {
+        log.info("Starting service '{}'", service.getClass().getName());
+        long start = System.nanoTime();
+        try {
+            service.start();
+            log.info("Started service '{}' in {} ms", service.getClass().getName(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            synchronized (startedOrder) {
+                startedOrder.add(service);
+            }
+        } catch (Exception e) {
+            log.error("Failed to start '{}'", service.getClass().getName(), e);
+
+            if (e instanceof FatalException) {
+                return (FatalException) e;
+            }
+        } finally {
+            startupTimes.put(service, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return null;
+    }
 }
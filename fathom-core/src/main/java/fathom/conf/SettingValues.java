@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.conf;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * An immutable, pre-flattened snapshot of the resolved values of a Config
+ * with memoized, per-type conversions.
+ * <p>
+ * A snapshot is bound to exactly one Config instance. Settings builds a new
+ * snapshot whenever its Config is replaced.
+ *
+ * @author James Moger
+ */
+class SettingValues {
+
+    /**
+     * Marks a setting which does not exist.
+     */
+    static final Object MISSING = new Object();
+
+    /**
+     * Marks a value which can not be converted to the requested type.
+     */
+    static final Object INVALID = new Object();
+
+    private final Config config;
+
+    private final Map<String, String> strings;
+
+    private final ConcurrentMap<String, Boolean> paths;
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> conversions;
+
+    SettingValues(Config config) {
+        this.config = config;
+
+        Map<String, String> map = new HashMap<>();
+        for (Map.Entry<String, ConfigValue> entry : config.entrySet()) {
+            ConfigValue value = entry.getValue();
+            if (value.valueType() != ConfigValueType.LIST && value.valueType() != ConfigValueType.OBJECT) {
+                map.put(entry.getKey(), config.getString(entry.getKey()));
+            }
+        }
+        this.strings = Collections.unmodifiableMap(map);
+        this.paths = new ConcurrentHashMap<>();
+        this.conversions = new ConcurrentHashMap<>();
+    }
+
+    Config getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the string value of a setting.
+     *
+     * @param name
+     * @param defaultValue
+     * @return the value or the default value if the setting does not exist
+     */
+    String getString(String name, String defaultValue) {
+        String value = strings.get(name);
+        if (value != null) {
+            return value;
+        }
+
+        if (hasPath(name)) {
+            // not a scalar value, let Config decide how to handle it
+            return config.getString(name);
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Returns true if the setting exists in the Config.
+     *
+     * @param name
+     * @return true if the path exists
+     */
+    boolean hasPath(String name) {
+        if (strings.containsKey(name)) {
+            return true;
+        }
+
+        Boolean exists = paths.get(name);
+        if (exists == null) {
+            exists = config.hasPath(name);
+            paths.putIfAbsent(name, exists);
+        }
+        return exists;
+    }
+
+    /**
+     * Returns the memoized conversion of a setting.  The converter is called at most
+     * once per setting and type.  Converters return {@link #MISSING} for settings which
+     * do not exist and {@link #INVALID} for values which can not be converted.
+     *
+     * @param type
+     * @param name
+     * @param converter
+     * @return the converted value, {@link #MISSING}, or {@link #INVALID}
+     */
+    Object getConverted(Class<?> type, String name, Function<String, Object> converter) {
+        ConcurrentMap<String, Object> values = conversions.get(type);
+        if (values == null) {
+            values = conversions.computeIfAbsent(type, k -> new ConcurrentHashMap<>());
+        }
+
+        Object value = values.get(name);
+        if (value == null) {
+            value = converter.apply(name);
+            values.putIfAbsent(name, value);
+        }
+        return value;
+    }
+
+}
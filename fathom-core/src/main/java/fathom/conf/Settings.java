@@ -59,6 +59,7 @@ public class Settings {
     private final String defaultUploadFilesLocation = System.getProperty("java.io.tmpdir");
     private final long defaultUploadFilesMaxSize = -1L;
     private Config config;
+    private volatile SettingValues values;
     private String profile = "default";
     private Constants.Mode mode;
 
@@ -86,6 +87,9 @@ public class Settings {
 
         this.config = loadConfig();
         applyArgs(args);
+
+        // snapshot the resolved settings
+        values();
     }
 
     private Config loadConfig() {
@@ -636,6 +640,22 @@ public class Settings {
         return config;
     }
 
+    /**
+     * Returns the memoized snapshot of the current config. A new snapshot is built
+     * whenever the config is replaced by a merge or an override.
+     *
+     * @return the setting values
+     */
+    private SettingValues values() {
+        SettingValues snapshot = values;
+        Config current = config;
+        if (snapshot == null || snapshot.getConfig() != current) {
+            snapshot = new SettingValues(current);
+            values = snapshot;
+        }
+        return snapshot;
+    }
+
     public Config getConfig(String name) {
         return config.getConfig(name);
     }
@@ -655,12 +675,7 @@ public class Settings {
      * @return name value or defaultValue
      */
     public String getString(String name, String defaultValue) {
-        String value = defaultValue;
-        if (getConfig().hasPath(name)) {
-            value = getConfig().getString(name);
-        }
-
-        return value;
+        return values().getString(name, defaultValue);
     }
 
     /**
@@ -673,12 +688,15 @@ public class Settings {
      * @return name value or defaultValue
      */
     public boolean getBoolean(String name, boolean defaultValue) {
-        String value = getString(name, null);
-        if (!Strings.isNullOrEmpty(value)) {
-            return Boolean.parseBoolean(value.trim());
-        }
+        Object value = values().getConverted(Boolean.class, name, key -> {
+            String s = getString(key, null);
+            if (!Strings.isNullOrEmpty(s)) {
+                return Boolean.parseBoolean(s.trim());
+            }
+            return SettingValues.MISSING;
+        });
 
-        return defaultValue;
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
     }
 
     /**
@@ -691,12 +709,21 @@ public class Settings {
      * @return name value or defaultValue
      */
     public int getInteger(String name, int defaultValue) {
-        try {
-            String value = getString(name, null);
-            if (!Strings.isNullOrEmpty(value)) {
-                return Integer.parseInt(value.trim().split(" ")[0]);
+        Object value = values().getConverted(Integer.class, name, key -> {
+            String s = getString(key, null);
+            if (Strings.isNullOrEmpty(s)) {
+                return SettingValues.MISSING;
             }
-        } catch (NumberFormatException e) {
+            try {
+                return Integer.parseInt(s.trim().split(" ")[0]);
+            } catch (NumberFormatException e) {
+                return SettingValues.INVALID;
+            }
+        });
+
+        if (value instanceof Integer) {
+            return (Integer) value;
+        } else if (value == SettingValues.INVALID) {
             log.warn("Failed to parse integer for " + name + " using default of "
                     + defaultValue);
         }
@@ -714,12 +741,21 @@ public class Settings {
      * @return name value or defaultValue
      */
     public long getLong(String name, long defaultValue) {
-        try {
-            String value = getString(name, null);
-            if (!Strings.isNullOrEmpty(value)) {
-                return Long.parseLong(value.trim().split(" ")[0]);
+        Object value = values().getConverted(Long.class, name, key -> {
+            String s = getString(key, null);
+            if (Strings.isNullOrEmpty(s)) {
+                return SettingValues.MISSING;
+            }
+            try {
+                return Long.parseLong(s.trim().split(" ")[0]);
+            } catch (NumberFormatException e) {
+                return SettingValues.INVALID;
             }
-        } catch (NumberFormatException e) {
+        });
+
+        if (value instanceof Long) {
+            return (Long) value;
+        } else if (value == SettingValues.INVALID) {
             log.warn("Failed to parse long for " + name + " using default of "
                     + defaultValue);
         }
@@ -737,23 +773,38 @@ public class Settings {
      * @return value or defaultValue
      */
     public long getBytes(String name, String defaultValue) {
-        if (config.hasPath(name)) {
+        SettingValues snapshot = values();
+        Object value = snapshot.getConverted(Bytes.class, name, key -> {
+            if (!snapshot.hasPath(key)) {
+                return SettingValues.MISSING;
+            }
             try {
-                long value = config.getBytes(name);
-                return value;
+                return snapshot.getConfig().getBytes(key);
             } catch (Exception e) {
-                log.warn("Failed to parse bytes for {} using default of {}", name, defaultValue);
+                return SettingValues.INVALID;
             }
+        });
+
+        if (value instanceof Long) {
+            return (Long) value;
+        } else if (value == SettingValues.INVALID) {
+            log.warn("Failed to parse bytes for {} using default of {}", name, defaultValue);
         }
 
         if (!Strings.isNullOrEmpty(defaultValue)) {
-            try {
-                Config temp = ConfigFactory.parseString(String.format("%s=%s", name, defaultValue));
-                long value = temp.getBytes(name);
-                return value;
-            } catch (Exception e) {
-                log.warn("Failed to parse default bytes expression {} for {}", defaultValue, name);
+            Object defaultBytes = snapshot.getConverted(DefaultBytes.class, defaultValue, expression -> {
+                try {
+                    Config temp = ConfigFactory.parseString(String.format("%s=%s", "bytes", expression));
+                    return temp.getBytes("bytes");
+                } catch (Exception e) {
+                    return SettingValues.INVALID;
+                }
+            });
+
+            if (defaultBytes instanceof Long) {
+                return (Long) defaultBytes;
             }
+            log.warn("Failed to parse default bytes expression {} for {}", defaultValue, name);
         }
         return 0;
     }
@@ -768,12 +819,21 @@ public class Settings {
      * @return name value or defaultValue
      */
     public float getFloat(String name, float defaultValue) {
-        try {
-            String value = getString(name, null);
-            if (!Strings.isNullOrEmpty(value)) {
-                return Float.parseFloat(value.trim().split(" ")[0]);
+        Object value = values().getConverted(Float.class, name, key -> {
+            String s = getString(key, null);
+            if (Strings.isNullOrEmpty(s)) {
+                return SettingValues.MISSING;
             }
-        } catch (NumberFormatException e) {
+            try {
+                return Float.parseFloat(s.trim().split(" ")[0]);
+            } catch (NumberFormatException e) {
+                return SettingValues.INVALID;
+            }
+        });
+
+        if (value instanceof Float) {
+            return (Float) value;
+        } else if (value == SettingValues.INVALID) {
             log.warn("Failed to parse float for " + name + " using default of "
                     + defaultValue);
         }
@@ -791,12 +851,21 @@ public class Settings {
      * @return name value or defaultValue
      */
     public double getDouble(String name, double defaultValue) {
-        try {
-            String value = getString(name, null);
-            if (!Strings.isNullOrEmpty(value)) {
-                return Double.parseDouble(value.trim().split(" ")[0]);
+        Object value = values().getConverted(Double.class, name, key -> {
+            String s = getString(key, null);
+            if (Strings.isNullOrEmpty(s)) {
+                return SettingValues.MISSING;
+            }
+            try {
+                return Double.parseDouble(s.trim().split(" ")[0]);
+            } catch (NumberFormatException e) {
+                return SettingValues.INVALID;
             }
-        } catch (NumberFormatException e) {
+        });
+
+        if (value instanceof Double) {
+            return (Double) value;
+        } else if (value == SettingValues.INVALID) {
             log.warn("Failed to parse double for " + name + " using default of "
                     + defaultValue);
         }
@@ -844,7 +913,7 @@ public class Settings {
      * @return list of strings
      */
     public List<String> getStrings(String name) {
-        if (!getConfig().hasPath(name)) {
+        if (!values().hasPath(name)) {
             return Collections.emptyList();
         }
         List<String> stringList = getConfig().getStringList(name);
@@ -858,7 +927,7 @@ public class Settings {
      * @return list of integers
      */
     public List<Integer> getIntegers(String name) {
-        if (!getConfig().hasPath(name)) {
+        if (!values().hasPath(name)) {
             return Collections.emptyList();
         }
         List<Integer> ints = getConfig().getIntList(name);
@@ -872,7 +941,7 @@ public class Settings {
      * @return list of longs
      */
     public List<Long> getLongs(String name) {
-        if (!getConfig().hasPath(name)) {
+        if (!values().hasPath(name)) {
             return Collections.emptyList();
         }
         List<Long> longs = getConfig().getLongList(name);
@@ -895,7 +964,7 @@ public class Settings {
      * @return milliseconds
      */
     public long getDuration(String name, TimeUnit timeUnit, long defaultValue) {
-        if (!getConfig().hasPath(name)) {
+        if (!values().hasPath(name)) {
             return defaultValue;
         }
         long duration = getConfig().getDuration(name, timeUnit);
@@ -1021,6 +1090,15 @@ public class Settings {
         return props;
     }
 
+    /**
+     * Memoization keys for byte size conversions.
+     */
+    private interface Bytes {
+    }
+
+    private interface DefaultBytes {
+    }
+
     public static enum Setting {
         application_name,
         application_version,
@@ -1033,6 +1111,7 @@ public class Settings {
         jmx_port,
         metrics_jvm_enabled,
         metrics_mbeans_enabled,
+        services_startThreads,
         undertow_ajpPort,
         undertow_ajpListenAddress,
         undertow_httpPort,
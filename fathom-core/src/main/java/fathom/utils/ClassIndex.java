@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.utils;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.TreeMultimap;
+import fathom.exception.FathomException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ClassIndex reads the build-time class indexes written by the {@link ClassIndexProcessor}.
+ * <p>
+ * Each classpath root compiled with the processor contains a {@code META-INF/fathom/index}
+ * resource which lists the compiled packages and the indexed classes of those packages.
+ * A package does not need to be scanned at runtime if every classpath root which contains
+ * the package supplies an index of that package.
+ * <pre>
+ * package controllers
+ * fathom.rest.controller.Path controllers.ItemsController
+ * </pre>
+ *
+ * @author James Moger
+ */
+public class ClassIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ClassIndex.class);
+
+    public static final String RESOURCE = "META-INF/fathom/index";
+
+    static final String PACKAGE = "package";
+
+    // classpath root -> indexed packages
+    private final SetMultimap<String, String> packages;
+
+    private final SetMultimap<String, String> classes;
+
+    ClassIndex() {
+        this.packages = TreeMultimap.create();
+        this.classes = LinkedHashMultimap.create();
+    }
+
+    /**
+     * Loads and merges all class indexes on the classpath.
+     *
+     * @return the class index
+     */
+    public static ClassIndex load() {
+        ClassIndex index = new ClassIndex();
+        for (URL url : ClassUtil.getResources(RESOURCE)) {
+            log.debug("Reading class index {}", url);
+            String resource = url.toString();
+            String root = resource.substring(0, resource.length() - RESOURCE.length());
+            try (InputStream is = url.openStream()) {
+                index.read(root, is);
+            } catch (IOException e) {
+                throw new FathomException(e, "Failed to read class index '{}'", url);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the classes annotated with the specified annotation in the specified packages.
+     * The build-time class index is used for packages which are indexed in every classpath
+     * root, the remaining packages are scanned and merged with the indexed classes.
+     *
+     * @param annotationClass
+     * @param packageNames
+     * @return a collection of classes
+     */
+    public static Collection<Class<?>> getAnnotatedClasses(Class<? extends Annotation> annotationClass, String... packageNames) {
+        ClassIndex index = load();
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (String packageName : packageNames) {
+            for (String className : index.getClassNames(annotationClass, packageName)) {
+                classes.add(ClassUtil.getClass(className));
+            }
+            if (index.isIndexed(packageName)) {
+                log.debug("Using class index for '{}' classes in package '{}'", annotationClass.getName(), packageName);
+            } else {
+                log.debug("Package '{}' is not indexed in every classpath root, scanning classpath", packageName);
+                classes.addAll(ClassUtil.getAnnotatedClasses(annotationClass, packageName));
+            }
+        }
+        return Collections.unmodifiableCollection(new ArrayList<>(classes));
+    }
+
+    void read(String root, InputStream is) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+
+            String[] fields = line.split("\\s+");
+            if (fields.length != 2) {
+                log.warn("Ignoring malformed class index entry '{}'", line);
+            } else if (PACKAGE.equals(fields[0])) {
+                packages.put(normalize(root), fields[1]);
+            } else {
+                classes.put(fields[0], fields[1]);
+            }
+        }
+    }
+
+    /**
+     * Returns true if no class index was found on the classpath.
+     *
+     * @return true if the index is empty
+     */
+    public boolean isEmpty() {
+        return packages.isEmpty();
+    }
+
+    /**
+     * Returns true if every classpath root which contains the package supplies an index of
+     * the package or its subpackages.
+     *
+     * @param packageName
+     * @return true if the package does not need to be scanned
+     */
+    public boolean isIndexed(String packageName) {
+        String packagePath = Strings.nullToEmpty(packageName).replace('.', '/');
+        List<String> packageRoots = new ArrayList<>();
+        for (URL url : ClassUtil.getResources(packagePath)) {
+            String resource = url.toString();
+            if (resource.endsWith("/")) {
+                resource = resource.substring(0, resource.length() - 1);
+            }
+            packageRoots.add(resource.substring(0, resource.length() - packagePath.length()));
+        }
+        return isIndexed(packageName, packageRoots);
+    }
+
+    /**
+     * Returns true if each of the classpath roots supplies an index of the package or its
+     * subpackages.
+     *
+     * @param packageName
+     * @param packageRoots the classpath roots which contain the package
+     * @return true if the package is indexed in all roots
+     */
+    boolean isIndexed(String packageName, Collection<String> packageRoots) {
+        if (packageRoots.isEmpty()) {
+            return false;
+        }
+
+        String packagePrefix = Strings.isNullOrEmpty(packageName) ? "" : packageName + '.';
+        for (String root : packageRoots) {
+            boolean isIndexed = false;
+            for (String indexedPackage : packages.get(normalize(root))) {
+                if (packagePrefix.isEmpty() || indexedPackage.equals(packageName) || indexedPackage.startsWith(packagePrefix)) {
+                    isIndexed = true;
+                    break;
+                }
+            }
+            if (!isIndexed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String normalize(String root) {
+        return root.endsWith("/") ? root : root + '/';
+    }
+
+    /**
+     * Returns the names of the indexed classes of the specified type, or annotation, which are
+     * declared in the package or its subpackages.
+     *
+     * @param type
+     * @param packageName
+     * @return the class names
+     */
+    public Collection<String> getClassNames(Class<?> type, String packageName) {
+        String packagePrefix = Strings.isNullOrEmpty(packageName) ? "" : packageName + '.';
+        List<String> names = new ArrayList<>();
+        for (String className : classes.get(type.getName())) {
+            if (className.startsWith(packagePrefix)) {
+                names.add(className);
+            }
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.utils;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor which writes the build-time class index read by {@link ClassIndex}.
+ * <p>
+ * The processor is registered as a service so it is applied to every project which
+ * compiles against fathom-core.  It indexes {@code @Path} controllers and concrete
+ * Modules, ServletsModules, Services and Fathom classes.
+ *
+ * @author James Moger
+ */
+@SupportedAnnotationTypes("*")
+public class ClassIndexProcessor extends AbstractProcessor {
+
+    static final List<String> ANNOTATIONS = Arrays.asList(
+            "fathom.rest.controller.Path");
+
+    static final List<String> TYPES = Arrays.asList(
+            "fathom.Module",
+            "fathom.ServletsModule",
+            "fathom.Service",
+            "fathom.conf.Fathom");
+
+    private final Set<String> packages = new TreeSet<>();
+
+    // class name -> indexed key
+    private final Map<String, Set<String>> entries = new TreeMap<>();
+
+    private final Set<String> processed = new TreeSet<>();
+
+    private Elements elements;
+
+    private Types types;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!processed.isEmpty()) {
+                writeIndex();
+            }
+        } else {
+            for (Element element : roundEnv.getRootElements()) {
+                if (element instanceof TypeElement) {
+                    index((TypeElement) element);
+                }
+            }
+        }
+
+        // never claim the annotations, other processors may need them
+        return false;
+    }
+
+    private void index(TypeElement type) {
+        String className = elements.getBinaryName(type).toString();
+        processed.add(className);
+        packages.add(elements.getPackageOf(type).getQualifiedName().toString());
+
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            String annotationName = annotation.getAnnotationType().toString();
+            if (ANNOTATIONS.contains(annotationName)) {
+                addEntry(className, annotationName);
+            }
+        }
+
+        if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT)) {
+            TypeMirror erasure = types.erasure(type.asType());
+            for (String typeName : TYPES) {
+                TypeElement indexedType = elements.getTypeElement(typeName);
+                if (indexedType != null && types.isAssignable(erasure, types.erasure(indexedType.asType()))) {
+                    addEntry(className, typeName);
+                }
+            }
+        }
+
+        for (Element enclosed : type.getEnclosedElements()) {
+            if (enclosed instanceof TypeElement) {
+                index((TypeElement) enclosed);
+            }
+        }
+    }
+
+    private void addEntry(String className, String key) {
+        Set<String> keys = entries.get(className);
+        if (keys == null) {
+            keys = new TreeSet<>();
+            entries.put(className, keys);
+        }
+        keys.add(key);
+    }
+
+    private void writeIndex() {
+        // merge with the index of a previous, possibly incremental, compilation
+        readPreviousIndex();
+
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ClassIndex.RESOURCE);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write("# Generated by " + getClass().getName() + "\n");
+                for (String packageName : packages) {
+                    writer.write(ClassIndex.PACKAGE + " " + packageName + "\n");
+                }
+                for (Map.Entry<String, Set<String>> entry : entries.entrySet()) {
+                    for (String key : entry.getValue()) {
+                        writer.write(key + " " + entry.getKey() + "\n");
+                    }
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to write " + ClassIndex.RESOURCE + ": " + e.getMessage());
+        }
+    }
+
+    private void readPreviousIndex() {
+        FileObject file;
+        InputStream is;
+        try {
+            file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", ClassIndex.RESOURCE);
+            is = file.openInputStream();
+        } catch (IOException e) {
+            // no previous index
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length != 2 || fields[0].startsWith("#")) {
+                    continue;
+                }
+
+                if (ClassIndex.PACKAGE.equals(fields[0])) {
+                    packages.add(fields[1]);
+                } else if (!processed.contains(fields[1])
+                        && elements.getTypeElement(fields[1].replace('$', '.')) != null) {
+                    // keep entries of classes which were not recompiled and which still exist
+                    addEntry(fields[1], fields[0]);
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Failed to read previous " + ClassIndex.RESOURCE + ": " + e.getMessage());
+        }
+    }
+
+}
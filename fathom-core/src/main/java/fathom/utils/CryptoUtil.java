@@ -63,6 +63,21 @@ public class CryptoUtil {
         return digest;
     }
 
+    /**
+     * Compares two strings in a time which does not depend on the position of the
+     * first difference.  Use this to compare password hashes and other secrets.
+     *
+     * @param a
+     * @param b
+     * @return true if the strings are equal
+     */
+    public static boolean constantTimeEquals(String a, String b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return MessageDigest.isEqual(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Calculates the SHA256 hash of the string.
      *
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom;
+
+import com.google.inject.Guice;
+import fathom.conf.Settings;
+import fathom.exception.FatalException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author James Moger
+ */
+public class ServicesTest extends Assert {
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+    private final Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+
+    private volatile boolean concurrent = true;
+
+    private Services newServices(int threads) {
+        Settings settings = new Settings();
+        settings.overrideSetting(Settings.Setting.services_startThreads, threads);
+        return new Services(settings);
+    }
+
+    @Test
+    public void testConcurrentStart() {
+        // both services block until the other one has started
+        CountDownLatch latch = new CountDownLatch(2);
+        Services services = newServices(2);
+        services.register(new LatchService("a", 10, latch));
+        services.register(new LatchService("b", 10, latch));
+        services.start(Guice.createInjector());
+
+        assertEquals(0, latch.getCount());
+        assertTrue("services were not started concurrently", concurrent);
+        assertEquals(2, services.getStartupTimes().size());
+    }
+
+    @Test
+    public void testStartOrderAndDependencies() {
+        Services services = newServices(4);
+        services.register(new DependentService("dependent", 20));
+        services.register(new RecordingService("late", 30));
+        services.register(new BaseService("base", 20));
+        services.register(new RecordingService("first", 10));
+        services.start(Guice.createInjector());
+
+        assertEquals(Arrays.asList("start first", "start base", "start dependent", "start late"), events.subList(0, 4));
+
+        events.clear();
+        services.stop();
+        assertEquals(Arrays.asList("stop late", "stop dependent", "stop base", "stop first"), events);
+    }
+
+    @Test
+    public void testSequentialDependencies() {
+        Services services = newServices(1);
+        services.register(new DependentService("dependent", 20));
+        services.register(new BaseService("base", 20));
+        services.start(Guice.createInjector());
+
+        assertEquals(Arrays.asList("start base", "start dependent"), events);
+    }
+
+    @Test(expected = FatalException.class)
+    public void testLaterDependency() {
+        Services services = newServices(2);
+        services.register(new DependentService("dependent", 10));
+        services.register(new BaseService("base", 20));
+        services.start(Guice.createInjector());
+    }
+
+    @Test
+    public void testUnorderedStartSequentially() {
+        Services services = newServices(4);
+        services.register(new RecordingService("unordered1", -1));
+        services.register(new RecordingService("unordered2", -1));
+        services.register(new RecordingService("ordered", 10));
+        services.start(Guice.createInjector());
+
+        assertEquals("start ordered", events.get(0));
+        assertEquals(3, events.size());
+        assertEquals(Collections.singleton(Thread.currentThread().getName()), threads);
+    }
+
+    class RecordingService implements Service {
+
+        final String name;
+        final int order;
+        volatile boolean running;
+
+        RecordingService(String name, int order) {
+            this.name = name;
+            this.order = order;
+        }
+
+        @Override
+        public int getPreferredStartOrder() {
+            return order;
+        }
+
+        @Override
+        public void start() {
+            threads.add(Thread.currentThread().getName());
+            events.add("start " + name);
+            running = true;
+        }
+
+        @Override
+        public boolean isRunning() {
+            return running;
+        }
+
+        @Override
+        public void stop() {
+            events.add("stop " + name);
+            running = false;
+        }
+    }
+
+    class BaseService extends RecordingService {
+
+        BaseService(String name, int order) {
+            super(name, order);
+        }
+    }
+
+    @DependsOn(BaseService.class)
+    class DependentService extends RecordingService {
+
+        DependentService(String name, int order) {
+            super(name, order);
+        }
+    }
+
+    class LatchService extends RecordingService {
+
+        final CountDownLatch latch;
+
+        LatchService(String name, int order, CountDownLatch latch) {
+            super(name, order);
+            this.latch = latch;
+        }
+
+        @Override
+        public void start() {
+            latch.countDown();
+            try {
+                concurrent &= latch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.start();
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.conf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author James Moger
+ */
+public class SettingsTest extends Assert {
+
+    @Test
+    public void testDefaults() {
+        Settings settings = new Settings();
+        assertEquals("default", settings.getString("missing.string", "default"));
+        assertEquals(5, settings.getInteger("missing.int", 5));
+        assertEquals(5L, settings.getLong("missing.long", 5L));
+        assertTrue(settings.getBoolean("missing.boolean", true));
+        assertEquals(1024L, settings.getBytes("missing.bytes", "1K"));
+        assertFalse(settings.hasSetting("missing.string"));
+    }
+
+    @Test
+    public void testOverrides() {
+        Settings settings = new Settings();
+        settings.overrideSetting("test.int", 10);
+        settings.overrideSetting("test.string", "value");
+        settings.overrideSetting("test.bytes", "2K");
+        assertEquals(10, settings.getInteger("test.int", 5));
+        assertEquals(10L, settings.getLong("test.int", 5L));
+        assertEquals(10d, settings.getDouble("test.int", 5d), 0d);
+        assertEquals("value", settings.getString("test.string", null));
+        assertEquals(2048L, settings.getBytes("test.bytes", "1K"));
+
+        // replacing the config must invalidate the memoized values
+        settings.overrideSetting("test.int", 20);
+        settings.overrideSetting("test.bytes", "4K");
+        assertEquals(20, settings.getInteger("test.int", 5));
+        assertEquals(4096L, settings.getBytes("test.bytes", "1K"));
+        assertEquals("value", settings.getString("test.string", null));
+    }
+
+    @Test
+    public void testInvalidValues() {
+        Settings settings = new Settings();
+        settings.overrideSetting("test.number", "abc");
+        assertEquals(5, settings.getInteger("test.number", 5));
+        assertEquals(5, settings.getInteger("test.number", 5));
+        assertEquals(7L, settings.getLong("test.number", 7L));
+        assertEquals("abc", settings.getString("test.number", null));
+    }
+
+}
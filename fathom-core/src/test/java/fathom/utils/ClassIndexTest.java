@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.utils;
+
+import fathom.Module;
+import fathom.Service;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author James Moger
+ */
+public class ClassIndexTest extends Assert {
+
+    private static final String APP = "file:/app/classes/";
+
+    private static final String LIB = "jar:file:/app/lib/library.jar!/";
+
+    private ClassIndex read(String... lines) throws Exception {
+        ClassIndex index = new ClassIndex();
+        read(index, APP, lines);
+        return index;
+    }
+
+    private void read(ClassIndex index, String root, String... lines) throws Exception {
+        String content = String.join("\n", lines);
+        index.read(root, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        ClassIndex index = read("# nothing here");
+        assertTrue(index.isEmpty());
+        assertFalse(index.isIndexed("com.example", Collections.singletonList(APP)));
+        assertFalse(index.isIndexed("", Collections.singletonList(APP)));
+    }
+
+    @Test
+    public void testPackages() throws Exception {
+        ClassIndex index = read(
+                "package com.example.conf",
+                "package com.example.controllers.admin");
+
+        List<String> roots = Collections.singletonList(APP);
+        assertFalse(index.isEmpty());
+        assertTrue(index.isIndexed("", roots));
+        assertTrue(index.isIndexed("com.example", roots));
+        assertTrue(index.isIndexed("com.example.conf", roots));
+        assertTrue(index.isIndexed("com.example.controllers", roots));
+        assertFalse(index.isIndexed("com.example.con", roots));
+        assertFalse(index.isIndexed("com.other", roots));
+        assertFalse(index.isIndexed("com.example", Collections.emptyList()));
+    }
+
+    @Test
+    public void testUnindexedRoot() throws Exception {
+        ClassIndex index = read("package com.example.controllers");
+
+        // the library contributes classes to the package without supplying an index
+        assertTrue(index.isIndexed("com.example.controllers", Collections.singletonList("file:/app/classes")));
+        assertFalse(index.isIndexed("com.example.controllers", Arrays.asList(APP, LIB)));
+
+        read(index, LIB, "package com.example.controllers.api");
+        assertTrue(index.isIndexed("com.example.controllers", Arrays.asList(APP, LIB)));
+        assertFalse(index.isIndexed("com.example.controllers.api", Arrays.asList(APP, LIB)));
+        assertTrue(index.isIndexed("com.example.controllers.api", Collections.singletonList(LIB)));
+    }
+
+    @Test
+    public void testClassNames() throws Exception {
+        ClassIndex index = read(
+                "package com.example.conf",
+                "package com.example.services",
+                "fathom.Module com.example.conf.Components",
+                "fathom.Service com.example.services.Mailer",
+                "fathom.Service com.example.services.Mailer$Queue",
+                "malformed");
+
+        assertEquals(Collections.singletonList("com.example.conf.Components"),
+                index.getClassNames(Module.class, "com.example"));
+        assertEquals(Arrays.asList("com.example.services.Mailer", "com.example.services.Mailer$Queue"),
+                index.getClassNames(Service.class, "com.example.services"));
+        assertTrue(index.getClassNames(Service.class, "com.example.conf").isEmpty());
+        assertEquals(2, index.getClassNames(Service.class, "").size());
+    }
+
+}
@@ -22,6 +22,7 @@ import fathom.metrics.Metered;
 import fathom.realm.Account;
 import fathom.rest.controller.Auth;
 import fathom.rest.controller.BasicAuth;
+import fathom.rest.controller.CSRF;
 import fathom.rest.controller.FormAuth;
 import fathom.rest.controller.GET;
 import fathom.rest.controller.Path;
@@ -97,4 +98,17 @@ public class ApiController extends ApiV1 {
         return item;
     }
 
+    @GET("/items/csrf/{id: [0-9]+}")
+    @Metered
+    @Return(code = 200, description = "Item retrieved", onResult = Item.class)
+    @Return(code = 404, description = "Item does not exist")
+    @BasicAuth
+    @CSRF
+    public Item getCsrf(int id, @Auth Account account) {
+
+        log.debug("GET item #{} for '{}'", id, account);
+        Item item = dao.get(id);
+        return item;
+    }
+
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package controllers;
+
+import fathom.Module;
+import fathom.rest.controller.Path;
+import fathom.utils.ClassIndex;
+import fathom.utils.ClassUtil;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies the application is compiled with a class index and that discovery
+ * from the index matches, and is faster than, classpath scanning.
+ */
+public class ClassIndexTest extends Assert {
+
+    private static final Logger log = LoggerFactory.getLogger(ClassIndexTest.class);
+
+    @Test
+    public void testIndexCoversApplication() {
+        ClassIndex index = ClassIndex.load();
+        assertTrue("controllers are not indexed", index.isIndexed("controllers"));
+        assertTrue(index.getClassNames(Path.class, "controllers").contains(ApiController.class.getName()));
+        assertTrue(index.getClassNames(Module.class, "conf").contains(conf.Components.class.getName()));
+    }
+
+    @Test
+    public void testIndexMatchesScanning() {
+        long start = System.nanoTime();
+        Collection<Class<?>> scanned = ClassUtil.getAnnotatedClasses(Path.class, "controllers");
+        long scanTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Collection<Class<?>> indexed = ClassIndex.getAnnotatedClasses(Path.class, "controllers");
+        long indexTime = System.nanoTime() - start;
+
+        log.info("Discovered {} controllers by scanning in {} ms and from the class index in {} ms",
+                scanned.size(), TimeUnit.NANOSECONDS.toMillis(scanTime), TimeUnit.NANOSECONDS.toMillis(indexTime));
+
+        assertFalse(indexed.isEmpty());
+        assertEquals(new HashSet<>(scanned), new HashSet<>(indexed));
+    }
+
+}
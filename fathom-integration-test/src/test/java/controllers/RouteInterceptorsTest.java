@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package controllers;
+
+import fathom.test.RestIntegrationTest;
+import org.junit.Test;
+
+import static com.jayway.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests controller methods which declare multiple RouteInterceptors.
+ */
+public class RouteInterceptorsTest extends RestIntegrationTest {
+
+    @Test
+    public void testFirstInterceptorShortCircuits() {
+        // BasicAuth rejects the request, CSRF and the controller method are not executed
+        given().accept(JSON).when().get("/api/v1/items/csrf/{id}", 1).then().statusCode(401);
+    }
+
+    @Test
+    public void testAllInterceptorsExecute() {
+        given().auth().preemptive().basic("admin", "admin").accept(JSON)
+                .when().get("/api/v1/items/csrf/{id}", 1)
+                .then().statusCode(200).body("id", equalTo(1));
+    }
+
+    @Test
+    public void testRepeatedRequests() {
+        // the precomputed interceptor chain must be replayed for each request
+        for (int i = 0; i < 3; i++) {
+            given().accept(JSON).when().get("/api/v1/items/csrf/{id}", 1).then().statusCode(401);
+            given().auth().preemptive().basic("admin", "admin").accept(JSON)
+                    .when().get("/api/v1/items/csrf/{id}", 1).then().statusCode(200);
+        }
+    }
+
+}
@@ -15,10 +15,10 @@
  */
 package fathom.metrics.ganglia;
 
-import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.ganglia.GangliaReporter;
 import fathom.conf.Settings;
 import fathom.metrics.MetricsReporter;
+import fathom.metrics.MetricsReporting;
 import info.ganglia.gmetric4j.gmetric.GMetric;
 import info.ganglia.gmetric4j.gmetric.GMetric.UDPAddressingMode;
 import org.kohsuke.MetaInfServices;
@@ -41,7 +41,7 @@ public class Reporter implements MetricsReporter {
     private GangliaReporter reporter;
 
     @Override
-    public void start(Settings settings, MetricRegistry metricRegistry) {
+    public void start(Settings settings, MetricsReporting reporting) {
         if (settings.getBoolean("metrics.ganglia.enabled", false)) {
 
             final String hostname = settings.getLocalHostname();
@@ -51,9 +51,9 @@ public class Reporter implements MetricsReporter {
 
             try {
                 GMetric ganglia = new GMetric(address, port, UDPAddressingMode.MULTICAST, 1);
-                reporter = GangliaReporter.forRegistry(metricRegistry).convertRatesTo(TimeUnit.SECONDS)
+                reporter = GangliaReporter.forRegistry(reporting.getMetricRegistry()).convertRatesTo(TimeUnit.SECONDS)
                         .convertDurationsTo(TimeUnit.MILLISECONDS).build(ganglia);
-                reporter.start(period, TimeUnit.SECONDS);
+                reporting.add("ganglia", reporter, period, TimeUnit.SECONDS);
 
                 log.info("Started Ganglia Metrics reporter for '{}', updating every {} seconds", hostname, period);
 
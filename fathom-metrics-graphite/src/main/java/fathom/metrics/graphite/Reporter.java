@@ -16,13 +16,13 @@
 package fathom.metrics.graphite;
 
 import com.codahale.metrics.MetricFilter;
-import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.graphite.Graphite;
 import com.codahale.metrics.graphite.GraphiteReporter;
 import com.codahale.metrics.graphite.GraphiteSender;
 import com.codahale.metrics.graphite.PickledGraphite;
 import fathom.conf.Settings;
 import fathom.metrics.MetricsReporter;
+import fathom.metrics.MetricsReporting;
 import org.kohsuke.MetaInfServices;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,7 +44,7 @@ public class Reporter implements MetricsReporter {
     private GraphiteReporter reporter;
 
     @Override
-    public void start(Settings settings, MetricRegistry metricRegistry) {
+    public void start(Settings settings, MetricsReporting reporting) {
         if (settings.getBoolean("metrics.graphite.enabled", false)) {
 
             final String hostname = settings.getLocalHostname();
@@ -62,11 +62,11 @@ public class Reporter implements MetricsReporter {
                 sender = new Graphite(graphiteAddress);
             }
 
-            reporter = GraphiteReporter.forRegistry(metricRegistry).prefixedWith(hostname)
+            reporter = GraphiteReporter.forRegistry(reporting.getMetricRegistry()).prefixedWith(hostname)
                     .convertRatesTo(TimeUnit.SECONDS).convertDurationsTo(TimeUnit.MILLISECONDS)
                     .filter(MetricFilter.ALL).build(sender);
 
-            reporter.start(period, TimeUnit.SECONDS);
+            reporting.add("graphite", reporter, period, TimeUnit.SECONDS);
 
             log.debug("Started Graphite Metrics reporter for '{}', updating every {} seconds", hostname, period);
 
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.metrics.graphite;
+
+import com.codahale.metrics.MetricRegistry;
+import fathom.conf.Settings;
+import fathom.metrics.MetricsReporting;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the shared snapshots to a local Graphite stand-in server.
+ *
+ * @author James Moger
+ */
+public class ReporterTest extends Assert {
+
+    @Test
+    public void testReport() throws Exception {
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        try (ServerSocket server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress())) {
+            Thread receiver = new Thread(() -> {
+                while (!server.isClosed()) {
+                    try (Socket socket = server.accept();
+                         BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            lines.add(line);
+                        }
+                    } catch (Exception e) {
+                        // server closed
+                    }
+                }
+            });
+            receiver.setDaemon(true);
+            receiver.start();
+
+            Settings settings = new Settings();
+            settings.overrideSetting("metrics.reporting.period", "1 second");
+            settings.overrideSetting("metrics.graphite.enabled", true);
+            settings.overrideSetting("metrics.graphite.address", server.getInetAddress().getHostAddress());
+            settings.overrideSetting("metrics.graphite.port", server.getLocalPort());
+            settings.overrideSetting("metrics.graphite.period", "1 second");
+
+            MetricRegistry metricRegistry = new MetricRegistry();
+            metricRegistry.counter("requests").inc(42);
+
+            MetricsReporting reporting = new MetricsReporting(settings, metricRegistry);
+            Reporter reporter = new Reporter();
+            try {
+                reporter.start(settings, reporting);
+
+                String line;
+                do {
+                    line = lines.poll(10, TimeUnit.SECONDS);
+                    assertNotNull("Graphite did not receive the counter", line);
+                } while (!line.contains(".requests.count "));
+                assertTrue(line, line.contains(".requests.count 42 "));
+            } finally {
+                reporting.close();
+                reporter.close();
+            }
+
+            assertTrue(metricRegistry.timer("metrics.reporter.graphite.send").getCount() > 0);
+        }
+    }
+
+}
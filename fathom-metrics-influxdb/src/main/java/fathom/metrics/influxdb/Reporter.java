@@ -16,9 +16,9 @@
 package fathom.metrics.influxdb;
 
 import com.codahale.metrics.MetricFilter;
-import com.codahale.metrics.MetricRegistry;
 import fathom.conf.Settings;
 import fathom.metrics.MetricsReporter;
+import fathom.metrics.MetricsReporting;
 import metrics_influxdb.InfluxdbHttp;
 import metrics_influxdb.InfluxdbReporter;
 import org.kohsuke.MetaInfServices;
@@ -41,7 +41,7 @@ public class Reporter implements MetricsReporter {
     private InfluxdbReporter reporter;
 
     @Override
-    public void start(Settings settings, MetricRegistry metricRegistry) {
+    public void start(Settings settings, MetricsReporting reporting) {
         if (settings.getBoolean("metrics.influxdb.enabled", false)) {
 
             final String hostname = settings.getLocalHostname();
@@ -55,11 +55,11 @@ public class Reporter implements MetricsReporter {
             try {
 
                 InfluxdbHttp influxdb = new InfluxdbHttp(address, port, database, username, password);
-                reporter = InfluxdbReporter.forRegistry(metricRegistry).prefixedWith(hostname)
+                reporter = InfluxdbReporter.forRegistry(reporting.getMetricRegistry()).prefixedWith(hostname)
                         .convertRatesTo(TimeUnit.SECONDS).convertDurationsTo(TimeUnit.MILLISECONDS)
                         .filter(MetricFilter.ALL).build(influxdb);
 
-                reporter.start(period, TimeUnit.SECONDS);
+                reporting.add("influxdb", reporter, period, TimeUnit.SECONDS);
 
                 log.debug("Started InfluxDB Metrics reporter for '{}', updating every {} seconds", hostname, period);
 
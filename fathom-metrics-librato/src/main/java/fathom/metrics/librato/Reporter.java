@@ -15,10 +15,10 @@
  */
 package fathom.metrics.librato;
 
-import com.codahale.metrics.MetricRegistry;
 import com.librato.metrics.LibratoReporter;
 import fathom.conf.Settings;
 import fathom.metrics.MetricsReporter;
+import fathom.metrics.MetricsReporting;
 import org.kohsuke.MetaInfServices;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,8 +36,10 @@ public class Reporter implements MetricsReporter {
 
     private final Logger log = LoggerFactory.getLogger(Reporter.class);
 
+    private LibratoReporter reporter;
+
     @Override
-    public void start(Settings settings, MetricRegistry metricRegistry) {
+    public void start(Settings settings, MetricsReporting reporting) {
         if (settings.getBoolean("metrics.librato.enabled", false)) {
 
             final String hostname = settings.getLocalHostname();
@@ -45,8 +47,8 @@ public class Reporter implements MetricsReporter {
             final String apiKey = settings.getRequiredString("metrics.librato.apikey");
             final long period = settings.getDuration("metrics.librato.period", TimeUnit.SECONDS, 60);
 
-            LibratoReporter.enable(LibratoReporter.builder(metricRegistry, username, apiKey, hostname), period,
-                    TimeUnit.SECONDS);
+            reporter = LibratoReporter.builder(reporting.getMetricRegistry(), username, apiKey, hostname).build();
+            reporting.add("librato", reporter, period, TimeUnit.SECONDS);
 
             log.info("Started Librato Metrics reporter for '{}', updating every {} seconds", hostname, period);
 
@@ -57,5 +59,9 @@ public class Reporter implements MetricsReporter {
 
     @Override
     public void close() throws IOException {
+        if (reporter != null) {
+            reporter.stop();
+            log.debug("Stopped Librato Metrics reporter");
+        }
     }
 }
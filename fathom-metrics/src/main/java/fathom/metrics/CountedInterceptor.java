@@ -16,7 +16,6 @@
 package fathom.metrics;
 
 import com.codahale.metrics.Counter;
-import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import org.aopalliance.intercept.MethodInterceptor;
@@ -29,34 +28,46 @@ public class CountedInterceptor implements MethodInterceptor {
 
     final Provider<Metrics> metricsServiceProvider;
 
+    private final MethodMetrics<CountedMethod> counters;
+
     @Inject
     public CountedInterceptor(Provider<Metrics> metricsServiceProvider) {
         this.metricsServiceProvider = metricsServiceProvider;
+        this.counters = new MethodMetrics<>((type, method) -> {
+            Counted counted = method.getAnnotation(Counted.class);
+            String counterName = MethodMetrics.getName(counted.value(), type, method);
+            Counter counter = metricsServiceProvider.get().getMetricRegistry().counter(counterName);
+            return new CountedMethod(counter, counted.active());
+        });
     }
 
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
 
-        Counted counted = invocation.getMethod().getAnnotation(Counted.class);
-        String counterName = counted.value();
-
-        if (counterName.isEmpty()) {
-            counterName = MetricRegistry.name(invocation.getThis().getClass()
-                    .getSuperclass(), invocation.getMethod().getName());
-        }
-
-        Counter counter = metricsServiceProvider.get().getMetricRegistry()
-                .counter(counterName);
+        CountedMethod countedMethod = counters.get(invocation);
+        Counter counter = countedMethod.counter;
 
         counter.inc();
 
         try {
             return invocation.proceed();
         } finally {
-            if (counted.active()) {
+            if (countedMethod.active) {
                 counter.dec();
             }
         }
     }
 
+    private static class CountedMethod {
+
+        final Counter counter;
+
+        final boolean active;
+
+        CountedMethod(Counter counter, boolean active) {
+            this.counter = counter;
+            this.active = active;
+        }
+    }
+
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.metrics;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A Reservoir backed by an HdrHistogram.
+ * <p>
+ * Values are recorded without locks into a Recorder and every recorded value contributes
+ * to the percentiles, so the tail is not distorted by sampling.  By default a snapshot
+ * covers all values recorded since the reservoir was created.  If <i>resetOnSnapshot</i>
+ * is set, a snapshot only covers the values recorded since the previous snapshot.
+ * <p>
+ * With <i>resetOnSnapshot</i> every snapshot consumes an interval, so the reservoir must have
+ * exactly one consumer.  The reporters of {@link MetricsReporting} share one snapshot per period
+ * but any other reader, e.g. the JMX reporter, an admin page, or a second scheduled reporter,
+ * steals the values from the others.  The Metrics service rejects <i>resetOnSnapshot</i> if the
+ * MBeans are enabled.
+ * <p>
+ * {@link Snapshot#getValues()} and {@link Snapshot#dump(OutputStream)} return one value per
+ * recorded bucket of the histogram instead of every recorded value so they stay bounded by the
+ * precision of the histogram rather than by the number of updates.
+ *
+ * @author James Moger
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+    private final Recorder recorder;
+
+    private final boolean resetOnSnapshot;
+
+    private final Histogram histogram;
+
+    private Histogram interval;
+
+    /**
+     * @param significantDigits the precision of the recorded values, 0-5
+     * @param resetOnSnapshot   true if a snapshot only covers the values since the previous snapshot
+     */
+    public HdrHistogramReservoir(int significantDigits, boolean resetOnSnapshot) {
+        this.recorder = new Recorder(significantDigits);
+        this.resetOnSnapshot = resetOnSnapshot;
+        this.interval = recorder.getIntervalHistogram();
+        this.histogram = interval.copy();
+    }
+
+    @Override
+    public synchronized int size() {
+        drain();
+        return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        recorder.recordValue(value);
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        drain();
+        Snapshot snapshot = new HdrSnapshot(histogram.copy());
+        if (resetOnSnapshot) {
+            histogram.reset();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Moves the values of the Recorder into the histogram.  The Recorder swaps its
+     * active histogram so concurrent updates are not blocked.
+     */
+    private void drain() {
+        interval = recorder.getIntervalHistogram(interval);
+        histogram.add(interval);
+    }
+
+    private static class HdrSnapshot extends Snapshot {
+
+        private final Histogram histogram;
+
+        HdrSnapshot(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            return histogram.getValueAtPercentile(quantile * 100);
+        }
+
+        /**
+         * Returns the highest equivalent value of each recorded bucket in ascending order.
+         */
+        @Override
+        public long[] getValues() {
+            int buckets = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                buckets++;
+            }
+            long[] values = new long[buckets];
+            int i = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                values[i++] = value.getValueIteratedTo();
+            }
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+
+}
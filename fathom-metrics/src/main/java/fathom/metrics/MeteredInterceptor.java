@@ -16,7 +16,6 @@
 package fathom.metrics;
 
 import com.codahale.metrics.Meter;
-import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Provider;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
@@ -28,30 +27,22 @@ public class MeteredInterceptor implements MethodInterceptor {
 
     final private Provider<Metrics> metricsServiceProvider;
 
+    private final MethodMetrics<Meter> meters;
+
     public MeteredInterceptor(Provider<Metrics> metricsServiceProvider) {
         this.metricsServiceProvider = metricsServiceProvider;
+        this.meters = new MethodMetrics<>((type, method) -> {
+            String meterName = MethodMetrics.getName(method.getAnnotation(Metered.class).value(), type, method);
+            return metricsServiceProvider.get().getMetricRegistry().meter(meterName);
+        });
     }
 
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
 
-        String timerName = invocation.getMethod().getAnnotation(Metered.class).value();
-        if (timerName.isEmpty()) {
-            timerName = MetricRegistry.name(invocation.getThis().getClass().getSuperclass(), invocation.getMethod().getName());
-        }
-
-        Meter meter
-                = metricsServiceProvider
-                .get()
-                .getMetricRegistry()
-                .meter(timerName);
-        meter.mark();
-
-        try {
-            return invocation.proceed();
-        } finally {
+        meters.get(invocation).mark();
 
-        }
+        return invocation.proceed();
     }
 
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+/**
+ * Caches the metric of each intercepted method so that an interceptor resolves the
+ * annotation, the metric name, and the registry entry only on the first invocation.
+ * <p>
+ * Metrics are cached per intercepted subclass because the default metric name is
+ * derived from its {@code getSuperclass()}.
+ *
+ * @param <T> the cached metric type
+ * @author James Moger
+ */
+class MethodMetrics<T> {
+
+    private final ClassValue<ConcurrentMap<Method, T>> metrics = new ClassValue<ConcurrentMap<Method, T>>() {
+        @Override
+        protected ConcurrentMap<Method, T> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final BiFunction<Class<?>, Method, T> factory;
+
+    /**
+     * @param factory creates the metric of a method from the class of the intercepted
+     *                instance (a Guice subclass) and the method
+     */
+    MethodMetrics(BiFunction<Class<?>, Method, T> factory) {
+        this.factory = factory;
+    }
+
+    T get(MethodInvocation invocation) {
+        Class<?> type = invocation.getThis().getClass();
+        Method method = invocation.getMethod();
+        ConcurrentMap<Method, T> map = metrics.get(type);
+        T metric = map.get(method);
+        if (metric == null) {
+            metric = map.computeIfAbsent(method, m -> factory.apply(type, m));
+        }
+        return metric;
+    }
+
+    /**
+     * Returns the metric name of a method.
+     *
+     * @param name  the name specified by the annotation
+     * @param type  the class of the intercepted instance, a Guice subclass
+     * @param method
+     * @return the specified name or the name of the intercepted class and method
+     */
+    static String getName(String name, Class<?> type, Method method) {
+        if (name.isEmpty()) {
+            return MetricRegistry.name(type.getSuperclass(), method.getName());
+        }
+        return name;
+    }
+
+}
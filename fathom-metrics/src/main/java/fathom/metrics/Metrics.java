@@ -15,10 +15,16 @@
  */
 package fathom.metrics;
 
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
 import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.SlidingTimeWindowReservoir;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.UniformReservoir;
 import com.codahale.metrics.jvm.ClassLoadingGaugeSet;
 import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
@@ -27,8 +33,10 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import fathom.Service;
 import fathom.conf.Settings;
+import fathom.exception.FathomException;
 import fathom.utils.RequireUtil;
 import fathom.utils.ServiceLocator;
+import fathom.utils.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +45,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Implementation of the Metrics service.
@@ -51,6 +61,8 @@ public class Metrics implements Service {
     private final Settings settings;
     private final MetricRegistry metricRegistry;
     private final List<Closeable> reporters;
+    private final Supplier<Reservoir> reservoirs;
+    private MetricsReporting reporting;
 
     @Inject
     public Metrics(MetricRegistry appMetrics, Settings settings) {
@@ -58,6 +70,7 @@ public class Metrics implements Service {
         this.settings = settings;
         this.metricRegistry = appMetrics;
         this.reporters = new ArrayList<>();
+        this.reservoirs = createReservoirs(settings);
 
     }
 
@@ -91,9 +104,10 @@ public class Metrics implements Service {
         }
 
         // Add classpath reporters
+        reporting = new MetricsReporting(settings, metricRegistry);
         ServiceLocator.locateAll(MetricsReporter.class).forEach((reporter) -> {
             if (RequireUtil.allowInstance(settings, reporter)) {
-                reporter.start(settings, metricRegistry);
+                reporter.start(settings, reporting);
                 reporters.add(reporter);
             }
         });
@@ -107,6 +121,11 @@ public class Metrics implements Service {
     @Override
     public void stop() {
 
+        if (reporting != null) {
+            reporting.close();
+            reporting = null;
+        }
+
         for (Closeable reporter : reporters) {
             log.debug("Stopping {}", reporter.getClass().getName());
             try {
@@ -122,6 +141,71 @@ public class Metrics implements Service {
         return metricRegistry;
     }
 
+    /**
+     * Returns the Timer registered with the name or registers a new Timer which uses
+     * the reservoir configured by <i>metrics.timers.reservoir</i>.
+     *
+     * @param name
+     * @return a Timer
+     */
+    public Timer timer(String name) {
+        Metric metric = metricRegistry.getMetrics().get(name);
+        if (metric == null) {
+            try {
+                return metricRegistry.register(name, new Timer(reservoirs.get()));
+            } catch (IllegalArgumentException e) {
+                // registered concurrently
+                metric = metricRegistry.getMetrics().get(name);
+            }
+        }
+        if (metric instanceof Timer) {
+            return (Timer) metric;
+        }
+        throw new FathomException("'{}' is already registered as a {}", name, metric.getClass().getSimpleName());
+    }
+
+    /**
+     * Creates the Reservoir supplier of the Timers from the settings.
+     * <p>
+     * The default exponentially decaying reservoir samples values and locks on rescale.
+     * An HdrHistogram records every value without locks and gives accurate tail percentiles.
+     * A sliding time window keeps every value of the window and is only suited to low rates.
+     */
+    private static Supplier<Reservoir> createReservoirs(Settings settings) {
+        String type = settings.getString("metrics.timers.reservoir", "exponentiallyDecaying");
+        int size = settings.getInteger("metrics.timers.size", 1028);
+        long window = settings.getDuration("metrics.timers.window", TimeUnit.SECONDS, TimeUnit.MINUTES.toSeconds(1));
+        int significantDigits = settings.getInteger("metrics.timers.significantDigits", 2);
+        boolean resetOnSnapshot = settings.getBoolean("metrics.timers.resetOnSnapshot", false);
+
+        log.debug("Metrics timers configuration:");
+        Util.logSetting(log, "metrics.timers.reservoir", type);
+
+        switch (type) {
+            case "exponentiallyDecaying":
+                return ExponentiallyDecayingReservoir::new;
+            case "uniform":
+                Util.logSetting(log, "metrics.timers.size", size);
+                return () -> new UniformReservoir(size);
+            case "slidingWindow":
+                Util.logSetting(log, "metrics.timers.size", size);
+                return () -> new SlidingWindowReservoir(size);
+            case "slidingTimeWindow":
+                Util.logSetting(log, "metrics.timers.window (secs)", window);
+                return () -> new SlidingTimeWindowReservoir(window, TimeUnit.SECONDS);
+            case "hdrHistogram":
+                Util.logSetting(log, "metrics.timers.significantDigits", significantDigits);
+                Util.logSetting(log, "metrics.timers.resetOnSnapshot", resetOnSnapshot);
+                if (resetOnSnapshot && settings.getBoolean(Settings.Setting.metrics_mbeans_enabled, false)) {
+                    // every JMX read would consume the interval of the reporters
+                    throw new FathomException("metrics.timers.resetOnSnapshot can not be used with metrics.mbeans.enabled");
+                }
+                return () -> new HdrHistogramReservoir(significantDigits, resetOnSnapshot);
+            default:
+                throw new FathomException("Unknown metrics.timers.reservoir '{}'", type);
+        }
+    }
+
     private void registerAll(String prefix, MetricSet metrics) throws IllegalArgumentException {
         for (Map.Entry<String, Metric> entry : metrics.getMetrics().entrySet()) {
             if (entry.getValue() instanceof MetricSet) {
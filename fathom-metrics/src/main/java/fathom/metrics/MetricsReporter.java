@@ -17,6 +17,7 @@ package fathom.metrics;
 
 import com.codahale.metrics.MetricRegistry;
 import fathom.conf.Settings;
+import fathom.exception.FathomException;
 
 import java.io.Closeable;
 
@@ -25,6 +26,26 @@ import java.io.Closeable;
  */
 public interface MetricsReporter extends Closeable {
 
-    public void start(Settings settings, MetricRegistry metricRegistry);
+    /**
+     * Starts a reporter which schedules its own reports.
+     *
+     * @param settings
+     * @param metricRegistry
+     * @deprecated implement {@link #start(Settings, MetricsReporting)}
+     */
+    @Deprecated
+    default void start(Settings settings, MetricRegistry metricRegistry) {
+        throw new FathomException("{} must implement start(Settings, MetricsReporting)", getClass().getName());
+    }
+
+    /**
+     * Starts a reporter which sends the shared snapshots of the MetricsReporting.
+     *
+     * @param settings
+     * @param reporting
+     */
+    default void start(Settings settings, MetricsReporting reporting) {
+        start(settings, reporting.getMetricRegistry());
+    }
 
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fathom.conf.Settings;
+import fathom.exception.FathomException;
+import fathom.utils.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MetricsReporting is the reporting core shared by the MetricsReporters.
+ * <p>
+ * One thread takes a single MetricsSnapshot of the registry every
+ * <i>metrics.reporting.period</i> and offers it to every reporter.  Each reporter
+ * sends on its own thread from a queue of <i>metrics.reporting.queueSize</i>
+ * snapshots.  If a backend is slow the oldest queued snapshot is dropped, so a
+ * slow backend neither delays the snapshots nor the other reporters.
+ * <p>
+ * A reporter sends the metrics of the snapshot which match the MetricFilter it was
+ * added with.  The filter of a ScheduledReporter is not accessible, so a reporter
+ * built with a filter must be added with the same filter.
+ * <p>
+ * The send time and the dropped snapshots of each reporter are registered as
+ * <i>metrics.reporter.[name].send</i> and <i>metrics.reporter.[name].dropped</i>.
+ *
+ * @author James Moger
+ */
+public class MetricsReporting implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsReporting.class);
+
+    private final MetricRegistry metricRegistry;
+    private final long period;
+    private final int queueSize;
+    private final Map<String, Channel> channels;
+    private ScheduledExecutorService executor;
+
+    public MetricsReporting(Settings settings, MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        this.period = Math.max(1, settings.getDuration("metrics.reporting.period", TimeUnit.SECONDS, 60));
+        this.queueSize = Math.max(1, settings.getInteger("metrics.reporting.queueSize", 2));
+        this.channels = new ConcurrentHashMap<>();
+
+        log.debug("Metrics reporting configuration:");
+        Util.logSetting(log, "metrics.reporting.period (secs)", period);
+        Util.logSetting(log, "metrics.reporting.queueSize", queueSize);
+    }
+
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Adds a reporter which sends every snapshot.
+     *
+     * @param name
+     * @param reporter
+     */
+    public void add(String name, ScheduledReporter reporter) {
+        add(name, reporter, MetricFilter.ALL, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Adds a reporter.  The reporter sends one of every [reporterPeriod / period]
+     * snapshots.
+     *
+     * @param name
+     * @param reporter
+     * @param reporterPeriod
+     * @param timeUnit
+     */
+    public void add(String name, ScheduledReporter reporter, long reporterPeriod, TimeUnit timeUnit) {
+        add(name, reporter, MetricFilter.ALL, reporterPeriod, timeUnit);
+    }
+
+    /**
+     * Adds a reporter which sends the metrics matching the filter.  The reporter sends
+     * one of every [reporterPeriod / period] snapshots.  A reporter period which is not
+     * a multiple of the shared period is rounded to the nearest multiple, and a shorter
+     * reporter period is raised to the shared period.
+     *
+     * @param name
+     * @param reporter
+     * @param filter         the metrics to send
+     * @param reporterPeriod
+     * @param timeUnit
+     */
+    public synchronized void add(String name, ScheduledReporter reporter, MetricFilter filter,
+                                 long reporterPeriod, TimeUnit timeUnit) {
+        long seconds = timeUnit.toSeconds(reporterPeriod);
+        long every = Math.max(1, Math.round((double) seconds / period));
+        if (seconds != every * period) {
+            log.warn("The period of the '{}' metrics reporter ({} seconds) is not a multiple of metrics.reporting.period ({} seconds), reporting every {} seconds",
+                    name, seconds, period, every * period);
+        }
+        Channel channel = new Channel(name, reporter, filter, every);
+        if (channels.putIfAbsent(name, channel) != null) {
+            throw new FathomException("Metrics reporter '{}' is already registered", name);
+        }
+        channel.start();
+
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("metrics-snapshot").setDaemon(true).build());
+            executor.scheduleAtFixedRate(this::report, period, period, TimeUnit.SECONDS);
+        }
+
+        log.debug("Added '{}' metrics reporter, reporting every {} seconds", name, every * period);
+    }
+
+    /**
+     * Takes a snapshot of the registry and offers it to all reporters.
+     */
+    void report() {
+        if (channels.isEmpty()) {
+            return;
+        }
+        try {
+            MetricsSnapshot snapshot = MetricsSnapshot.of(metricRegistry);
+            channels.values().forEach(channel -> channel.offer(snapshot));
+        } catch (RuntimeException e) {
+            log.error("Failed to take a metrics snapshot", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        channels.values().forEach(Channel::close);
+        channels.clear();
+    }
+
+    /**
+     * The queue and sender thread of one reporter.
+     */
+    private class Channel implements Runnable {
+
+        private final String name;
+        private final ScheduledReporter reporter;
+        private final MetricFilter filter;
+        private final long every;
+        private final BlockingDeque<MetricsSnapshot> queue;
+        private final Timer sendTimer;
+        private final Counter dropped;
+        private final ExecutorService sender;
+        private long offered;
+
+        Channel(String name, ScheduledReporter reporter, MetricFilter filter, long every) {
+            this.name = name;
+            this.reporter = reporter;
+            this.filter = filter;
+            this.every = every;
+            this.queue = new LinkedBlockingDeque<>(queueSize);
+            this.sendTimer = metricRegistry.timer(MetricRegistry.name("metrics.reporter", name, "send"));
+            this.dropped = metricRegistry.counter(MetricRegistry.name("metrics.reporter", name, "dropped"));
+            this.sender = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("metrics-reporter-" + name).setDaemon(true).build());
+        }
+
+        void start() {
+            sender.execute(this);
+        }
+
+        /**
+         * Queues a snapshot, dropping the oldest queued snapshot if the queue is full.
+         * Only called by the snapshot thread.
+         */
+        void offer(MetricsSnapshot snapshot) {
+            if (offered++ % every != 0) {
+                return;
+            }
+            while (!queue.offerLast(snapshot)) {
+                if (queue.pollFirst() != null) {
+                    dropped.inc();
+                    log.warn("Dropped a metrics snapshot of the '{}' reporter, the backend is too slow", name);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                MetricsSnapshot snapshot;
+                try {
+                    snapshot = queue.takeFirst();
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                Timer.Context context = sendTimer.time();
+                try {
+                    snapshot = snapshot.filter(filter);
+                    reporter.report(snapshot.getGauges(), snapshot.getCounters(), snapshot.getHistograms(),
+                            snapshot.getMeters(), snapshot.getTimers());
+                } catch (RuntimeException e) {
+                    log.error("Failed to send metrics to the '{}' reporter", name, e);
+                } finally {
+                    context.stop();
+                }
+            }
+        }
+
+        void close() {
+            sender.shutdownNow();
+            try {
+                sender.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
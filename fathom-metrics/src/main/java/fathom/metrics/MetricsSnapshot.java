@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * MetricsSnapshot is the frozen state of a MetricRegistry at one instant.
+ * <p>
+ * Gauges are evaluated and histograms and timers are sampled once per snapshot.  The
+ * frozen metrics are shared by all reporters so they report identical values and a
+ * reservoir which resets on snapshot is only reset once per interval.
+ *
+ * @author James Moger
+ */
+public final class MetricsSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsSnapshot.class);
+
+    // frozen histograms and timers never sample this reservoir
+    private static final Reservoir UNUSED = new SlidingWindowReservoir(1);
+
+    private final long timestamp;
+    private final SortedMap<String, Gauge> gauges;
+    private final SortedMap<String, Counter> counters;
+    private final SortedMap<String, Histogram> histograms;
+    private final SortedMap<String, Meter> meters;
+    private final SortedMap<String, Timer> timers;
+
+    private MetricsSnapshot(long timestamp,
+                            SortedMap<String, Gauge> gauges,
+                            SortedMap<String, Counter> counters,
+                            SortedMap<String, Histogram> histograms,
+                            SortedMap<String, Meter> meters,
+                            SortedMap<String, Timer> timers) {
+        this.timestamp = timestamp;
+        this.gauges = Collections.unmodifiableSortedMap(gauges);
+        this.counters = Collections.unmodifiableSortedMap(counters);
+        this.histograms = Collections.unmodifiableSortedMap(histograms);
+        this.meters = Collections.unmodifiableSortedMap(meters);
+        this.timers = Collections.unmodifiableSortedMap(timers);
+    }
+
+    /**
+     * Takes a snapshot of the registry.
+     *
+     * @param metricRegistry
+     * @return the snapshot
+     */
+    public static MetricsSnapshot of(MetricRegistry metricRegistry) {
+        long timestamp = System.currentTimeMillis();
+
+        SortedMap<String, Gauge> gauges = new TreeMap<>();
+        for (Map.Entry<String, Gauge> entry : metricRegistry.getGauges().entrySet()) {
+            try {
+                Object value = entry.getValue().getValue();
+                gauges.put(entry.getKey(), () -> value);
+            } catch (RuntimeException e) {
+                log.warn("Failed to read gauge '{}'", entry.getKey(), e);
+            }
+        }
+
+        SortedMap<String, Counter> counters = new TreeMap<>();
+        metricRegistry.getCounters().forEach((name, counter) -> counters.put(name, new FrozenCounter(counter)));
+
+        SortedMap<String, Histogram> histograms = new TreeMap<>();
+        metricRegistry.getHistograms().forEach((name, histogram) -> histograms.put(name, new FrozenHistogram(histogram)));
+
+        SortedMap<String, Meter> meters = new TreeMap<>();
+        metricRegistry.getMeters().forEach((name, meter) -> meters.put(name, new FrozenMeter(meter)));
+
+        SortedMap<String, Timer> timers = new TreeMap<>();
+        metricRegistry.getTimers().forEach((name, timer) -> timers.put(name, new FrozenTimer(timer)));
+
+        return new MetricsSnapshot(timestamp, gauges, counters, histograms, meters, timers);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public SortedMap<String, Gauge> getGauges() {
+        return gauges;
+    }
+
+    public SortedMap<String, Counter> getCounters() {
+        return counters;
+    }
+
+    public SortedMap<String, Histogram> getHistograms() {
+        return histograms;
+    }
+
+    public SortedMap<String, Meter> getMeters() {
+        return meters;
+    }
+
+    public SortedMap<String, Timer> getTimers() {
+        return timers;
+    }
+
+    /**
+     * Returns the metrics of this snapshot which match the filter.
+     *
+     * @param filter
+     * @return this snapshot if the filter matches all metrics or a filtered snapshot
+     */
+    public MetricsSnapshot filter(MetricFilter filter) {
+        if (filter == null || filter == MetricFilter.ALL) {
+            return this;
+        }
+        return new MetricsSnapshot(timestamp, filter(gauges, filter), filter(counters, filter),
+                filter(histograms, filter), filter(meters, filter), filter(timers, filter));
+    }
+
+    private static <T extends Metric> SortedMap<String, T> filter(SortedMap<String, T> metrics, MetricFilter filter) {
+        SortedMap<String, T> filtered = new TreeMap<>();
+        metrics.forEach((name, metric) -> {
+            if (filter.matches(name, metric)) {
+                filtered.put(name, metric);
+            }
+        });
+        return filtered;
+    }
+
+    private static class FrozenCounter extends Counter {
+
+        private final long count;
+
+        FrozenCounter(Counter counter) {
+            this.count = counter.getCount();
+        }
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+    }
+
+    private static class FrozenHistogram extends Histogram {
+
+        private final long count;
+        private final Snapshot snapshot;
+
+        FrozenHistogram(Histogram histogram) {
+            super(UNUSED);
+            this.count = histogram.getCount();
+            this.snapshot = histogram.getSnapshot();
+        }
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+    }
+
+    private static class FrozenMeter extends Meter {
+
+        private final long count;
+        private final double meanRate;
+        private final double oneMinuteRate;
+        private final double fiveMinuteRate;
+        private final double fifteenMinuteRate;
+
+        FrozenMeter(Meter meter) {
+            this.count = meter.getCount();
+            this.meanRate = meter.getMeanRate();
+            this.oneMinuteRate = meter.getOneMinuteRate();
+            this.fiveMinuteRate = meter.getFiveMinuteRate();
+            this.fifteenMinuteRate = meter.getFifteenMinuteRate();
+        }
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public double getMeanRate() {
+            return meanRate;
+        }
+
+        @Override
+        public double getOneMinuteRate() {
+            return oneMinuteRate;
+        }
+
+        @Override
+        public double getFiveMinuteRate() {
+            return fiveMinuteRate;
+        }
+
+        @Override
+        public double getFifteenMinuteRate() {
+            return fifteenMinuteRate;
+        }
+    }
+
+    private static class FrozenTimer extends Timer {
+
+        private final long count;
+        private final double meanRate;
+        private final double oneMinuteRate;
+        private final double fiveMinuteRate;
+        private final double fifteenMinuteRate;
+        private final Snapshot snapshot;
+
+        FrozenTimer(Timer timer) {
+            super(UNUSED);
+            this.count = timer.getCount();
+            this.meanRate = timer.getMeanRate();
+            this.oneMinuteRate = timer.getOneMinuteRate();
+            this.fiveMinuteRate = timer.getFiveMinuteRate();
+            this.fifteenMinuteRate = timer.getFifteenMinuteRate();
+            this.snapshot = timer.getSnapshot();
+        }
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public double getMeanRate() {
+            return meanRate;
+        }
+
+        @Override
+        public double getOneMinuteRate() {
+            return oneMinuteRate;
+        }
+
+        @Override
+        public double getFiveMinuteRate() {
+            return fiveMinuteRate;
+        }
+
+        @Override
+        public double getFifteenMinuteRate() {
+            return fifteenMinuteRate;
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+    }
+
+}
@@ -15,7 +15,6 @@
  */
 package fathom.metrics;
 
-import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -29,26 +28,21 @@ public class TimedInterceptor implements MethodInterceptor {
 
     final Provider<Metrics> metricsServiceProvider;
 
+    private final MethodMetrics<Timer> timers;
+
     @Inject
     public TimedInterceptor(Provider<Metrics> metricsServiceProvider) {
         this.metricsServiceProvider = metricsServiceProvider;
+        this.timers = new MethodMetrics<>((type, method) -> {
+            String timerName = MethodMetrics.getName(method.getAnnotation(Timed.class).value(), type, method);
+            return metricsServiceProvider.get().timer(timerName);
+        });
     }
 
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
 
-        String timerName = invocation.getMethod().getAnnotation(Timed.class).value();
-
-        if (timerName.isEmpty()) {
-            timerName = MetricRegistry.name(invocation.getThis().getClass().getSuperclass(), invocation.getMethod().getName());
-        }
-
-        Timer.Context timerContext
-                = metricsServiceProvider
-                .get()
-                .getMetricRegistry()
-                .timer(timerName)
-                .time();
+        Timer.Context timerContext = timers.get(invocation).time();
 
         try {
             return invocation.proceed();
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.metrics;
+
+import com.codahale.metrics.Snapshot;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test the HdrHistogramReservoir.
+ *
+ * @author James Moger
+ */
+public class HdrHistogramReservoirTest extends Assert {
+
+    @Test
+    public void testPercentiles() {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(2, false);
+        for (long i = 1; i <= 10000; i++) {
+            reservoir.update(i);
+        }
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(10000, reservoir.size());
+        assertEquals(10000, snapshot.size());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(10000, snapshot.getMax(), 100);
+        assertEquals(5000, snapshot.getMedian(), 50);
+        assertEquals(9990, snapshot.get999thPercentile(), 100);
+        assertEquals(5000.5, snapshot.getMean(), 50);
+    }
+
+    @Test
+    public void testCumulative() {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(2, false);
+        reservoir.update(10);
+        assertEquals(1, reservoir.getSnapshot().size());
+
+        reservoir.update(20);
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals(10, snapshot.getMin());
+    }
+
+    @Test
+    public void testResetOnSnapshot() {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(2, true);
+        reservoir.update(10);
+        assertEquals(1, reservoir.getSnapshot().size());
+        assertEquals(0, reservoir.getSnapshot().size());
+
+        reservoir.update(20);
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(1, snapshot.size());
+        assertEquals(20, snapshot.getMin());
+    }
+
+    @Test
+    public void testBoundedValues() {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(2, false);
+        for (int i = 0; i < 1000000; i++) {
+            reservoir.update(i % 1000);
+        }
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(1000000, snapshot.size());
+
+        long[] values = snapshot.getValues();
+        assertTrue("One value per bucket is expected, not " + values.length, values.length <= 1000);
+        for (int i = 1; i < values.length; i++) {
+            assertTrue(values[i - 1] < values[i]);
+        }
+        assertEquals(0, values[0]);
+        assertEquals(snapshot.getMax(), values[values.length - 1]);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        snapshot.dump(output);
+        String[] lines = new String(output.toByteArray(), StandardCharsets.UTF_8).trim().split("\\R");
+        assertEquals(values.length, lines.length);
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Timer;
+import fathom.conf.Settings;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.SortedMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test the shared snapshots and the queues of the MetricsReporting.
+ *
+ * @author James Moger
+ */
+public class MetricsReportingTest extends Assert {
+
+    private MetricRegistry metricRegistry;
+
+    private MetricsReporting reporting;
+
+    @Before
+    public void setup() {
+        Settings settings = new Settings();
+        settings.overrideSetting("metrics.reporting.period", "1 hour");
+        settings.overrideSetting("metrics.reporting.queueSize", 2);
+        metricRegistry = new MetricRegistry();
+        reporting = new MetricsReporting(settings, metricRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        reporting.close();
+    }
+
+    @Test
+    public void testSharedSnapshot() throws Exception {
+        RecordingReporter a = new RecordingReporter(metricRegistry, null);
+        RecordingReporter b = new RecordingReporter(metricRegistry, null);
+        reporting.add("a", a);
+        reporting.add("b", b);
+
+        metricRegistry.counter("requests").inc(5);
+        reporting.report();
+        metricRegistry.counter("requests").inc(5);
+
+        SortedMap<String, Counter> countersA = a.reports.poll(10, TimeUnit.SECONDS);
+        SortedMap<String, Counter> countersB = b.reports.poll(10, TimeUnit.SECONDS);
+        assertSame("Reporters must share the snapshot", countersA, countersB);
+        assertEquals("The snapshot must be frozen", 5, countersA.get("requests").getCount());
+    }
+
+    @Test
+    public void testSlowReporter() throws Exception {
+        CountDownLatch backend = new CountDownLatch(1);
+        RecordingReporter slow = new RecordingReporter(metricRegistry, backend);
+        RecordingReporter fast = new RecordingReporter(metricRegistry, null);
+        reporting.add("slow", slow);
+        reporting.add("fast", fast);
+
+        for (int i = 1; i <= 5; i++) {
+            metricRegistry.counter("requests").inc();
+            reporting.report();
+            assertEquals(i, fast.reports.poll(10, TimeUnit.SECONDS).get("requests").getCount());
+            if (i == 1) {
+                assertTrue(slow.sending.await(10, TimeUnit.SECONDS));
+            }
+        }
+
+        // the slow reporter is sending the first snapshot, 2 are queued and 2 were dropped
+        assertEquals(2, metricRegistry.counter("metrics.reporter.slow.dropped").getCount());
+        assertEquals(0, metricRegistry.counter("metrics.reporter.fast.dropped").getCount());
+
+        backend.countDown();
+        assertEquals(1, slow.reports.poll(10, TimeUnit.SECONDS).get("requests").getCount());
+        assertEquals("The oldest snapshots must be dropped", 4, slow.reports.poll(10, TimeUnit.SECONDS).get("requests").getCount());
+        assertEquals(5, slow.reports.poll(10, TimeUnit.SECONDS).get("requests").getCount());
+        assertEquals(5, metricRegistry.timer("metrics.reporter.fast.send").getCount());
+    }
+
+    @Test
+    public void testReporterPeriod() throws Exception {
+        RecordingReporter reporter = new RecordingReporter(metricRegistry, null);
+        reporting.add("daily", reporter, 3, TimeUnit.HOURS);
+
+        for (int i = 1; i <= 4; i++) {
+            metricRegistry.counter("requests").inc();
+            reporting.report();
+        }
+
+        assertEquals(1, reporter.reports.poll(10, TimeUnit.SECONDS).get("requests").getCount());
+        assertEquals(4, reporter.reports.poll(10, TimeUnit.SECONDS).get("requests").getCount());
+        assertNull(reporter.reports.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testShortReporterPeriod() throws Exception {
+        RecordingReporter reporter = new RecordingReporter(metricRegistry, null);
+        reporting.add("short", reporter, 1, TimeUnit.MINUTES);
+
+        for (int i = 1; i <= 2; i++) {
+            metricRegistry.counter("requests").inc();
+            reporting.report();
+        }
+
+        // raised to the shared period
+        assertEquals(1, reporter.reports.poll(10, TimeUnit.SECONDS).get("requests").getCount());
+        assertEquals(2, reporter.reports.poll(10, TimeUnit.SECONDS).get("requests").getCount());
+    }
+
+    @Test
+    public void testReporterFilter() throws Exception {
+        RecordingReporter all = new RecordingReporter(metricRegistry, null);
+        RecordingReporter filtered = new RecordingReporter(metricRegistry, null);
+        reporting.add("all", all);
+        reporting.add("filtered", filtered, (name, metric) -> name.startsWith("requests"), 1, TimeUnit.HOURS);
+
+        metricRegistry.counter("requests").inc();
+        metricRegistry.counter("errors").inc();
+        reporting.report();
+
+        SortedMap<String, Counter> countersAll = all.reports.poll(10, TimeUnit.SECONDS);
+        assertTrue(countersAll.containsKey("errors"));
+        assertTrue(countersAll.containsKey("requests"));
+
+        SortedMap<String, Counter> countersFiltered = filtered.reports.poll(10, TimeUnit.SECONDS);
+        assertEquals(1, countersFiltered.size());
+        assertEquals(1, countersFiltered.get("requests").getCount());
+    }
+
+    private static class RecordingReporter extends ScheduledReporter {
+
+        final BlockingQueue<SortedMap<String, Counter>> reports = new LinkedBlockingQueue<>();
+
+        final CountDownLatch sending = new CountDownLatch(1);
+
+        final CountDownLatch backend;
+
+        RecordingReporter(MetricRegistry registry, CountDownLatch backend) {
+            super(registry, "recording", MetricFilter.ALL, TimeUnit.SECONDS, TimeUnit.MILLISECONDS);
+            this.backend = backend;
+        }
+
+        @Override
+        public void report(SortedMap<String, Gauge> gauges, SortedMap<String, Counter> counters,
+                           SortedMap<String, Histogram> histograms, SortedMap<String, Meter> meters,
+                           SortedMap<String, Timer> timers) {
+            sending.countDown();
+            if (backend != null) {
+                try {
+                    backend.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            reports.add(counters);
+        }
+    }
+
+}
@@ -20,6 +20,8 @@ import java.util.Date;
 
 /**
  * This code was extracted from JavaMelody, heavily refactored, and adapted to Fathom.
+ * <p>
+ * JobStats is an immutable snapshot of the statistics of a job.
  *
  * @author Emeric Vernat
  * @author James Moger
@@ -27,18 +29,27 @@ import java.util.Date;
 public class JobStats implements Serializable {
     private static final long serialVersionUID = 1L;
     private final String name;
-    private long executionCount;
-    private long totalExecutionTime;
-    private long totalExecutionTimeSquareSum;
-    private long maximumExecutionTime;
-    private long totalCpuTime;
-    private long exceptionCount;
-    private Date lastExceptionTime;
-    private String stacktrace;
-
-    JobStats(String name) {
+    private final long executionCount;
+    private final long totalExecutionTime;
+    private final long totalExecutionTimeSquareSum;
+    private final long maximumExecutionTime;
+    private final long totalCpuTime;
+    private final long exceptionCount;
+    private final Date lastExceptionTime;
+    private final String stacktrace;
+
+    JobStats(String name, long executionCount, long totalExecutionTime, long totalExecutionTimeSquareSum,
+             long maximumExecutionTime, long totalCpuTime, long exceptionCount, Date lastExceptionTime, String stacktrace) {
         super();
         this.name = name;
+        this.executionCount = executionCount;
+        this.totalExecutionTime = totalExecutionTime;
+        this.totalExecutionTimeSquareSum = totalExecutionTimeSquareSum;
+        this.maximumExecutionTime = maximumExecutionTime;
+        this.totalCpuTime = totalCpuTime;
+        this.exceptionCount = exceptionCount;
+        this.lastExceptionTime = lastExceptionTime;
+        this.stacktrace = stacktrace;
     }
 
     public String getName() {
@@ -101,21 +112,6 @@ public class JobStats implements Serializable {
         return stacktrace;
     }
 
-    void addExecution(long executionTime, long cpuTime, String exceptionStacktrace) {
-        executionCount++;
-        totalExecutionTime += executionTime;
-        totalExecutionTimeSquareSum += executionTime * executionTime;
-        if (executionTime > maximumExecutionTime) {
-            maximumExecutionTime = executionTime;
-        }
-        totalCpuTime += cpuTime;
-        if (exceptionStacktrace != null) {
-            exceptionCount++;
-            lastExceptionTime = new Date();
-            stacktrace = exceptionStacktrace;
-        }
-    }
-
     /**
      * {@inheritDoc}
      */
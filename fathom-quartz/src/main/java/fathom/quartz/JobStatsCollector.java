@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.quartz;
+
+import java.util.Date;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the statistics of a job without locking.
+ * <p>
+ * Executions of the same job may complete concurrently on several scheduler threads.
+ * The counters are striped adders so those threads do not contend and a snapshot
+ * sums the counters.  A snapshot taken during an execution may include some of the
+ * counters of that execution but not others.
+ *
+ * @author James Moger
+ */
+class JobStatsCollector {
+
+    private final String name;
+    private final LongAdder executionCount;
+    private final LongAdder totalExecutionTime;
+    private final LongAdder totalExecutionTimeSquareSum;
+    private final LongAccumulator maximumExecutionTime;
+    private final LongAdder totalCpuTime;
+    private final LongAdder exceptionCount;
+    private volatile JobError lastError;
+
+    JobStatsCollector(String name) {
+        this.name = name;
+        this.executionCount = new LongAdder();
+        this.totalExecutionTime = new LongAdder();
+        this.totalExecutionTimeSquareSum = new LongAdder();
+        this.maximumExecutionTime = new LongAccumulator(Math::max, 0);
+        this.totalCpuTime = new LongAdder();
+        this.exceptionCount = new LongAdder();
+    }
+
+    void addExecution(long executionTime, long cpuTime, JobError error) {
+        totalExecutionTime.add(executionTime);
+        totalExecutionTimeSquareSum.add(executionTime * executionTime);
+        maximumExecutionTime.accumulate(executionTime);
+        totalCpuTime.add(cpuTime);
+        if (error != null) {
+            exceptionCount.increment();
+            lastError = error;
+        }
+        // count the execution last so a snapshot rarely sees an execution without its times
+        executionCount.increment();
+    }
+
+    JobStats snapshot() {
+        JobError error = lastError;
+        return new JobStats(name,
+                executionCount.sum(),
+                totalExecutionTime.sum(),
+                totalExecutionTimeSquareSum.sum(),
+                maximumExecutionTime.get(),
+                totalCpuTime.sum(),
+                exceptionCount.sum(),
+                error == null ? null : new Date(error.getTime()),
+                error == null ? null : error.getStacktrace());
+    }
+
+}
@@ -31,10 +31,11 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * This code was extracted from JavaMelody, heavily refactored, and adapted to Fathom.
@@ -46,8 +47,8 @@ import java.util.concurrent.ConcurrentHashMap;
 public class JobsMonitor implements JobListener {
 
     private final Scheduler scheduler;
-    private final Map<String, JobStats> stats;
-    private final LinkedList<JobError> errors;
+    private final ConcurrentMap<String, JobStatsCollector> stats;
+    private final ErrorRing errors;
     private final ThreadLocal<JobStatsContext> statsContextThreadLocal;
     private final int maxExceptionCount;
 
@@ -56,8 +57,8 @@ public class JobsMonitor implements JobListener {
         this.scheduler = scheduler;
         this.statsContextThreadLocal = new ThreadLocal<>();
         this.stats = new ConcurrentHashMap<>();
-        this.errors = new LinkedList<>();
         this.maxExceptionCount = settings.getInteger("quartz.bufferLastNExceptions", 50);
+        this.errors = maxExceptionCount > 0 ? new ErrorRing(maxExceptionCount) : null;
     }
 
     public void pauseJob(JobInfo jobInfo) {
@@ -122,43 +123,51 @@ public class JobsMonitor implements JobListener {
         statsContextThreadLocal.remove();
 
         if (statsContext != null) {
-            addExecution(statsContext, message, stacktrace);
+            addExecution(statsContext.getJobFullName(), statsContext.getDuration(System.currentTimeMillis()),
+                    statsContext.getCpuTime(), message, stacktrace);
         }
     }
 
-    private void addExecution(JobStatsContext statsContext, String message, String stacktrace) {
-        String jobFullName = statsContext.getJobFullName();
-        long duration = statsContext.getDuration(System.currentTimeMillis());
-        long cpuTime = statsContext.getCpuTime();
-
-        stats.putIfAbsent(jobFullName, new JobStats(jobFullName));
-        JobStats jobStats = stats.get(jobFullName);
-        synchronized (jobStats) {
-            jobStats.addExecution(duration, cpuTime, stacktrace);
+    void addExecution(String jobFullName, long duration, long cpuTime, String message, String stacktrace) {
+        JobStatsCollector collector = stats.get(jobFullName);
+        if (collector == null) {
+            collector = stats.computeIfAbsent(jobFullName, JobStatsCollector::new);
         }
 
-        if (stacktrace != null) {
-            synchronized (errors) {
-                errors.addLast(new JobError(jobFullName, message, stacktrace));
-                if (errors.size() > maxExceptionCount) {
-                    errors.removeFirst();
-                }
-            }
+        JobError error = stacktrace == null ? null : new JobError(jobFullName, message, stacktrace);
+        collector.addExecution(duration, cpuTime, error);
+
+        if (error != null && errors != null) {
+            errors.add(error);
         }
     }
 
+    /**
+     * Returns the most recent errors, oldest first.
+     *
+     * @return the buffered errors
+     */
     public List<JobError> getErrors() {
         if (errors == null) {
             return Collections.emptyList();
         }
-        synchronized (errors) {
-            return new ArrayList<>(errors);
-        }
+        return errors.toList();
+    }
+
+    /**
+     * Returns a snapshot of the statistics of a job.
+     *
+     * @param jobFullName
+     * @return the statistics or null if the job has not been executed
+     */
+    JobStats getJobStats(String jobFullName) {
+        JobStatsCollector collector = stats.get(jobFullName);
+        return collector == null ? null : collector.snapshot();
     }
 
     public List<JobInfo> getJobs() {
         List<JobInfo> jobs = JobInfo.buildJobInfoList(scheduler);
-        jobs.forEach(jobInfo -> jobInfo.setJobStats(stats.get(jobInfo.getFullName())));
+        jobs.forEach(jobInfo -> jobInfo.setJobStats(getJobStats(jobInfo.getFullName())));
         return jobs;
     }
 
@@ -169,4 +178,51 @@ public class JobsMonitor implements JobListener {
     public String getName() {
         return getClass().getName();
     }
+
+    /**
+     * A fixed-size ring of the most recent errors.
+     * <p>
+     * Writers claim a sequence number and overwrite the oldest slot without locking.
+     * Each slot remembers its sequence number so a reader skips slots which are
+     * claimed but not yet written or which were overwritten while it was reading.
+     */
+    private static class ErrorRing {
+
+        private final AtomicLong sequence;
+        private final AtomicReferenceArray<Slot> slots;
+
+        ErrorRing(int size) {
+            this.sequence = new AtomicLong();
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+
+        void add(JobError error) {
+            long n = sequence.getAndIncrement();
+            slots.set((int) (n % slots.length()), new Slot(n, error));
+        }
+
+        List<JobError> toList() {
+            long last = sequence.get();
+            long first = Math.max(0, last - slots.length());
+            List<JobError> list = new ArrayList<>((int) (last - first));
+            for (long n = first; n < last; n++) {
+                Slot slot = slots.get((int) (n % slots.length()));
+                if (slot != null && slot.sequence == n) {
+                    list.add(slot.error);
+                }
+            }
+            return list;
+        }
+
+        private static class Slot {
+
+            final long sequence;
+            final JobError error;
+
+            Slot(long sequence, JobError error) {
+                this.sequence = sequence;
+                this.error = error;
+            }
+        }
+    }
 }
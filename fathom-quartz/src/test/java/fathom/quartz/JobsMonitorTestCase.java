@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.quartz;
+
+import fathom.conf.Settings;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records job executions from many threads while snapshots are taken.
+ *
+ * @author James Moger
+ */
+public class JobsMonitorTestCase {
+
+    private static final String JOB = "DEFAULT.pollingJob";
+
+    private static final int THREADS = 8;
+
+    private static final int EXECUTIONS = 20000;
+
+    @Test
+    public void concurrentExecutions() throws Exception {
+        Settings settings = new Settings();
+        settings.overrideSetting("quartz.bufferLastNExceptions", 10);
+        JobsMonitor monitor = new JobsMonitor(settings, null);
+        assertNull(monitor.getJobStats(JOB));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < EXECUTIONS; i++) {
+                    String stacktrace = i % 10 == 0 ? "failure " + i : null;
+                    monitor.addExecution(JOB, i % 100, 1, "failed", stacktrace);
+                }
+                return null;
+            }));
+        }
+
+        Future<?> reader = executor.submit(() -> {
+            start.await();
+            long lastCount = 0;
+            while (running.get()) {
+                JobStats stats = monitor.getJobStats(JOB);
+                if (stats != null) {
+                    assertTrue("Snapshots must not go backwards", stats.getExecutionCount() >= lastCount);
+                    assertTrue(stats.getMaximumExecutionTime() <= 99);
+                    lastCount = stats.getExecutionCount();
+                }
+                List<JobError> errors = monitor.getErrors();
+                assertTrue(errors.size() <= 10);
+                errors.forEach(error -> assertNotNull(error.getStacktrace()));
+            }
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(1, TimeUnit.MINUTES);
+        }
+        running.set(false);
+        reader.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        long executions = (long) THREADS * EXECUTIONS;
+        long totalTime = THREADS * (EXECUTIONS / 100) * (99 * 100 / 2);
+        JobStats stats = monitor.getJobStats(JOB);
+        assertEquals(executions, stats.getExecutionCount());
+        assertEquals(executions / 10, stats.getExceptionCount());
+        assertEquals(totalTime, stats.getTotalExecutionTime());
+        assertEquals(executions, stats.getTotalCpuTime());
+        assertEquals(99, stats.getMaximumExecutionTime());
+        assertEquals(totalTime / executions, stats.getMeanExecutionTime());
+        assertEquals(10, Math.round(stats.getExceptionPercentage()));
+        assertNotNull(stats.getLastExceptionTime());
+        assertEquals(10, monitor.getErrors().size());
+    }
+
+}
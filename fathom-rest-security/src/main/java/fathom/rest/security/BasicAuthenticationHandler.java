@@ -85,7 +85,7 @@ public class BasicAuthenticationHandler extends StandardCredentialsHandler imple
             final String username = values[0];
             final String password = values[1];
 
-            Account account = authenticate(username, password);
+            Account account = authenticate(context, username, password);
 
             if (setupContext(context, account)) {
                 // continue the chain
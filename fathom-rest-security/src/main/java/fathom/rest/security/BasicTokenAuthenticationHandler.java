@@ -8,6 +8,7 @@ import fathom.conf.Settings;
 import fathom.realm.Account;
 import fathom.rest.Context;
 import fathom.security.SecurityManager;
+import fathom.security.SignedTokens;
 import ro.pippo.core.route.RouteHandler;
 
 import java.nio.charset.StandardCharsets;
@@ -22,15 +23,21 @@ public class BasicTokenAuthenticationHandler extends StandardCredentialsHandler
     private final boolean createSessions;
     private final boolean isPassive;
     private final String challenge;
+    private final SignedTokens signedTokens;
 
     @Inject
-    public BasicTokenAuthenticationHandler(SecurityManager securityManager, Settings settings) {
-        this(securityManager, false, false, settings.getApplicationName());
+    public BasicTokenAuthenticationHandler(SecurityManager securityManager, SignedTokens signedTokens, Settings settings) {
+        this(securityManager, signedTokens, false, false, settings.getApplicationName());
     }
 
     public BasicTokenAuthenticationHandler(SecurityManager securityManager, boolean createSessions, boolean isPassive, String realmName) {
+        this(securityManager, null, createSessions, isPassive, realmName);
+    }
+
+    public BasicTokenAuthenticationHandler(SecurityManager securityManager, SignedTokens signedTokens, boolean createSessions, boolean isPassive, String realmName) {
         super(securityManager);
 
+        this.signedTokens = signedTokens;
         this.createSessions = createSessions;
         this.isPassive = isPassive;
         this.challenge = "Basic realm=\"" + realmName + "\"";
@@ -72,9 +79,15 @@ public class BasicTokenAuthenticationHandler extends StandardCredentialsHandler
 
             // TOKEN AUTH
             String packet = authorization.substring("token".length()).trim();
-            TokenCredentials tokenCredentials = new TokenCredentials(packet);
 
-            Account account = securityManager.authenticate(tokenCredentials);
+            Account account;
+            if (signedTokens != null && signedTokens.isSignedToken(packet)) {
+                // verify the signature locally, the realms are not consulted
+                account = signedTokens.verify(packet);
+            } else {
+                TokenCredentials tokenCredentials = new TokenCredentials(packet);
+                account = securityManager.authenticate(tokenCredentials, context.getRequest().getClientIp());
+            }
             if (setupContext(context, account)) {
                 // continue the chain
                 context.next();
@@ -91,7 +104,7 @@ public class BasicTokenAuthenticationHandler extends StandardCredentialsHandler
             String username = values[0];
             String password = values[1];
 
-            Account account = this.authenticate(username, password);
+            Account account = this.authenticate(context, username, password);
             if (setupContext(context, account)) {
                 context.next();
             } else {
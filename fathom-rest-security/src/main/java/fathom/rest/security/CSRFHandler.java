@@ -16,13 +16,17 @@
 
 package fathom.rest.security;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import fathom.conf.Settings;
 import fathom.exception.StatusCodeException;
+import fathom.realm.Account;
 import fathom.rest.Context;
 import fathom.rest.controller.HttpMethod;
+import fathom.rest.route.StatelessCSRF;
 import fathom.utils.CryptoUtil;
 import fathom.utils.Util;
 import org.slf4j.Logger;
@@ -31,6 +35,7 @@ import ro.pippo.core.route.RouteHandler;
 
 import javax.servlet.http.HttpServletResponse;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Base class for generating and validating a CSRF token.
@@ -55,6 +60,23 @@ import java.util.Set;
  * Permit POST if the "Content-Type" is not a guarded type (see above).
  * Permit POST if the "Csrf-Token" header is "nocheck".
  * Permit POST if the "_csrf_token" query parameter or form field matches the session csrf token.
+ * <p>
+ * Stateless mode:
+ * <p>
+ * In stateless mode the csrf token is not stored in the session.  Reads set a random "__Host-"
+ * nonce cookie and bind a token which is the issue time and an HMAC of the nonce, the issue time,
+ * and the name of the authenticated account.  A POST is permitted if the token is not older than
+ * the ttl and its HMAC matches the nonce cookie and the account of the request.  The nonce cookie
+ * is always Secure so the stateless mode requires https.  The handlers which authenticate the
+ * request must run before this handler.  See {@link StatelessCSRF}.
+ * All nodes of a cluster must share the same secret key.
+ * <p>
+ * The handler is configured by these settings when it is created by Guice:
+ * <ul>
+ * <li><i>csrf.secretKey</i> - the HMAC secret key, a random key is generated by default</li>
+ * <li><i>csrf.stateless</i> - true to enable the stateless mode, default is false</li>
+ * <li><i>csrf.ttl</i> - the lifetime of a stateless csrf token, default is 1 hour</li>
+ * </ul>
  *
  * @author James Moger
  */
@@ -67,6 +89,8 @@ public class CSRFHandler implements RouteHandler<Context> {
 
     public static final String BINDING = "csrfToken";
 
+    public static final String COOKIE = StatelessCSRF.COOKIE_PREFIX + "csrf_nonce";
+
     private static final Logger log = LoggerFactory.getLogger(CSRFHandler.class);
 
     private final Set<String> guardedTypes = Sets.newHashSet("application/x-www-form-urlencoded", "multipart/form-data", "text/plain");
@@ -75,18 +99,42 @@ public class CSRFHandler implements RouteHandler<Context> {
 
     private final String algorithm;
 
-    @Inject
+    private final StatelessCSRF statelessCsrf;
+
     public CSRFHandler() {
         this(CryptoUtil.generateSecretKey());
     }
 
+    @Inject
+    public CSRFHandler(Settings settings) {
+        this(Optional.fromNullable(Strings.emptyToNull(settings.getString("csrf.secretKey", null))).or(CryptoUtil.generateSecretKey()),
+                CryptoUtil.HMAC_SHA256,
+                settings.getBoolean("csrf.stateless", false),
+                settings.getDuration("csrf.ttl", TimeUnit.MILLISECONDS, TimeUnit.HOURS.toMillis(1)),
+                TimeUnit.MILLISECONDS);
+    }
+
     public CSRFHandler(String secretKey) {
         this(secretKey, CryptoUtil.HMAC_SHA256);
     }
 
     public CSRFHandler(String secretKey, String algorithm) {
+        this(secretKey, algorithm, false, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a CSRFHandler.
+     *
+     * @param secretKey
+     * @param algorithm
+     * @param stateless true if csrf tokens are not stored in the session
+     * @param ttl       the lifetime of a stateless csrf token
+     * @param timeUnit
+     */
+    public CSRFHandler(String secretKey, String algorithm, boolean stateless, long ttl, TimeUnit timeUnit) {
         this.secretKey = secretKey;
         this.algorithm = algorithm;
+        this.statelessCsrf = stateless ? new StatelessCSRF(COOKIE, secretKey, algorithm, ttl, timeUnit) : null;
     }
 
     public String getSecretKey() {
@@ -97,6 +145,14 @@ public class CSRFHandler implements RouteHandler<Context> {
         return algorithm;
     }
 
+    public boolean isStateless() {
+        return statelessCsrf != null;
+    }
+
+    protected StatelessCSRF getStatelessCsrf() {
+        return statelessCsrf;
+    }
+
     protected String getSessionCsrfToken(Context context) {
         return context.getSession(PARAMETER);
     }
@@ -138,15 +194,28 @@ public class CSRFHandler implements RouteHandler<Context> {
                 throw new StatusCodeException(HttpServletResponse.SC_FORBIDDEN, "Illegal request, no '{}'!", PARAMETER);
             }
 
-            // Validate the request token against the session token
-            String sessionToken = getSessionCsrfToken(context);
-            if (!requestToken.equals(sessionToken)) {
-                throw new StatusCodeException(HttpServletResponse.SC_FORBIDDEN, "Illegal request, invalid '{}'!", PARAMETER);
+            if (statelessCsrf != null) {
+                // Validate the request token against the nonce cookie and the account
+                if (!statelessCsrf.isValidToken(context, requestToken, getAccountName(context))) {
+                    throw new StatusCodeException(HttpServletResponse.SC_FORBIDDEN, "Illegal request, invalid '{}'!", PARAMETER);
+                }
+            } else {
+                // Validate the request token against the session token
+                String sessionToken = getSessionCsrfToken(context);
+                if (!CryptoUtil.constantTimeEquals(requestToken, sessionToken)) {
+                    throw new StatusCodeException(HttpServletResponse.SC_FORBIDDEN, "Illegal request, invalid '{}'!", PARAMETER);
+                }
             }
 
             log.debug("Validated '{}' for {} '{}'", PARAMETER, context.getRequestMethod(), context.getRequestUri());
 
-            context.setLocal(BINDING, sessionToken);
+            context.setLocal(BINDING, requestToken);
+
+        } else if (HttpMethod.GET.equals(httpSerlvetRequestMethod) && statelessCsrf != null) {
+
+            // Bind a token to the nonce cookie and the account, the session is not touched
+            String token = statelessCsrf.getToken(context, getAccountName(context));
+            context.setLocal(BINDING, token);
 
         } else if (HttpMethod.GET.equals(httpSerlvetRequestMethod)) {
 
@@ -165,5 +234,19 @@ public class CSRFHandler implements RouteHandler<Context> {
         context.next();
     }
 
-}
+    /**
+     * Returns the name of the authenticated account of the request which is bound to a
+     * stateless csrf token.
+     *
+     * @param context
+     * @return the account name or null if the request is not authenticated
+     */
+    protected String getAccountName(Context context) {
+        Account account = context.getLocal(AuthConstants.ACCOUNT_ATTRIBUTE);
+        if (account == null) {
+            account = context.getSession(AuthConstants.ACCOUNT_ATTRIBUTE);
+        }
+        return account == null || !account.isAuthenticated() ? null : account.getUsername();
+    }
 
+}
@@ -72,7 +72,7 @@ public final class FormAuthenticationHandler extends StandardCredentialsHandler
             String password = context.getParameter(AuthConstants.PASSWORD_PARAMETER).toString();
             boolean rememberMe = context.getParameter(AuthConstants.REMEMBER_ME_PARAMETER).toBoolean(false);
 
-            Account account = authenticate(username, password);
+            Account account = authenticate(context, username, password);
 
             if (account != null) {
                 // Recreate the session to prevent session fixation
@@ -4,6 +4,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import fathom.conf.Settings;
 import fathom.security.SecurityManager;
+import fathom.security.SignedTokens;
 
 /**
  * @author James Moger
@@ -13,11 +14,15 @@ public class PassiveBasicTokenAuthenticationHandler extends BasicTokenAuthentica
 
 
     @Inject
-    public PassiveBasicTokenAuthenticationHandler(SecurityManager securityManager, Settings settings) {
-        this(securityManager, false, settings.getApplicationName());
+    public PassiveBasicTokenAuthenticationHandler(SecurityManager securityManager, SignedTokens signedTokens, Settings settings) {
+        this(securityManager, signedTokens, false, settings.getApplicationName());
     }
 
     public PassiveBasicTokenAuthenticationHandler(SecurityManager securityManager, boolean createSessions, String realmName) {
-        super(securityManager, createSessions, true, realmName);
+        this(securityManager, null, createSessions, realmName);
+    }
+
+    public PassiveBasicTokenAuthenticationHandler(SecurityManager securityManager, SignedTokens signedTokens, boolean createSessions, String realmName) {
+        super(securityManager, signedTokens, createSessions, true, realmName);
     }
 }
@@ -62,6 +62,20 @@ public abstract class StandardCredentialsHandler {
         return account;
     }
 
+    /**
+     * Authenticate the supplied credentials of the client of the Context.
+     *
+     * @param context
+     * @param username
+     * @param password
+     * @return an account if the authentication is successful
+     */
+    protected Account authenticate(Context context, String username, String password) {
+        StandardCredentials authenticationToken = new StandardCredentials(username, password);
+        Account account = securityManager.authenticate(authenticationToken, context.getRequest().getClientIp());
+        return account;
+    }
+
     protected boolean setupContext(Context context, Account account) {
         if (account != null) {
             // store the Account in the local Context
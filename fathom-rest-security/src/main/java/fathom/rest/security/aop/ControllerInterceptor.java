@@ -25,15 +25,11 @@ import fathom.realm.Account;
 import fathom.rest.Context;
 import fathom.rest.security.AuthConstants;
 import fathom.security.SecurityManager;
-import fathom.utils.ClassUtil;
 import org.aopalliance.intercept.MethodInvocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ro.pippo.core.route.RouteDispatcher;
 
-import java.lang.reflect.Method;
-import java.util.Collection;
-
 /**
  * ControllerInterceptor enforces authentication and authorization requirements on controllers.
  *
@@ -53,25 +49,25 @@ public class ControllerInterceptor extends SecurityInterceptor {
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
 
-        Method method = invocation.getMethod();
-
-        Account account = checkRequireToken(method);
-        checkRequirePermissions(account, method);
-        checkRequireRoles(account, method);
-        checkRequireAdministrator(account, method);
-        checkRequireAuthenticated(account, method);
-        checkRequireGuest(account, method);
+        SecurityPolicy policy = SecurityPolicy.of(invocation.getMethod());
+        if (!policy.isEmpty()) {
+            Account account = checkRequireToken(policy);
+            checkRequirePermissions(account, policy);
+            checkRequireRoles(account, policy);
+            checkRequireAdministrator(account, policy);
+            checkRequireAuthenticated(account, policy);
+            checkRequireGuest(account, policy);
+        }
 
         return invocation.proceed();
     }
 
-    protected Account checkRequireToken(Method method) {
+    protected Account checkRequireToken(SecurityPolicy policy) {
         Account account = getAccount();
 
-        RequireToken requireToken = ClassUtil.getAnnotation(method, RequireToken.class);
-        if (requireToken != null) {
+        if (policy.isRequireToken()) {
 
-            String tokenName = requireToken.value();
+            String tokenName = policy.getTokenName();
 
             Context context = RouteDispatcher.getRouteContext();
             // extract the named token from a header or a query parameter
@@ -85,7 +81,7 @@ public class ControllerInterceptor extends SecurityInterceptor {
             if (account.isGuest()) {
                 // authenticate by token
                 TokenCredentials credentials = new TokenCredentials(token);
-                account = securityManager.get().authenticate(credentials);
+                account = securityManager.get().authenticate(credentials, context.getRequest().getClientIp());
                 if (account == null) {
                     throw new AuthorizationException("Invalid '{}' value '{}'", tokenName, token);
                 }
@@ -100,37 +96,32 @@ public class ControllerInterceptor extends SecurityInterceptor {
         return account;
     }
 
-    protected void checkRequireRoles(Account account, Method method) {
-        Collection<String> roles = SecurityUtil.collectRoles(method);
-        if (!roles.isEmpty()) {
-            account.checkRoles(roles);
+    protected void checkRequireRoles(Account account, SecurityPolicy policy) {
+        if (!policy.getRoles().isEmpty()) {
+            account.checkRoles(policy.getRoles());
         }
     }
 
-    protected void checkRequirePermissions(Account account, Method method) {
-        Collection<String> permissions = SecurityUtil.collectPermissions(method);
-        if (!permissions.isEmpty()) {
-            account.checkPermissions(permissions);
+    protected void checkRequirePermissions(Account account, SecurityPolicy policy) {
+        if (!policy.getPermissions().isEmpty()) {
+            account.checkPermissions(policy.getPermissions());
         }
     }
 
-    protected void checkRequireAdministrator(Account account, Method method) {
-        RequireAdministrator annotation = ClassUtil.getAnnotation(method, RequireAdministrator.class);
-        if (annotation != null) {
+    protected void checkRequireAdministrator(Account account, SecurityPolicy policy) {
+        if (policy.isRequireAdministrator()) {
             account.checkAdministrator();
         }
     }
 
-    protected void checkRequireAuthenticated(Account account, Method method) {
-        RequireAuthenticated annotation = ClassUtil.getAnnotation(method, RequireAuthenticated.class);
-        if (annotation != null) {
+    protected void checkRequireAuthenticated(Account account, SecurityPolicy policy) {
+        if (policy.isRequireAuthenticated()) {
             account.checkAuthenticated();
         }
     }
 
-    protected void checkRequireGuest(Account account, Method method) {
-        RequireGuest annotation = ClassUtil.getAnnotation(method, RequireGuest.class);
-        if (annotation != null) {
+    protected void checkRequireGuest(Account account, SecurityPolicy policy) {
+        if (policy.isRequireGuest()) {
             account.checkGuest();
         }
     }
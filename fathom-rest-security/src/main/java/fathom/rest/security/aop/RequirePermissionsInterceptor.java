@@ -28,7 +28,7 @@ public class RequirePermissionsInterceptor extends SecurityInterceptor {
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
 
-        Collection<String> permissions = SecurityUtil.collectPermissions(invocation.getMethod());
+        Collection<String> permissions = SecurityPolicy.of(invocation.getMethod()).getPermissions();
         Account account = getAccount();
         account.checkPermissions(permissions);
 
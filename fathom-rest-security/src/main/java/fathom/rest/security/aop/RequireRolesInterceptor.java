@@ -28,7 +28,7 @@ public class RequireRolesInterceptor extends SecurityInterceptor {
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
 
-        Collection<String> roles = SecurityUtil.collectRoles(invocation.getMethod());
+        Collection<String> roles = SecurityPolicy.of(invocation.getMethod()).getRoles();
         Account account = getAccount();
         account.checkRoles(roles);
 
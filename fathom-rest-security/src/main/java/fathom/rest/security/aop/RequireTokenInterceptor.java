@@ -25,7 +25,6 @@ import fathom.realm.Account;
 import fathom.rest.Context;
 import fathom.rest.security.AuthConstants;
 import fathom.security.SecurityManager;
-import fathom.utils.ClassUtil;
 import org.aopalliance.intercept.MethodInvocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,8 +47,7 @@ public class RequireTokenInterceptor extends SecurityInterceptor {
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
 
-        RequireToken requireToken = ClassUtil.getAnnotation(invocation.getMethod(), RequireToken.class);
-        String tokenName = requireToken.value();
+        String tokenName = SecurityPolicy.of(invocation.getMethod()).getTokenName();
 
         Context context = RouteDispatcher.getRouteContext();
         // extract the named token from a header or a query parameter
@@ -64,7 +62,7 @@ public class RequireTokenInterceptor extends SecurityInterceptor {
         if (account.isGuest()) {
             // authenticate by token
             TokenCredentials credentials = new TokenCredentials(token);
-            account = securityManager.get().authenticate(credentials);
+            account = securityManager.get().authenticate(credentials, context.getRequest().getClientIp());
             if (account == null) {
                 throw new AuthorizationException("Invalid '{}' value '{}'", tokenName, token);
             }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.security.aop;
+
+import com.google.common.collect.ImmutableSet;
+import fathom.utils.ClassUtil;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * SecurityPolicy is the immutable set of authentication and authorization requirements
+ * declared by the annotations of a method and its class.
+ * <p>
+ * Policies are resolved once per method and are cached per declaring class in a
+ * ClassValue so they do not keep reloaded classes alive.
+ *
+ * @author James Moger
+ */
+public final class SecurityPolicy {
+
+    private static final ClassValue<ConcurrentMap<Method, SecurityPolicy>> POLICIES = new ClassValue<ConcurrentMap<Method, SecurityPolicy>>() {
+        @Override
+        protected ConcurrentMap<Method, SecurityPolicy> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final String tokenName;
+
+    private final Set<String> roles;
+
+    private final Set<String> permissions;
+
+    private final boolean requireAdministrator;
+
+    private final boolean requireAuthenticated;
+
+    private final boolean requireGuest;
+
+    private final boolean isEmpty;
+
+    private SecurityPolicy(Method method) {
+        RequireToken requireToken = ClassUtil.getAnnotation(method, RequireToken.class);
+        this.tokenName = requireToken == null ? null : requireToken.value();
+        this.roles = ImmutableSet.copyOf(SecurityUtil.collectRoles(method));
+        this.permissions = ImmutableSet.copyOf(SecurityUtil.collectPermissions(method));
+        this.requireAdministrator = ClassUtil.getAnnotation(method, RequireAdministrator.class) != null;
+        this.requireAuthenticated = ClassUtil.getAnnotation(method, RequireAuthenticated.class) != null;
+        this.requireGuest = ClassUtil.getAnnotation(method, RequireGuest.class) != null;
+        this.isEmpty = tokenName == null && roles.isEmpty() && permissions.isEmpty()
+                && !requireAdministrator && !requireAuthenticated && !requireGuest;
+    }
+
+    /**
+     * Returns the SecurityPolicy of the method.
+     *
+     * @param method
+     * @return the cached policy of the method
+     */
+    public static SecurityPolicy of(Method method) {
+        ConcurrentMap<Method, SecurityPolicy> policies = POLICIES.get(method.getDeclaringClass());
+        SecurityPolicy policy = policies.get(method);
+        if (policy == null) {
+            policy = policies.computeIfAbsent(method, SecurityPolicy::new);
+        }
+        return policy;
+    }
+
+    /**
+     * Returns the name of the required token header or parameter.
+     *
+     * @return the token name or null if no token is required
+     */
+    public String getTokenName() {
+        return tokenName;
+    }
+
+    public boolean isRequireToken() {
+        return tokenName != null;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    public Set<String> getPermissions() {
+        return permissions;
+    }
+
+    public boolean isRequireAdministrator() {
+        return requireAdministrator;
+    }
+
+    public boolean isRequireAuthenticated() {
+        return requireAuthenticated;
+    }
+
+    public boolean isRequireGuest() {
+        return requireGuest;
+    }
+
+    /**
+     * Returns true if the method has no security requirements.
+     *
+     * @return true if there is nothing to enforce
+     */
+    public boolean isEmpty() {
+        return isEmpty;
+    }
+
+}
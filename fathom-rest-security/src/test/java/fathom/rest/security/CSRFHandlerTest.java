@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.security;
+
+import fathom.authc.StandardCredentials;
+import fathom.exception.StatusCodeException;
+import fathom.realm.Account;
+import fathom.rest.Context;
+import fathom.utils.CryptoUtil;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import ro.pippo.core.Application;
+import ro.pippo.core.ParameterValue;
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the stateless mode of the CSRFHandler.
+ *
+ * @author James Moger
+ */
+public class CSRFHandlerTest extends Assert {
+
+    CSRFHandler handler;
+
+    Application application;
+
+    Context context;
+
+    Response response;
+
+    HttpServletRequest httpServletRequest;
+
+    @Before
+    public void setUp() {
+        handler = new CSRFHandler(CryptoUtil.generateSecretKey(), CryptoUtil.HMAC_SHA256, true, 1, TimeUnit.HOURS);
+        application = new Application();
+    }
+
+    @Test
+    public void testAnonymousGet() {
+        request("GET", null);
+
+        handler.handle(context);
+
+        Cookie cookie = response.getCookie(CSRFHandler.COOKIE);
+        assertNotNull(cookie);
+        assertTrue(cookie.getName().startsWith("__Host-"));
+        assertTrue(cookie.isHttpOnly());
+        assertTrue(cookie.getSecure());
+        assertEquals("/", cookie.getPath());
+        assertNull(cookie.getDomain());
+        verify(context).setLocal(anyString(), any());
+        verify(context).next();
+        verifyNoSession();
+    }
+
+    @Test
+    public void testPost() {
+        String nonce = "0123456789abcdef";
+        String token = getToken(nonce);
+
+        post(nonce, token);
+        handler.handle(context);
+
+        verify(context).setLocal(CSRFHandler.BINDING, token);
+        verify(context).next();
+        verifyNoSession();
+    }
+
+    @Test
+    public void testAuthenticatedPost() {
+        String nonce = "0123456789abcdef";
+        Account alice = account("alice");
+        String token = getToken(nonce, alice);
+
+        post(nonce, token, alice);
+        handler.handle(context);
+
+        verify(context).setLocal(CSRFHandler.BINDING, token);
+        verify(context).next();
+    }
+
+    @Test(expected = StatusCodeException.class)
+    public void testPostOtherAccount() {
+        String nonce = "0123456789abcdef";
+        String token = getToken(nonce, account("alice"));
+        post(nonce, token, account("mallory"));
+        handler.handle(context);
+    }
+
+    @Test(expected = StatusCodeException.class)
+    public void testPostAnonymousTokenAsAccount() {
+        String nonce = "0123456789abcdef";
+        String token = getToken(nonce);
+        post(nonce, token, account("alice"));
+        handler.handle(context);
+    }
+
+    @Test(expected = StatusCodeException.class)
+    public void testPostOtherNonce() {
+        String token = getToken("0123456789abcdef");
+        post("fedcba9876543210", token);
+        handler.handle(context);
+    }
+
+    @Test(expected = StatusCodeException.class)
+    public void testPostWithoutNonce() {
+        String token = getToken("0123456789abcdef");
+        post(null, token);
+        handler.handle(context);
+    }
+
+    @Test(expected = StatusCodeException.class)
+    public void testPostExpiredToken() {
+        String nonce = "0123456789abcdef";
+        String token = handler.getStatelessCsrf().getToken(nonce, null, System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+        post(nonce, token);
+        handler.handle(context);
+    }
+
+    @Test(expected = StatusCodeException.class)
+    public void testPostForgedToken() {
+        String nonce = "0123456789abcdef";
+        String token = getToken(nonce);
+        post(nonce, token.substring(0, token.length() - 1) + (token.endsWith("0") ? "1" : "0"));
+        handler.handle(context);
+    }
+
+    private Account account(String username) {
+        return new Account(null, new StandardCredentials(username, null));
+    }
+
+    private String getToken(String nonce) {
+        return getToken(nonce, null);
+    }
+
+    private String getToken(String nonce, Account account) {
+        request("GET", nonce, account);
+
+        handler.handle(context);
+
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        verify(context).setLocal(anyString(), token.capture());
+        assertNull("The nonce cookie was replaced", response.getCookie(CSRFHandler.COOKIE));
+        return token.getValue();
+    }
+
+    private void post(String nonce, String token) {
+        post(nonce, token, null);
+    }
+
+    private void post(String nonce, String token, Account account) {
+        request("POST", nonce, account);
+        when(httpServletRequest.getHeader("Content-Type")).thenReturn("application/x-www-form-urlencoded; charset=UTF-8");
+        when(context.getParameter(CSRFHandler.PARAMETER)).thenReturn(new ParameterValue(token));
+    }
+
+    private void request(String method, String nonce) {
+        request(method, nonce, null);
+    }
+
+    private void request(String method, String nonce, Account account) {
+        httpServletRequest = mock(HttpServletRequest.class);
+        when(httpServletRequest.getMethod()).thenReturn(method);
+        when(httpServletRequest.getContextPath()).thenReturn("");
+        when(httpServletRequest.getParameterNames()).thenReturn(Collections.emptyEnumeration());
+        if (nonce != null) {
+            when(httpServletRequest.getCookies()).thenReturn(new Cookie[]{new Cookie(CSRFHandler.COOKIE, nonce)});
+        }
+
+        Request request = new Request(httpServletRequest, application);
+        response = new Response(mock(HttpServletResponse.class), application);
+        context = mock(Context.class);
+        when(context.getRequest()).thenReturn(request);
+        when(context.getResponse()).thenReturn(response);
+        when(context.getLocal(AuthConstants.ACCOUNT_ATTRIBUTE)).thenReturn(account);
+    }
+
+    private void verifyNoSession() {
+        verify(context, never()).getSession();
+        verify(context, never()).setSession(anyString(), any());
+        verify(httpServletRequest, never()).getSession();
+        verify(httpServletRequest, never()).getSession(anyBoolean());
+    }
+
+}
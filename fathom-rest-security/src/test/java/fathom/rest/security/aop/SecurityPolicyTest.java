@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.security.aop;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+/**
+ * Test the resolution and caching of SecurityPolicies.
+ *
+ * @author James Moger
+ */
+public class SecurityPolicyTest extends Assert {
+
+    @RequireToken("class-token")
+    @RequireRole("user")
+    @RequirePermission("read")
+    static class SecuredController {
+
+        public void inherited() {
+        }
+
+        @RequireToken("method-token")
+        @RequireRole("admin")
+        @RequirePermission("write")
+        @RequireAuthenticated
+        public void overridden() {
+        }
+
+    }
+
+    static class OpenController {
+
+        public void open() {
+        }
+
+        @RequireGuest
+        public void guest() {
+        }
+
+    }
+
+    static Method method(Class<?> type, String name) throws NoSuchMethodException {
+        return type.getMethod(name);
+    }
+
+    @Test
+    public void testCached() throws Exception {
+        Method method = method(SecuredController.class, "overridden");
+        SecurityPolicy policy = SecurityPolicy.of(method);
+        assertSame(policy, SecurityPolicy.of(method));
+        assertSame(policy, SecurityPolicy.of(method(SecuredController.class, "overridden")));
+        assertNotSame(policy, SecurityPolicy.of(method(SecuredController.class, "inherited")));
+    }
+
+    @Test
+    public void testClassAnnotations() throws Exception {
+        SecurityPolicy policy = SecurityPolicy.of(method(SecuredController.class, "inherited"));
+        assertFalse(policy.isEmpty());
+        assertTrue(policy.isRequireToken());
+        assertEquals("class-token", policy.getTokenName());
+        assertEquals(ImmutableSet.of("user"), policy.getRoles());
+        assertEquals(ImmutableSet.of("read"), policy.getPermissions());
+        assertFalse(policy.isRequireAuthenticated());
+        assertFalse(policy.isRequireAdministrator());
+        assertFalse(policy.isRequireGuest());
+    }
+
+    @Test
+    public void testMethodAnnotationsTakePrecedence() throws Exception {
+        SecurityPolicy policy = SecurityPolicy.of(method(SecuredController.class, "overridden"));
+        assertEquals("method-token", policy.getTokenName());
+        assertTrue(policy.isRequireAuthenticated());
+        assertFalse(policy.isRequireGuest());
+    }
+
+    @Test
+    public void testRolesAndPermissionsAccumulate() throws Exception {
+        SecurityPolicy policy = SecurityPolicy.of(method(SecuredController.class, "overridden"));
+        assertEquals(ImmutableSet.of("admin", "user"), policy.getRoles());
+        assertEquals(ImmutableSet.of("write", "read"), policy.getPermissions());
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        SecurityPolicy open = SecurityPolicy.of(method(OpenController.class, "open"));
+        assertTrue(open.isEmpty());
+        assertFalse(open.isRequireToken());
+        assertNull(open.getTokenName());
+        assertTrue(open.getRoles().isEmpty());
+        assertTrue(open.getPermissions().isEmpty());
+
+        SecurityPolicy guest = SecurityPolicy.of(method(OpenController.class, "guest"));
+        assertFalse(guest.isEmpty());
+        assertTrue(guest.isRequireGuest());
+    }
+
+}
@@ -21,13 +21,17 @@ import com.google.common.collect.Sets;
 import fathom.exception.StatusCodeException;
 import fathom.rest.Context;
 import fathom.rest.controller.HttpMethod;
+import fathom.rest.route.StatelessCSRF;
 import fathom.utils.CryptoUtil;
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.subject.Subject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ro.pippo.core.route.RouteHandler;
 
 import javax.servlet.http.HttpServletResponse;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Base class for generating and validating a CSRF token.
@@ -52,6 +56,16 @@ import java.util.Set;
  * Permit POST if the "Content-Type" is not a guarded type (see above).
  * Permit POST if the "Csrf-Token" header is "nocheck".
  * Permit POST if the "csrfToken" query parameter or form parameter matches the session csrf token.
+ * <p>
+ * Stateless mode:
+ * <p>
+ * In stateless mode the csrf token is not stored in the session.  Reads set a random "__Host-"
+ * nonce cookie and bind a token which is the issue time and an HMAC of the nonce, the issue time,
+ * and the name of the authenticated account.  A POST is permitted if the token is not older than
+ * the ttl and its HMAC matches the nonce cookie and the account of the request.  The nonce cookie
+ * is always Secure so the stateless mode requires https.  The handlers which authenticate the
+ * request must run before this handler.  See {@link StatelessCSRF}.
+ * All nodes of a cluster must share the same secret key.
  *
  * @author James Moger
  */
@@ -59,6 +73,8 @@ public class CSRFHandler implements RouteHandler<Context> {
 
     public static final String TOKEN = "csrfToken";
 
+    public static final String COOKIE = StatelessCSRF.COOKIE_PREFIX + "csrfNonce";
+
     private static final Logger log = LoggerFactory.getLogger(CSRFHandler.class);
 
     private final Set<String> guardedTypes = Sets.newHashSet("application/x-www-form-urlencoded", "multipart/form-data", "text/plain");
@@ -67,6 +83,8 @@ public class CSRFHandler implements RouteHandler<Context> {
 
     private final String algorithm;
 
+    private final StatelessCSRF statelessCsrf;
+
     public CSRFHandler() {
         this(CryptoUtil.generateSecretKey());
     }
@@ -76,8 +94,22 @@ public class CSRFHandler implements RouteHandler<Context> {
     }
 
     public CSRFHandler(String secretKey, String algorithm) {
+        this(secretKey, algorithm, false, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a CSRFHandler.
+     *
+     * @param secretKey
+     * @param algorithm
+     * @param stateless true if csrf tokens are not stored in the session
+     * @param ttl       the lifetime of a stateless csrf token
+     * @param timeUnit
+     */
+    public CSRFHandler(String secretKey, String algorithm, boolean stateless, long ttl, TimeUnit timeUnit) {
         this.secretKey = secretKey;
         this.algorithm = algorithm;
+        this.statelessCsrf = stateless ? new StatelessCSRF(COOKIE, secretKey, algorithm, ttl, timeUnit) : null;
     }
 
     public String getSecretKey() {
@@ -88,6 +120,14 @@ public class CSRFHandler implements RouteHandler<Context> {
         return algorithm;
     }
 
+    public boolean isStateless() {
+        return statelessCsrf != null;
+    }
+
+    protected StatelessCSRF getStatelessCsrf() {
+        return statelessCsrf;
+    }
+
     protected String getSessionCsrfToken(Context context) {
         return context.getSession(TOKEN);
     }
@@ -128,14 +168,27 @@ public class CSRFHandler implements RouteHandler<Context> {
                 throw new StatusCodeException(HttpServletResponse.SC_FORBIDDEN, "Illegal request, no '{}'!", TOKEN);
             }
 
-            // Validate the request token against the session token
-            String sessionToken = getSessionCsrfToken(context);
-            if (!requestToken.equals(sessionToken)) {
-                throw new StatusCodeException(HttpServletResponse.SC_FORBIDDEN, "Illegal request, invalid '{}'!", TOKEN);
+            if (statelessCsrf != null) {
+                // Validate the request token against the nonce cookie and the account
+                if (!statelessCsrf.isValidToken(context, requestToken, getAccountName(context))) {
+                    throw new StatusCodeException(HttpServletResponse.SC_FORBIDDEN, "Illegal request, invalid '{}'!", TOKEN);
+                }
+            } else {
+                // Validate the request token against the session token
+                String sessionToken = getSessionCsrfToken(context);
+                if (!CryptoUtil.constantTimeEquals(requestToken, sessionToken)) {
+                    throw new StatusCodeException(HttpServletResponse.SC_FORBIDDEN, "Illegal request, invalid '{}'!", TOKEN);
+                }
             }
 
             log.debug("Validated '{}' for {} '{}'", TOKEN, context.getRequestMethod(), context.getRequestUri());
 
+        } else if (HttpMethod.GET.equals(context.getRequestMethod()) && statelessCsrf != null) {
+
+            // Bind a token to the nonce cookie and the account, the session is not touched
+            String token = statelessCsrf.getToken(context, getAccountName(context));
+            context.setLocal(TOKEN, token);
+
         } else if (HttpMethod.GET.equals(context.getRequestMethod())) {
 
             // Generate a CSRF session token on reads
@@ -153,5 +206,17 @@ public class CSRFHandler implements RouteHandler<Context> {
         context.next();
     }
 
-}
+    /**
+     * Returns the name of the authenticated account of the request which is bound to a
+     * stateless csrf token.
+     *
+     * @param context
+     * @return the account name or null if the request is not authenticated
+     */
+    protected String getAccountName(Context context) {
+        Subject subject = SecurityUtils.getSubject();
+        Object principal = subject.getPrincipal();
+        return principal == null || !subject.isAuthenticated() ? null : principal.toString();
+    }
 
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import ro.pippo.core.util.StringUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Parses Content-Type and Accept header values.
+ * <p>
+ * Each distinct header value is parsed once and the result is kept in a bounded
+ * cache since the same few header values are sent over and over by clients.
+ *
+ * @author James Moger
+ */
+public class ContentTypeParser {
+
+    private static final int MAX_CACHED_VALUES = 1024;
+
+    private static final Cache<String, Set<String>> cache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_VALUES)
+            .build();
+
+    /**
+     * Returns the content-types of a complex content-type or accept header value
+     * with the quality scores removed.
+     * <p/>
+     * <pre>
+     * text/html,application/xhtml+xml,application/xml;q=0.9,image/webp
+     * </pre>
+     *
+     * @param value
+     * @return the unmodifiable, ordered set of content-types
+     */
+    public static Set<String> parse(String value) {
+        if (StringUtils.isNullOrEmpty(value)) {
+            return Collections.emptySet();
+        }
+
+        Set<String> types = cache.getIfPresent(value);
+        if (types == null) {
+            types = parseValue(value);
+            cache.put(value, types);
+        }
+        return types;
+    }
+
+    /**
+     * Returns the combined content-types of two header values.
+     *
+     * @param value1
+     * @param value2
+     * @return the unmodifiable, ordered set of content-types
+     */
+    public static Set<String> parse(String value1, String value2) {
+        Set<String> types1 = parse(value1);
+        if (value2 == null || value2.equals(value1)) {
+            return types1;
+        }
+
+        Set<String> types2 = parse(value2);
+        if (types1.isEmpty() || types1.containsAll(types2)) {
+            return types1.isEmpty() ? types2 : types1;
+        }
+
+        Set<String> types = new LinkedHashSet<>(types1);
+        types.addAll(types2);
+        return Collections.unmodifiableSet(types);
+    }
+
+    private static Set<String> parseValue(String value) {
+        Set<String> set = new LinkedHashSet<>();
+        String[] types = value.split(",");
+        for (String type : types) {
+            if (type.contains(";")) {
+                // drop ;q=0.8 quality scores
+                type = type.substring(0, type.indexOf(';'));
+            }
+
+            set.add(type.trim().toLowerCase());
+        }
+
+        return Collections.unmodifiableSet(set);
+    }
+
+}
@@ -23,10 +23,7 @@ import ro.pippo.core.Response;
 import ro.pippo.core.route.DefaultRouteContext;
 import ro.pippo.core.route.RouteHandler;
 import ro.pippo.core.route.RouteMatch;
-import ro.pippo.core.util.StringUtils;
 
-import java.util.Collections;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -43,18 +40,24 @@ public class Context extends DefaultRouteContext {
         this(context.getApplication(), context.getRequest(), context.getResponse(), routeMatches);
     }
 
+    /**
+     * Returns the content-types accepted by the Request.
+     *
+     * @return the unmodifiable, ordered set of accepted content-types
+     */
     public Set<String> getAcceptTypes() {
-        Set<String> types = new LinkedHashSet<>();
-        types.addAll(getContentTypes(getRequest().getAcceptType()));
-        types.addAll(getContentTypes(getRequest().getHttpServletRequest().getHeader(HttpConstants.Header.ACCEPT)));
-        return types;
+        return ContentTypeParser.parse(getRequest().getAcceptType(),
+                getRequest().getHttpServletRequest().getHeader(HttpConstants.Header.ACCEPT));
     }
 
+    /**
+     * Returns the content-types sent by the Request.
+     *
+     * @return the unmodifiable, ordered set of content-types
+     */
     public Set<String> getContentTypes() {
-        Set<String> types = new LinkedHashSet<>();
-        types.addAll(getContentTypes(getRequest().getContentType()));
-        types.addAll(getContentTypes(getRequest().getHttpServletRequest().getContentType()));
-        return types;
+        return ContentTypeParser.parse(getRequest().getContentType(),
+                getRequest().getHttpServletRequest().getContentType());
     }
 
     /**
@@ -69,22 +72,7 @@ public class Context extends DefaultRouteContext {
      * @return the sanitized set of content-types
      */
     protected Set<String> getContentTypes(String contentType) {
-        if (StringUtils.isNullOrEmpty(contentType)) {
-            return Collections.emptySet();
-        }
-
-        Set<String> set = new LinkedHashSet<>();
-        String[] types = contentType.split(",");
-        for (String type : types) {
-            if (type.contains(";")) {
-                // drop ;q=0.8 quality scores
-                type = type.substring(0, type.indexOf(';'));
-            }
-
-            set.add(type.trim().toLowerCase());
-        }
-
-        return set;
+        return ContentTypeParser.parse(contentType);
     }
 
     public <T> Context putLocal(String name, T t) {
@@ -21,6 +21,7 @@ import com.google.common.base.Strings;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import fathom.conf.Settings;
+import fathom.metrics.Metrics;
 import fathom.rest.controller.Controller;
 import fathom.rest.controller.ControllerHandler;
 import fathom.rest.controller.ControllerRegistrar;
@@ -87,6 +88,9 @@ public abstract class RoutesModule {
     @Inject
     private MetricRegistry metricRegistry;
 
+    @Inject
+    private Metrics metrics;
+
     private Set<String> resourcePaths;
 
     private List<RouteRegistration> routeRegistrations;
@@ -396,6 +400,8 @@ public abstract class RoutesModule {
             } else if (routeRegistration.isTimed()) {
                 log.debug("Wrapping {} '{}' handler with {}", routeRegistration.getRequestMethod(), routeRegistration.getUriPattern(),
                         TimedRouteHandler.class.getSimpleName());
+                // register the timer with the configured reservoir, the handler looks it up by name
+                metrics.timer(routeRegistration.getMetricName());
                 routeHandler = new TimedRouteHandler(routeRegistration.getMetricName(), routeRegistration.getRouteHandler(), metricRegistry);
             } else if (routeRegistration.isCounted()) {
                 log.debug("Wrapping {} '{}' handler with {}", routeRegistration.getRequestMethod(), routeRegistration.getUriPattern(),
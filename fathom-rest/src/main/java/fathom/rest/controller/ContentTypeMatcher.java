@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.controller;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Matches request content-types against a set of declared content-types.
+ * <p>
+ * The declared types are split once into an exact lookup table and the prefixes
+ * of fuzzy types like "application/*".
+ *
+ * @author James Moger
+ */
+public class ContentTypeMatcher {
+
+    private final boolean isEmpty;
+
+    private final boolean matchesAll;
+
+    private final Set<String> exactTypes;
+
+    private final String[] fuzzyPrefixes;
+
+    public ContentTypeMatcher(Collection<String> declaredTypes) {
+        this.isEmpty = declaredTypes.isEmpty();
+        this.matchesAll = declaredTypes.contains(Consumes.ALL);
+        this.exactTypes = new HashSet<>(declaredTypes);
+
+        List<String> prefixes = new ArrayList<>();
+        for (String declaredType : declaredTypes) {
+            int fuzz = declaredType.indexOf('*');
+            if (fuzz > -1) {
+                prefixes.add(declaredType.substring(0, fuzz));
+            }
+        }
+        this.fuzzyPrefixes = prefixes.toArray(new String[prefixes.size()]);
+    }
+
+    /**
+     * Returns true if no content-types were declared.
+     *
+     * @return true if there are no declared types
+     */
+    public boolean isEmpty() {
+        return isEmpty;
+    }
+
+    /**
+     * Returns true if the universal "*&#47;*" content-type was declared.
+     *
+     * @return true if all content-types match
+     */
+    public boolean matchesAll() {
+        return matchesAll;
+    }
+
+    /**
+     * Determines if the content-type matches a declared content-type, either
+     * explicitly or by a fuzzy declaration.
+     *
+     * @param contentType
+     * @return true if the content-type matches
+     */
+    public boolean matches(String contentType) {
+        if (exactTypes.contains(contentType)) {
+            return true;
+        }
+
+        for (String prefix : fuzzyPrefixes) {
+            if (contentType.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the first content-type which matches a declared content-type.
+     *
+     * @param contentTypes
+     * @return the matching content-type or null
+     */
+    public String findMatch(Collection<String> contentTypes) {
+        for (String contentType : contentTypes) {
+            if (matches(contentType)) {
+                return contentType;
+            }
+        }
+        return null;
+    }
+
+}
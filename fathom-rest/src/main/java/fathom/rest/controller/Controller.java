@@ -28,6 +28,8 @@ import ro.pippo.core.Response;
  */
 public class Controller {
 
+    private static final ThreadLocal<Context> CURRENT_CONTEXT = new ThreadLocal<>();
+
     private Context context;
 
     public final void setContext(Context context) {
@@ -35,15 +37,32 @@ public class Controller {
     }
 
     public final Context getContext() {
+        if (context == null) {
+            // stateless controllers share an instance, the Context is bound to the request thread
+            return CURRENT_CONTEXT.get();
+        }
         return context;
     }
 
+    /**
+     * Binds the Context of the current request thread for stateless controllers.
+     *
+     * @param context the Context or null to unbind
+     */
+    static void bindContext(Context context) {
+        if (context == null) {
+            CURRENT_CONTEXT.remove();
+        } else {
+            CURRENT_CONTEXT.set(context);
+        }
+    }
+
     public final Request getRequest() {
-        return context.getRequest();
+        return getContext().getRequest();
     }
 
     public final Response getResponse() {
-        return context.getResponse();
+        return getContext().getResponse();
     }
 
     public final void redirectTo(String path) {
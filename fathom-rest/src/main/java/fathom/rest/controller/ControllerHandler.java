@@ -19,12 +19,9 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.inject.Injector;
 import com.google.inject.Provider;
-import com.google.inject.Singleton;
 import fathom.exception.FatalException;
 import fathom.exception.FathomException;
 import fathom.rest.Context;
-import fathom.rest.controller.exceptions.RangeException;
-import fathom.rest.controller.exceptions.RequiredException;
 import fathom.rest.controller.extractors.ArgumentExtractor;
 import fathom.rest.controller.extractors.CollectionExtractor;
 import fathom.rest.controller.extractors.ConfigurableExtractor;
@@ -38,11 +35,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ro.pippo.core.ContentTypeEngines;
 import ro.pippo.core.FileItem;
-import ro.pippo.core.HttpConstants;
 import ro.pippo.core.Messages;
 import ro.pippo.core.route.Route;
 import ro.pippo.core.route.RouteHandler;
-import ro.pippo.core.route.RouteMatch;
 import ro.pippo.core.util.StringUtils;
 
 import java.io.File;
@@ -59,6 +54,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -79,25 +76,33 @@ public class ControllerHandler implements RouteHandler<Context> {
 
     protected final Class<? extends Controller> controllerClass;
     protected final Provider<? extends Controller> controllerProvider;
+    protected final boolean isStateless;
+    private final StatelessControllers statelessControllers;
+    private volatile Controller statelessController;
     protected final Method method;
     protected final Messages messages;
     protected final List<RouteHandler<Context>> routeInterceptors;
+    protected final ConcurrentMap<String, Route[]> interceptorRoutes;
     protected final List<String> declaredConsumes;
+    protected final ContentTypeMatcher consumesMatcher;
     protected final List<String> declaredProduces;
     protected final Collection<Return> declaredReturns;
     protected final Set<String> contentTypeSuffixes;
     protected final boolean isNoCache;
     protected ArgumentExtractor[] extractors;
     protected String[] patterns;
+    protected final InvocationPlan plan;
+    private final boolean isCustomValidation;
 
     public ControllerHandler(Injector injector, Class<? extends Controller> controllerClass, String methodName) {
-        if (controllerClass.isAnnotationPresent(Singleton.class)
-                || controllerClass.isAnnotationPresent(javax.inject.Singleton.class)) {
-            throw new FathomException("Controller '{}' may not be annotated as a Singleton!", controllerClass.getName());
+        this.isStateless = ControllerUtil.isStateless(controllerClass);
+        if (isStateless) {
+            ControllerUtil.validateStatelessController(controllerClass);
         }
 
         this.controllerClass = controllerClass;
         this.controllerProvider = injector.getProvider(controllerClass);
+        this.statelessControllers = isStateless ? injector.getInstance(StatelessControllers.class) : null;
         this.method = findMethod(controllerClass, methodName);
         this.messages = injector.getInstance(Messages.class);
 
@@ -109,11 +114,13 @@ public class ControllerHandler implements RouteHandler<Context> {
             RouteHandler<Context> handler = injector.getInstance(handlerClass);
             this.routeInterceptors.add(handler);
         }
+        this.interceptorRoutes = new ConcurrentHashMap<>();
 
         ContentTypeEngines engines = injector.getInstance(ContentTypeEngines.class);
 
         this.declaredConsumes = ControllerUtil.getConsumes(method);
         validateConsumes(engines.getContentTypes());
+        this.consumesMatcher = new ContentTypeMatcher(declaredConsumes);
 
         this.declaredProduces = ControllerUtil.getProduces(method);
         validateProduces(engines.getContentTypes());
@@ -124,6 +131,8 @@ public class ControllerHandler implements RouteHandler<Context> {
         this.contentTypeSuffixes = configureContentTypeSuffixes(engines);
         configureMethodArgs(injector);
 
+        this.plan = new InvocationPlan(method, extractors, declaredReturns);
+        this.isCustomValidation = isOverridden("validateParameterValue", Parameter.class, Object.class);
         this.isNoCache = ClassUtil.getAnnotation(method, NoCache.class) != null;
     }
 
@@ -147,6 +156,10 @@ public class ControllerHandler implements RouteHandler<Context> {
         return declaredReturns;
     }
 
+    public InvocationPlan getInvocationPlan() {
+        return plan;
+    }
+
     @Override
     public void handle(Context context) {
         try {
@@ -155,7 +168,7 @@ public class ControllerHandler implements RouteHandler<Context> {
                 return;
             }
 
-            log.trace("Processing '{}' RouteInterceptors", Util.toString(method));
+            log.trace("Processing '{}' RouteInterceptors", plan.getMethodName());
             int preInterceptStatus = context.getResponse().getStatus();
             processRouteInterceptors(context);
             int postInterceptStatus = context.getResponse().getStatus();
@@ -171,29 +184,26 @@ public class ControllerHandler implements RouteHandler<Context> {
                 return;
             }
 
-            log.trace("Preparing '{}' arguments from request", Util.toString(method));
+            log.trace("Preparing '{}' arguments from request", plan.getMethodName());
             Object[] args = prepareMethodArgs(context);
 
-            log.trace("Invoking '{}'", Util.toString(method));
-            Controller controller = controllerProvider.get();
-            controller.setContext(context);
+            log.trace("Invoking '{}'", plan.getMethodName());
+            Controller controller = getController(context);
 
             specifyCacheControls(context);
             specifyContentType(context);
 
-            Object result = method.invoke(controller, args);
+            Object result = plan.invoke(controller, args);
 
             if (context.getResponse().isCommitted()) {
-                log.debug("Response committed in {}", Util.toString(method));
+                log.debug("Response committed in {}", plan.getMethodName());
             } else {
-                if (Void.class == method.getReturnType()) {
+                if (plan.returnsVoid()) {
                     // nothing to return, prepare declared Return for Void type
-                    for (Return declaredReturn : declaredReturns) {
-                        if (Void.class == declaredReturn.onResult()) {
-                            context.status(declaredReturn.code());
-                            validateResponseHeaders(declaredReturn, context);
-                            break;
-                        }
+                    InvocationPlan.DeclaredReturn declaredReturn = plan.getVoidReturn();
+                    if (declaredReturn != null) {
+                        context.status(declaredReturn.getCode());
+                        validateResponseHeaders(declaredReturn.getDeclaration(), context);
                     }
                 } else {
                     // method declares a Return Type
@@ -201,33 +211,28 @@ public class ControllerHandler implements RouteHandler<Context> {
                         // Null Result, prepare a NOT FOUND (404)
                         context.getResponse().notFound();
 
-                        for (Return declaredReturn : declaredReturns) {
-                            if (declaredReturn.code() == HttpConstants.StatusCode.NOT_FOUND) {
-                                String message = declaredReturn.description();
+                        InvocationPlan.DeclaredReturn declaredReturn = plan.getNotFoundReturn();
+                        if (declaredReturn != null) {
+                            String message = declaredReturn.getDeclaration().description();
 
-                                if (!Strings.isNullOrEmpty(declaredReturn.descriptionKey())) {
-                                    // retrieve localized message, fallback to declared message
-                                    message = messages.getWithDefault(declaredReturn.descriptionKey(), message, context);
-                                }
-
-                                if (!Strings.isNullOrEmpty(message)) {
-                                    context.setLocal("message", message);
-                                }
+                            if (!Strings.isNullOrEmpty(declaredReturn.getDeclaration().descriptionKey())) {
+                                // retrieve localized message, fallback to declared message
+                                message = messages.getWithDefault(declaredReturn.getDeclaration().descriptionKey(), message, context);
+                            }
 
-                                validateResponseHeaders(declaredReturn, context);
-                                break;
+                            if (!Strings.isNullOrEmpty(message)) {
+                                context.setLocal("message", message);
                             }
+
+                            validateResponseHeaders(declaredReturn.getDeclaration(), context);
                         }
 
                     } else {
                         // send returned result
-                        Class<?> resultClass = result.getClass();
-                        for (Return declaredReturn : declaredReturns) {
-                            if (declaredReturn.onResult().isAssignableFrom(resultClass)) {
-                                context.status(declaredReturn.code());
-                                validateResponseHeaders(declaredReturn, context);
-                                break;
-                            }
+                        InvocationPlan.DeclaredReturn declaredReturn = plan.getResultReturn(result.getClass());
+                        if (declaredReturn != null) {
+                            context.status(declaredReturn.getCode());
+                            validateResponseHeaders(declaredReturn.getDeclaration(), context);
                         }
 
                         if (result instanceof CharSequence) {
@@ -262,7 +267,36 @@ public class ControllerHandler implements RouteHandler<Context> {
         } catch (Exception e) {
             // handles exceptions thrown within this handle() method
             handleDeclaredThrownException(e, method, context);
+        } finally {
+            if (isStateless) {
+                Controller.bindContext(null);
+            }
+        }
+    }
+
+    /**
+     * Returns the controller instance for the request.
+     * <p>
+     * The routes of a stateless controller share a single instance and the Context is bound to
+     * the request thread, otherwise a new controller is provisioned for each request.
+     *
+     * @param context
+     * @return the controller
+     */
+    protected Controller getController(Context context) {
+        if (isStateless) {
+            Controller controller = statelessController;
+            if (controller == null) {
+                controller = statelessControllers.get(controllerClass);
+                statelessController = controller;
+            }
+            Controller.bindContext(context);
+            return controller;
         }
+
+        Controller controller = controllerProvider.get();
+        controller.setContext(context);
+        return controller;
     }
 
     /**
@@ -529,138 +563,118 @@ public class ControllerHandler implements RouteHandler<Context> {
      * @return true if the route handles the request accept/content-type
      */
     protected boolean canConsume(Context context) {
-        Set<String> contentTypes = context.getContentTypes();
+        if (consumesMatcher.isEmpty()) {
+            return true;
+        }
 
-        if (!declaredConsumes.isEmpty()) {
-            if (declaredConsumes.contains(Consumes.ALL)) {
-                log.debug("{} will handle Request because it consumes '{}'", Util.toString(method), Consumes.ALL);
-                return true;
-            }
+        if (consumesMatcher.matchesAll()) {
+            log.debug("{} will handle Request because it consumes '{}'", plan.getMethodName(), Consumes.ALL);
+            return true;
+        }
 
-            Set<String> types = new LinkedHashSet<>(contentTypes);
-            if (types.isEmpty()) {
-                // Request does not specify a Content-Type so add Accept type(s)
-                types.addAll(context.getAcceptTypes());
+        Set<String> types = context.getContentTypes();
+        if (types.isEmpty()) {
+            // Request does not specify a Content-Type so use Accept type(s)
+            types = context.getAcceptTypes();
 
-                // Request can handle any type, so consume the Request
-                if (types.contains("*") || types.contains("*/*")) {
-                    log.debug("{} will handle Request because it consumes '{}'", Util.toString(method), "*/*");
-                    return true;
-                }
+            // Request can handle any type, so consume the Request
+            if (types.contains("*") || types.contains("*/*")) {
+                log.debug("{} will handle Request because it consumes '{}'", plan.getMethodName(), "*/*");
+                return true;
             }
+        }
 
-            for (String type : types) {
-                if (declaredConsumes.contains(type)) {
-                    // explicit content-type match
-                    log.debug("{} will handle Request because it consumes '{}'", Util.toString(method), type);
-                    return true;
-                } else {
-                    // look for a fuzzy content-type match
-                    for (String declaredType : declaredConsumes) {
-                        int fuzz = declaredType.indexOf('*');
-                        if (fuzz > -1) {
-                            String fuzzyType = declaredType.substring(0, fuzz);
-                            if (type.startsWith(fuzzyType)) {
-                                log.debug("{} will handle Request because it consumes '{}'", Util.toString(method), type);
-                                return true;
-                            }
-                        }
-                    }
-                }
-            }
+        String type = consumesMatcher.findMatch(types);
+        if (type != null) {
+            log.debug("{} will handle Request because it consumes '{}'", plan.getMethodName(), type);
+            return true;
+        }
 
-            if (types.isEmpty()) {
-                log.warn("{} can not handle Request because neither 'Accept' nor 'Content-Type' are set and Route @Consumes '{}'",
-                        Util.toString(method), declaredConsumes);
-            } else {
-                log.warn("{} can not handle Request for '{}' because Route @Consumes '{}'", Util.toString(method),
-                        types, declaredConsumes);
-            }
-            return false;
+        if (types.isEmpty()) {
+            log.warn("{} can not handle Request because neither 'Accept' nor 'Content-Type' are set and Route @Consumes '{}'",
+                    plan.getMethodName(), declaredConsumes);
+        } else {
+            log.warn("{} can not handle Request for '{}' because Route @Consumes '{}'", plan.getMethodName(),
+                    types, declaredConsumes);
         }
+        return false;
+    }
 
-        return true;
+    /**
+     * Builds the routes of the RouteInterceptor chain.  The routes carry the request method
+     * and the uri pattern of the matched route so that interceptors see the same route
+     * through {@link Context#getRoute()} as they would for a per-request chain.
+     *
+     * @param requestMethod
+     * @param uriPattern
+     * @return the interceptor routes
+     */
+    protected Route[] buildInterceptorRoutes(String requestMethod, String uriPattern) {
+        Route[] routes = new Route[routeInterceptors.size()];
+        for (int i = 0; i < routes.length; i++) {
+            RouteHandler<Context> interceptor = routeInterceptors.get(i);
+            Route route = new Route(requestMethod, uriPattern, interceptor);
+            route.setName(StringUtils.format("{}<{}>", RouteInterceptor.class.getSimpleName(),
+                    interceptor.getClass().getSimpleName()));
+            routes[i] = route;
+        }
+        return routes;
     }
 
     protected void processRouteInterceptors(Context context) {
         if (routeInterceptors.isEmpty()) {
             return;
         }
-        List<RouteMatch> chain = new ArrayList<>();
-        for (RouteHandler<Context> interceptor : routeInterceptors) {
-            Route route = new Route(context.getRequestMethod(), context.getRequestUri(), interceptor);
-            route.setName(StringUtils.format("{}<{}>", RouteInterceptor.class.getSimpleName(),
-                    route.getRouteHandler().getClass().getSimpleName()));
-            RouteMatch match = new RouteMatch(route, null);
-            chain.add(match);
-        }
-        Context subContext = new Context(context, chain);
-        subContext.next();
+        String requestMethod = context.getRequestMethod();
+        Route matchedRoute = context.getRoute();
+        String uriPattern = matchedRoute == null ? context.getRequestUri() : matchedRoute.getUriPattern();
+        Route[] routes = interceptorRoutes.computeIfAbsent(requestMethod + ' ' + uriPattern,
+                key -> buildInterceptorRoutes(requestMethod, uriPattern));
+        Context interceptorContext = new RouteInterceptorContext(context, routes);
+        interceptorContext.next();
     }
 
     protected Object[] prepareMethodArgs(Context context) {
-        Parameter[] parameters = method.getParameters();
-
-        if (parameters.length == 0) {
-            return new Object[]{};
-        }
-
-        Object[] args = new Object[parameters.length];
-        for (int i = 0; i < args.length; i++) {
-            Parameter parameter = parameters[i];
-            Class<?> type = parameter.getType();
-
-            ArgumentExtractor extractor = extractors[i];
-            Object value = extractor.extract(context);
-
-            validateParameterValue(parameter, value);
-
-            if (value == null || ClassUtil.isAssignable(value, type)) {
-                args[i] = value;
-            } else {
-                String parameterName = ControllerUtil.getParameterName(parameter);
-                throw new FathomException("Type for '{}' is actually '{}' but was specified as '{}'!",
-                        parameterName, value.getClass().getName(), type.getName());
-            }
+        if (isCustomValidation) {
+            return plan.prepareArgs(context, this::validateParameterValue);
         }
-
-        return args;
+        return plan.prepareArgs(context);
     }
 
+    /**
+     * Validates a parameter value.  The default implementation applies the declared
+     * {@link Required}, {@link Min}, {@link Max}, and {@link Range} rules.
+     *
+     * @param parameter
+     * @param value
+     */
     protected void validateParameterValue(Parameter parameter, Object value) {
-        if (value == null && parameter.isAnnotationPresent(Required.class)) {
-            throw new RequiredException("'{}' is a required parameter!", ControllerUtil.getParameterName(parameter));
-        }
-
-        if (value != null && value instanceof Number) {
-            Number number = (Number) value;
-
-            if (parameter.isAnnotationPresent(Min.class)) {
-                // validate required minimum value
-                Min min = parameter.getAnnotation(Min.class);
-                if (number.longValue() < min.value()) {
-                    throw new RangeException("'{}' must be >= {}", ControllerUtil.getParameterName(parameter), min.value());
-                }
-            }
+        plan.validateParameterValue(parameter, value);
+    }
 
-            if (parameter.isAnnotationPresent(Max.class)) {
-                // validate required maximum value
-                Max max = parameter.getAnnotation(Max.class);
-                if (number.longValue() > max.value()) {
-                    throw new RangeException("'{}' must be <= {}", ControllerUtil.getParameterName(parameter), max.value());
-                }
-            }
+    /**
+     * Sets the default values of the response headers declared by a Return.
+     *
+     * @param aReturn
+     * @param context
+     */
+    protected void validateResponseHeaders(Return aReturn, Context context) {
+        plan.getDeclaredReturn(aReturn).applyHeaders(context);
+    }
 
-            if (parameter.isAnnotationPresent(Range.class)) {
-                Range range = parameter.getAnnotation(Range.class);
-                if (number.longValue() < range.min()) {
-                    throw new RangeException("'{}' must be >= {}", ControllerUtil.getParameterName(parameter), range.min());
-                }
-                if (number.longValue() > range.max()) {
-                    throw new RangeException("'{}' must be <= {}", ControllerUtil.getParameterName(parameter), range.max());
-                }
+    /**
+     * Returns true if a subclass overrides a method of this class.
+     */
+    private boolean isOverridden(String methodName, Class<?>... parameterTypes) {
+        for (Class<?> type = getClass(); type != ControllerHandler.class; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod(methodName, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // check the superclass
             }
         }
+        return false;
     }
 
     protected Class<?> getParameterGenericType(Parameter parameter) {
@@ -715,28 +729,27 @@ public class ControllerHandler implements RouteHandler<Context> {
     }
 
     protected void handleDeclaredThrownException(Exception e, Method method, Context context) {
-        Class<? extends Exception> exceptionClass = e.getClass();
-        for (Return declaredReturn : declaredReturns) {
-            if (exceptionClass.isAssignableFrom(declaredReturn.onResult())) {
-                context.status(declaredReturn.code());
+        InvocationPlan.DeclaredReturn declaredReturn = plan.getExceptionReturn(e.getClass());
+        if (declaredReturn != null) {
+            Return declaration = declaredReturn.getDeclaration();
+            context.status(declaration.code());
 
-                // prefer declared message to exception message
-                String message = Strings.isNullOrEmpty(declaredReturn.description()) ? e.getMessage() : declaredReturn.description();
+            // prefer declared message to exception message
+            String message = Strings.isNullOrEmpty(declaration.description()) ? e.getMessage() : declaration.description();
 
-                if (!Strings.isNullOrEmpty(declaredReturn.descriptionKey())) {
-                    // retrieve localized message, fallback to declared message
-                    message = messages.getWithDefault(declaredReturn.descriptionKey(), message, context);
-                }
+            if (!Strings.isNullOrEmpty(declaration.descriptionKey())) {
+                // retrieve localized message, fallback to declared message
+                message = messages.getWithDefault(declaration.descriptionKey(), message, context);
+            }
 
-                if (!Strings.isNullOrEmpty(message)) {
-                    context.setLocal("message", message);
-                }
+            if (!Strings.isNullOrEmpty(message)) {
+                context.setLocal("message", message);
+            }
 
-                validateResponseHeaders(declaredReturn, context);
+            validateResponseHeaders(declaredReturn.getDeclaration(), context);
 
-                log.warn("Handling declared return exception '{}' for '{}'", e.getMessage(), Util.toString(method));
-                return;
-            }
+            log.warn("Handling declared return exception '{}' for '{}'", e.getMessage(), plan.getMethodName());
+            return;
         }
 
         if (e instanceof RuntimeException) {
@@ -748,24 +761,4 @@ public class ControllerHandler implements RouteHandler<Context> {
         throw new FathomException(e);
     }
 
-    protected void validateResponseHeaders(Return aReturn, Context context) {
-        for (Class<? extends ReturnHeader> returnHeader : aReturn.headers()) {
-            ReturnHeader header = ClassUtil.newInstance(returnHeader);
-            String name = header.getHeaderName();
-            String defaultValue = header.getDefaultValue();
-            // FIXME need to expose getHeader in Pippo Response
-            String value = null; //context.getHeader(name);
-
-            if (value == null) {
-                if (Strings.isNullOrEmpty(defaultValue)) {
-                    log.warn("No value specified for the declared response header '{}'", name);
-                } else {
-                    context.setHeader(name, defaultValue);
-                    log.debug("No value specified for the declared response header '{}', defaulting to '{}'", name, defaultValue);
-                }
-            }
-
-        }
-    }
-
 }
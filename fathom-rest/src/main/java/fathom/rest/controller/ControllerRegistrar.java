@@ -129,6 +129,11 @@ public class ControllerRegistrar extends ControllerScanner {
         for (Method method : methods) {
             Class<? extends Controller> controllerClass = (Class<? extends Controller>) method.getDeclaringClass();
             if (!controllers.containsKey(controllerClass)) {
+                if (ControllerUtil.isStateless(controllerClass)) {
+                    ControllerUtil.validateStatelessController(controllerClass);
+                    log.debug("'{}' is a stateless controller", controllerClass.getName());
+                }
+
                 Set<String> paths = collectPaths(controllerClass);
                 controllers.put(controllerClass, paths);
             }
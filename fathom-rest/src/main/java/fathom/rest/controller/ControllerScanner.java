@@ -17,6 +17,7 @@ package fathom.rest.controller;
 
 import com.google.common.collect.Sets;
 import fathom.conf.Settings;
+import fathom.utils.ClassIndex;
 import fathom.utils.ClassUtil;
 import fathom.utils.RequireUtil;
 import fathom.utils.Util;
@@ -55,14 +56,15 @@ public abstract class ControllerScanner {
     }
 
     /**
-     * Discover Controller classes.
+     * Discover Controller classes from the build-time class index, falling back
+     * to scanning the classpath for packages which are not indexed.
      *
      * @param packageNames
      * @return controller classes
      */
     protected Collection<Class<?>> discoverClasses(String... packageNames) {
         log.debug("Discovering annotated controller in package(s) '{}'", Arrays.toString(packageNames));
-        Collection<Class<?>> classes = ClassUtil.getAnnotatedClasses(Path.class, packageNames);
+        Collection<Class<?>> classes = ClassIndex.getAnnotatedClasses(Path.class, packageNames);
         return classes;
     }
 
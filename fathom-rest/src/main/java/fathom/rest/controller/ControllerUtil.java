@@ -16,16 +16,23 @@
 package fathom.rest.controller;
 
 import com.google.common.base.Strings;
+import com.google.inject.Singleton;
+import fathom.exception.FatalException;
 import fathom.rest.Context;
 import fathom.rest.controller.extractors.ArgumentExtractor;
 import fathom.rest.controller.extractors.ExtractWith;
 import fathom.rest.controller.extractors.ParamExtractor;
 import fathom.utils.ClassUtil;
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+import ro.pippo.core.Session;
 import ro.pippo.core.route.RouteHandler;
 import ro.pippo.core.util.StringUtils;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -49,6 +56,48 @@ public class ControllerUtil {
         return classList;
     }
 
+    /**
+     * Determines if the controller is annotated as a {@link Stateless} or Singleton controller.
+     *
+     * @param controllerClass
+     * @return true if a single controller instance serves all requests
+     */
+    public static boolean isStateless(Class<? extends Controller> controllerClass) {
+        return ClassUtil.getAnnotation(controllerClass, Stateless.class) != null
+                || controllerClass.isAnnotationPresent(Singleton.class)
+                || controllerClass.isAnnotationPresent(javax.inject.Singleton.class);
+    }
+
+    /**
+     * Validates that a stateless controller does not declare mutable fields or fields
+     * which hold request state.  Injected fields are permitted.
+     *
+     * @param controllerClass
+     * @throws FatalException if the controller holds mutable or request state
+     */
+    public static void validateStatelessController(Class<? extends Controller> controllerClass) {
+        for (Field field : ClassUtil.getAllFields(controllerClass)) {
+            int modifiers = field.getModifiers();
+            if (Controller.class == field.getDeclaringClass() || Modifier.isStatic(modifiers) || field.isSynthetic()) {
+                continue;
+            }
+
+            Class<?> type = field.getType();
+            if (Context.class.isAssignableFrom(type) || Request.class.isAssignableFrom(type)
+                    || Response.class.isAssignableFrom(type) || Session.class.isAssignableFrom(type)) {
+                throw new FatalException("Stateless controller '{}' may not hold request state in field '{}'!",
+                        controllerClass.getName(), field.getName());
+            }
+
+            boolean isInjected = field.isAnnotationPresent(com.google.inject.Inject.class)
+                    || field.isAnnotationPresent(javax.inject.Inject.class);
+            if (!Modifier.isFinal(modifiers) && !isInjected) {
+                throw new FatalException("Stateless controller '{}' declares mutable field '{}', it must be final or injected!",
+                        controllerClass.getName(), field.getName());
+            }
+        }
+    }
+
     public static List<String> getConsumes(Method method) {
         Set<String> types = new LinkedHashSet<>();
         Consumes consumes = ClassUtil.getAnnotation(method, Consumes.class);
@@ -0,0 +1,437 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.controller;
+
+import com.google.common.base.Strings;
+import fathom.exception.FathomException;
+import fathom.rest.Context;
+import fathom.rest.controller.exceptions.RangeException;
+import fathom.rest.controller.exceptions.RequiredException;
+import fathom.rest.controller.extractors.ArgumentExtractor;
+import fathom.utils.ClassUtil;
+import fathom.utils.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.HttpConstants;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * InvocationPlan is the precompiled form of a controller method.
+ * <p>
+ * All reflection (parameters, validation annotations, declared returns and
+ * their response headers) is resolved once when the plan is built so that
+ * the request path only executes the plan.  The controller method itself is
+ * bound to a {@link MethodInvoker}.
+ *
+ * @author James Moger
+ */
+public class InvocationPlan {
+
+    private static final Logger log = LoggerFactory.getLogger(InvocationPlan.class);
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private static final DeclaredReturn NO_RETURN = new DeclaredReturn();
+
+    private final String methodName;
+
+    private final MethodInvoker invoker;
+
+    private final Argument[] arguments;
+
+    private final boolean returnsVoid;
+
+    private final DeclaredReturn[] declaredReturns;
+
+    private final Map<Integer, DeclaredReturn> returnsByCode;
+
+    private final DeclaredReturn voidReturn;
+
+    private final ConcurrentMap<Class<?>, DeclaredReturn> resultReturns;
+
+    private final ConcurrentMap<Class<?>, DeclaredReturn> exceptionReturns;
+
+    public InvocationPlan(Method method, ArgumentExtractor[] extractors, Collection<Return> returns) {
+        this.methodName = Util.toString(method);
+        this.invoker = MethodHandleInvoker.create(method);
+        this.returnsVoid = Void.class == method.getReturnType();
+
+        Parameter[] parameters = method.getParameters();
+        this.arguments = new Argument[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            arguments[i] = new Argument(parameters[i], extractors[i]);
+        }
+
+        List<DeclaredReturn> list = new ArrayList<>();
+        Map<Integer, DeclaredReturn> byCode = new HashMap<>();
+        DeclaredReturn onVoid = null;
+        for (Return aReturn : returns) {
+            DeclaredReturn declaredReturn = new DeclaredReturn(aReturn);
+            list.add(declaredReturn);
+            byCode.putIfAbsent(aReturn.code(), declaredReturn);
+            if (onVoid == null && Void.class == aReturn.onResult()) {
+                onVoid = declaredReturn;
+            }
+        }
+        this.declaredReturns = list.toArray(new DeclaredReturn[list.size()]);
+        this.returnsByCode = Collections.unmodifiableMap(byCode);
+        this.voidReturn = onVoid;
+        this.resultReturns = new ConcurrentHashMap<>();
+        this.exceptionReturns = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the display name of the controller method.
+     *
+     * @return the method name
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Returns the argument extractors in parameter order.
+     *
+     * @return the argument extractors
+     */
+    public ArgumentExtractor[] getExtractors() {
+        ArgumentExtractor[] extractors = new ArgumentExtractor[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            extractors[i] = arguments[i].extractor;
+        }
+        return extractors;
+    }
+
+    /**
+     * Returns true if the controller method is declared to return {@link Void}.
+     *
+     * @return true if the method returns Void
+     */
+    public boolean returnsVoid() {
+        return returnsVoid;
+    }
+
+    /**
+     * Extracts and validates the controller method arguments from the request.
+     *
+     * @param context
+     * @return the method arguments
+     */
+    public Object[] prepareArgs(Context context) {
+        return prepareArgs(context, null);
+    }
+
+    /**
+     * Extracts the controller method arguments from the request and validates them
+     * with the validator instead of the declared validation rules.
+     *
+     * @param context
+     * @param validator validates each parameter value, may be null to apply the declared rules
+     * @return the method arguments
+     */
+    public Object[] prepareArgs(Context context, BiConsumer<Parameter, Object> validator) {
+        if (arguments.length == 0) {
+            return NO_ARGS;
+        }
+
+        Object[] args = new Object[arguments.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = arguments[i].extract(context, validator);
+        }
+        return args;
+    }
+
+    /**
+     * Validates a parameter value against the declared validation rules of the parameter.
+     *
+     * @param parameter
+     * @param value
+     */
+    public void validateParameterValue(Parameter parameter, Object value) {
+        for (Argument argument : arguments) {
+            if (argument.parameter.equals(parameter)) {
+                argument.validate(value);
+                return;
+            }
+        }
+        new Argument(parameter, null).validate(value);
+    }
+
+    /**
+     * Invokes the controller method.
+     *
+     * @param controller
+     * @param args
+     * @return the result of the controller method
+     * @throws IllegalAccessException
+     * @throws InvocationTargetException if the controller method throws an exception
+     */
+    public Object invoke(Controller controller, Object[] args) throws IllegalAccessException, InvocationTargetException {
+        return invoker.invoke(controller, args);
+    }
+
+    /**
+     * Returns the resolved DeclaredReturn of a Return declaration.
+     *
+     * @param declaration
+     * @return the declared return
+     */
+    public DeclaredReturn getDeclaredReturn(Return declaration) {
+        for (DeclaredReturn declaredReturn : declaredReturns) {
+            if (declaredReturn.declaration == declaration) {
+                return declaredReturn;
+            }
+        }
+        return new DeclaredReturn(declaration);
+    }
+
+    /**
+     * Returns the declared Return for the status code.
+     *
+     * @param code
+     * @return the declared return or null
+     */
+    public DeclaredReturn getReturn(int code) {
+        return returnsByCode.get(code);
+    }
+
+    /**
+     * Returns the first declared Return for a Void result.
+     *
+     * @return the declared return or null
+     */
+    public DeclaredReturn getVoidReturn() {
+        return voidReturn;
+    }
+
+    /**
+     * Returns the declared NOT FOUND Return used for null results.
+     *
+     * @return the declared return or null
+     */
+    public DeclaredReturn getNotFoundReturn() {
+        return returnsByCode.get(HttpConstants.StatusCode.NOT_FOUND);
+    }
+
+    /**
+     * Returns the first declared Return which accepts the result type.
+     *
+     * @param resultClass
+     * @return the declared return or null
+     */
+    public DeclaredReturn getResultReturn(Class<?> resultClass) {
+        DeclaredReturn declaredReturn = resultReturns.get(resultClass);
+        if (declaredReturn == null) {
+            declaredReturn = NO_RETURN;
+            for (DeclaredReturn candidate : declaredReturns) {
+                if (candidate.onResult.isAssignableFrom(resultClass)) {
+                    declaredReturn = candidate;
+                    break;
+                }
+            }
+            resultReturns.putIfAbsent(resultClass, declaredReturn);
+        }
+        return declaredReturn == NO_RETURN ? null : declaredReturn;
+    }
+
+    /**
+     * Returns the first declared Return which describes the exception type.
+     *
+     * @param exceptionClass
+     * @return the declared return or null
+     */
+    public DeclaredReturn getExceptionReturn(Class<? extends Exception> exceptionClass) {
+        DeclaredReturn declaredReturn = exceptionReturns.get(exceptionClass);
+        if (declaredReturn == null) {
+            declaredReturn = NO_RETURN;
+            for (DeclaredReturn candidate : declaredReturns) {
+                if (exceptionClass.isAssignableFrom(candidate.onResult)) {
+                    declaredReturn = candidate;
+                    break;
+                }
+            }
+            exceptionReturns.putIfAbsent(exceptionClass, declaredReturn);
+        }
+        return declaredReturn == NO_RETURN ? null : declaredReturn;
+    }
+
+    /**
+     * A controller method parameter with its resolved extractor and validation rules.
+     */
+    static class Argument {
+
+        final Parameter parameter;
+
+        final ArgumentExtractor extractor;
+
+        final Class<?> type;
+
+        final String name;
+
+        final boolean required;
+
+        // ordered bounds: @Min, @Max, @Range(min), @Range(max)
+        final long[] bounds;
+
+        final boolean[] lowerBounds;
+
+        Argument(Parameter parameter, ArgumentExtractor extractor) {
+            this.parameter = parameter;
+            this.extractor = extractor;
+            this.type = parameter.getType();
+            this.name = ControllerUtil.getParameterName(parameter);
+            this.required = parameter.isAnnotationPresent(Required.class);
+
+            Min min = parameter.getAnnotation(Min.class);
+            Max max = parameter.getAnnotation(Max.class);
+            Range range = parameter.getAnnotation(Range.class);
+
+            int count = (min == null ? 0 : 1) + (max == null ? 0 : 1) + (range == null ? 0 : 2);
+            this.bounds = new long[count];
+            this.lowerBounds = new boolean[count];
+
+            int i = 0;
+            if (min != null) {
+                bounds[i] = min.value();
+                lowerBounds[i++] = true;
+            }
+            if (max != null) {
+                bounds[i] = max.value();
+                lowerBounds[i++] = false;
+            }
+            if (range != null) {
+                bounds[i] = range.min();
+                lowerBounds[i++] = true;
+                bounds[i] = range.max();
+                lowerBounds[i] = false;
+            }
+        }
+
+        Object extract(Context context, BiConsumer<Parameter, Object> validator) {
+            Object value = extractor.extract(context);
+
+            if (validator == null) {
+                validate(value);
+            } else {
+                validator.accept(parameter, value);
+            }
+
+            if (value == null || ClassUtil.isAssignable(value, type)) {
+                return value;
+            }
+
+            throw new FathomException("Type for '{}' is actually '{}' but was specified as '{}'!",
+                    name, value.getClass().getName(), type.getName());
+        }
+
+        void validate(Object value) {
+            if (value == null) {
+                if (required) {
+                    throw new RequiredException("'{}' is a required parameter!", name);
+                }
+                return;
+            }
+
+            if (bounds.length > 0 && value instanceof Number) {
+                long number = ((Number) value).longValue();
+                for (int i = 0; i < bounds.length; i++) {
+                    if (lowerBounds[i]) {
+                        if (number < bounds[i]) {
+                            throw new RangeException("'{}' must be >= {}", name, bounds[i]);
+                        }
+                    } else if (number > bounds[i]) {
+                        throw new RangeException("'{}' must be <= {}", name, bounds[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A declared Return with its response headers resolved.
+     */
+    public static class DeclaredReturn {
+
+        private final Return declaration;
+
+        private final Class<?> onResult;
+
+        private final String[] headerNames;
+
+        private final String[] headerDefaults;
+
+        private DeclaredReturn() {
+            this.declaration = null;
+            this.onResult = null;
+            this.headerNames = new String[0];
+            this.headerDefaults = new String[0];
+        }
+
+        DeclaredReturn(Return declaration) {
+            this.declaration = declaration;
+            this.onResult = declaration.onResult();
+
+            Class<? extends ReturnHeader>[] headers = declaration.headers();
+            this.headerNames = new String[headers.length];
+            this.headerDefaults = new String[headers.length];
+            for (int i = 0; i < headers.length; i++) {
+                ReturnHeader header = ClassUtil.newInstance(headers[i]);
+                headerNames[i] = header.getHeaderName();
+                headerDefaults[i] = header.getDefaultValue();
+            }
+        }
+
+        public Return getDeclaration() {
+            return declaration;
+        }
+
+        public int getCode() {
+            return declaration.code();
+        }
+
+        /**
+         * Sets the default values of the declared response headers.
+         *
+         * @param context
+         */
+        public void applyHeaders(Context context) {
+            for (int i = 0; i < headerNames.length; i++) {
+                String name = headerNames[i];
+                String defaultValue = headerDefaults[i];
+                // FIXME need to expose getHeader in Pippo Response
+                if (Strings.isNullOrEmpty(defaultValue)) {
+                    log.warn("No value specified for the declared response header '{}'", name);
+                } else {
+                    context.setHeader(name, defaultValue);
+                    log.debug("No value specified for the declared response header '{}', defaulting to '{}'", name, defaultValue);
+                }
+            }
+        }
+    }
+
+}
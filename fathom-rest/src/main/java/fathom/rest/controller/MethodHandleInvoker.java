@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.controller;
+
+import com.google.common.primitives.Primitives;
+import fathom.utils.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Invokes a controller method through a MethodHandle bound once for the method.
+ * <p>
+ * Arguments are adapted with {@link MethodHandle#asType(MethodType)} which unboxes and
+ * widens like {@link Method#invoke(Object, Object...)} and rejects narrowing conversions.
+ * Mismatched arguments raise an {@link IllegalArgumentException} and exceptions thrown by
+ * the controller method are wrapped in an {@link InvocationTargetException} so that callers
+ * observe identical semantics to the reflective invoker.
+ *
+ * @author James Moger
+ */
+public class MethodHandleInvoker implements MethodInvoker {
+
+    private static final Logger log = LoggerFactory.getLogger(MethodHandleInvoker.class);
+
+    private final String methodName;
+
+    private final MethodHandle handle;
+
+    private final Class<?>[] parameterTypes;
+
+    private final int[] primitiveParameters;
+
+    private MethodHandleInvoker(Method method, MethodHandle handle) {
+        this.methodName = Util.toString(method);
+
+        // (Target, Arg1, Arg2...)Result => (Object, Object[])Object
+        int count = method.getParameterCount();
+        MethodHandle generic = handle.asType(MethodType.genericMethodType(count + 1));
+        this.handle = generic.asSpreader(Object[].class, count);
+
+        Class<?>[] types = method.getParameterTypes();
+        this.parameterTypes = types;
+        int primitives = 0;
+        for (Class<?> type : types) {
+            if (type.isPrimitive()) {
+                primitives++;
+            }
+        }
+        this.primitiveParameters = new int[primitives];
+        for (int i = 0, j = 0; i < types.length; i++) {
+            if (types[i].isPrimitive()) {
+                primitiveParameters[j++] = i;
+            }
+        }
+    }
+
+    /**
+     * Creates an invoker for the method, preferring a MethodHandle and falling back
+     * to reflection if the method can not be accessed through a public lookup.
+     *
+     * @param method
+     * @return a method invoker
+     */
+    public static MethodInvoker create(Method method) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+            return new MethodHandleInvoker(method, handle);
+        } catch (IllegalAccessException e) {
+            log.debug("Failed to bind a MethodHandle for '{}', using reflection", Util.toString(method));
+            return new ReflectionInvoker(method);
+        }
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+        for (int index : primitiveParameters) {
+            if (args[index] == null) {
+                // reflection rejects null for a primitive parameter
+                throw new IllegalArgumentException("null argument " + (index + 1) + " for primitive parameter of " + methodName);
+            }
+        }
+
+        try {
+            return handle.invokeExact(target, args);
+        } catch (ClassCastException e) {
+            if (!isCompatible(args)) {
+                // the arguments could not be adapted, not a failure of the controller method
+                throw new IllegalArgumentException("argument type mismatch for " + methodName, e);
+            }
+            throw new InvocationTargetException(e);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * Returns true if the arguments are accepted by {@link Method#invoke(Object, Object...)}.
+     */
+    private boolean isCompatible(Object[] args) {
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Class<?> type = parameterTypes[i];
+            Object arg = args[i];
+            if (type.isPrimitive()) {
+                if (arg == null || !isWidening(Primitives.unwrap(arg.getClass()), type)) {
+                    return false;
+                }
+            } else if (arg != null && !type.isInstance(arg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the primitive type converts to the target primitive type by an
+     * identity or widening conversion.
+     */
+    private static boolean isWidening(Class<?> from, Class<?> to) {
+        if (from == to) {
+            return true;
+        }
+        if (from == byte.class) {
+            return to == short.class || to == int.class || to == long.class || to == float.class || to == double.class;
+        }
+        if (from == short.class || from == char.class) {
+            return to == int.class || to == long.class || to == float.class || to == double.class;
+        }
+        if (from == int.class) {
+            return to == long.class || to == float.class || to == double.class;
+        }
+        if (from == long.class) {
+            return to == float.class || to == double.class;
+        }
+        if (from == float.class) {
+            return to == double.class;
+        }
+        return false;
+    }
+
+}
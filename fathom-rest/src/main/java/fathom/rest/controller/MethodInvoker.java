@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.controller;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Invokes a controller method.
+ * <p>
+ * Implementations must follow the contract of {@link java.lang.reflect.Method#invoke(Object, Object...)}:
+ * exceptions thrown by the controller method are wrapped in an {@link InvocationTargetException}.
+ *
+ * @author James Moger
+ */
+public interface MethodInvoker {
+
+    /**
+     * Invokes the controller method on the target.
+     *
+     * @param target
+     * @param args
+     * @return the result of the method
+     * @throws IllegalAccessException
+     * @throws InvocationTargetException if the controller method throws an exception
+     */
+    Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException;
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.controller;
+
+import fathom.rest.Context;
+import ro.pippo.core.route.Route;
+
+import java.util.Collections;
+
+/**
+ * A lightweight view of a request Context which steps through the precomputed
+ * RouteInterceptor routes of a controller method.
+ * <p>
+ * Each call to {@link #next()} executes the next interceptor, an interceptor that
+ * does not call {@link #next()} short-circuits the remaining interceptors.
+ *
+ * @author James Moger
+ */
+public class RouteInterceptorContext extends Context {
+
+    private final Route[] routes;
+
+    private int index;
+
+    public RouteInterceptorContext(Context context, Route[] routes) {
+        super(context.getApplication(), context.getRequest(), context.getResponse(), Collections.emptyList());
+        this.routes = routes;
+    }
+
+    @Override
+    public void next() {
+        if (index < routes.length) {
+            handleRoute(routes[index++]);
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.controller;
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * StatelessControllers holds the shared instances of the stateless controllers of an Injector
+ * so that all routes of a stateless controller use the same instance.
+ *
+ * @author James Moger
+ */
+@Singleton
+class StatelessControllers {
+
+    private final Injector injector;
+
+    private final ConcurrentMap<Class<? extends Controller>, Controller> controllers;
+
+    @Inject
+    StatelessControllers(Injector injector) {
+        this.injector = injector;
+        this.controllers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the shared instance of the controller class.
+     *
+     * @param controllerClass
+     * @return the controller
+     */
+    Controller get(Class<? extends Controller> controllerClass) {
+        Controller controller = controllers.get(controllerClass);
+        if (controller == null) {
+            controller = controllers.computeIfAbsent(controllerClass, injector::getInstance);
+        }
+        return controller;
+    }
+
+}
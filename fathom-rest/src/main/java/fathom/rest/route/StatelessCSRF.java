@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.route;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import fathom.rest.Context;
+import fathom.utils.CryptoUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.Cookie;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StatelessCSRF generates and validates csrf tokens which are not stored in the session.
+ * <p>
+ * A read sets a random nonce cookie and binds a token which is the issue time and an HMAC
+ * of the nonce, the issue time, and the name of the authenticated account.  A token is valid
+ * if it is not older than the ttl and its HMAC matches the nonce cookie and the account of
+ * the request.
+ * <p>
+ * The nonce cookie is a "__Host-" prefixed cookie which is always Secure, is scoped to the
+ * path "/", and has no domain.  Browsers only accept it over https and a sibling subdomain
+ * can not set or overwrite it.  A token issued for one account is rejected for any other
+ * account so the handlers which authenticate the request must run before the csrf handler.
+ * A token of an anonymous request is only bound to the nonce and is invalidated by a login.
+ * <p>
+ * All nodes of a cluster must share the same secret key.
+ *
+ * @author James Moger
+ */
+public class StatelessCSRF {
+
+    public static final String COOKIE_PREFIX = "__Host-";
+
+    private static final Logger log = LoggerFactory.getLogger(StatelessCSRF.class);
+
+    private final String cookieName;
+
+    private final String secretKey;
+
+    private final String algorithm;
+
+    private final long ttl;
+
+    private final SecureRandom random;
+
+    /**
+     * Creates a StatelessCSRF.
+     *
+     * @param cookieName the name of the nonce cookie, must start with "__Host-"
+     * @param secretKey
+     * @param algorithm
+     * @param ttl        the lifetime of a csrf token
+     * @param timeUnit
+     */
+    public StatelessCSRF(String cookieName, String secretKey, String algorithm, long ttl, TimeUnit timeUnit) {
+        Preconditions.checkArgument(cookieName.startsWith(COOKIE_PREFIX), "The nonce cookie must start with '%s'", COOKIE_PREFIX);
+        this.cookieName = cookieName;
+        this.secretKey = secretKey;
+        this.algorithm = algorithm;
+        this.ttl = timeUnit.toMillis(ttl);
+        this.random = new SecureRandom();
+    }
+
+    public String getCookieName() {
+        return cookieName;
+    }
+
+    /**
+     * Returns the nonce cookie of the request.
+     *
+     * @param context
+     * @return the nonce or null
+     */
+    public String getNonce(Context context) {
+        Cookie cookie = context.getRequest().getCookie(cookieName);
+        if (cookie == null || Strings.isNullOrEmpty(cookie.getValue())) {
+            return null;
+        }
+        return cookie.getValue();
+    }
+
+    /**
+     * Generates a nonce and sets it as a cookie of the response.
+     *
+     * @param context
+     * @return the nonce
+     */
+    public String generateNonce(Context context) {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        String nonce = CryptoUtil.toHex(bytes);
+
+        Cookie cookie = new Cookie(cookieName, nonce);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setSecure(true);
+        context.getResponse().cookie(cookie);
+
+        log.debug("Generated '{}' for {} '{}'", cookieName, context.getRequestMethod(), context.getRequestUri());
+        return nonce;
+    }
+
+    /**
+     * Returns a new token for the account of the request.  A nonce cookie is set if the
+     * request does not have one.
+     *
+     * @param context
+     * @param account the name of the authenticated account or null
+     * @return a csrf token
+     */
+    public String getToken(Context context, String account) {
+        String nonce = getNonce(context);
+        if (nonce == null) {
+            nonce = generateNonce(context);
+        }
+        return getToken(nonce, account, System.currentTimeMillis());
+    }
+
+    public String getToken(String nonce, String account, long issued) {
+        String timestamp = Long.toString(issued, Character.MAX_RADIX);
+        // the nonce and the timestamp can not contain a '.' so the account is unambiguous
+        String message = nonce + '.' + timestamp + '.' + Strings.nullToEmpty(account);
+        return timestamp + '.' + CryptoUtil.hmacDigest(message, secretKey, algorithm);
+    }
+
+    /**
+     * Returns true if the token was issued for the nonce cookie and the account of the request
+     * and has not expired.
+     *
+     * @param context
+     * @param token
+     * @param account the name of the authenticated account or null
+     * @return true if the token is valid
+     */
+    public boolean isValidToken(Context context, String token, String account) {
+        String nonce = getNonce(context);
+        return nonce != null && isValidToken(token, nonce, account);
+    }
+
+    public boolean isValidToken(String token, String nonce, String account) {
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return false;
+        }
+
+        long issued;
+        try {
+            issued = Long.parseLong(token.substring(0, dot), Character.MAX_RADIX);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        // tolerate clock differences between the nodes of a cluster
+        long age = System.currentTimeMillis() - issued;
+        if (Math.abs(age) > ttl) {
+            log.debug("Rejected expired csrf token");
+            return false;
+        }
+
+        return CryptoUtil.constantTimeEquals(getToken(nonce, account, issued), token);
+    }
+
+}
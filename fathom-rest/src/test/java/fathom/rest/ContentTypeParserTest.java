@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Test parsing of Content-Type and Accept header values.
+ *
+ * @author James Moger
+ */
+public class ContentTypeParserTest extends Assert {
+
+    @Test
+    public void testEmptyValue() {
+        assertTrue(ContentTypeParser.parse(null).isEmpty());
+        assertTrue(ContentTypeParser.parse("").isEmpty());
+    }
+
+    @Test
+    public void testParameterizedValue() {
+        Set<String> types = ContentTypeParser.parse("Application/JSON; charset=UTF-8");
+        assertEquals(Arrays.asList("application/json"), new ArrayList<>(types));
+    }
+
+    @Test
+    public void testAcceptValue() {
+        Set<String> types = ContentTypeParser.parse("text/html,application/xhtml+xml, application/xml;q=0.9,*/*;q=0.8");
+        assertEquals(Arrays.asList("text/html", "application/xhtml+xml", "application/xml", "*/*"),
+                new ArrayList<>(types));
+    }
+
+    @Test
+    public void testMultipleValues() {
+        Set<String> types = ContentTypeParser.parse("application/json", "text/plain;q=0.5, application/json");
+        assertEquals(Arrays.asList("application/json", "text/plain"), new ArrayList<>(types));
+
+        Set<String> json = ContentTypeParser.parse("application/json");
+        assertSame(json, ContentTypeParser.parse("application/json", null));
+        assertSame(json, ContentTypeParser.parse("application/json", "application/json"));
+        assertSame(json, ContentTypeParser.parse(null, "application/json"));
+        assertSame(json, ContentTypeParser.parse("application/json", "application/json;q=0.9"));
+    }
+
+    @Test
+    public void testCachedValue() {
+        String value = "application/x-cached;q=0.7,text/x-cached";
+        Set<String> types = ContentTypeParser.parse(value);
+        assertSame(types, ContentTypeParser.parse(value));
+        assertSame(types, ContentTypeParser.parse(new String(value)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testUnmodifiable() {
+        ContentTypeParser.parse("application/json").add("text/plain");
+    }
+
+}
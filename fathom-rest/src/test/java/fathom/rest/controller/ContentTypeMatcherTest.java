@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.controller;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Test matching content-types against declared content-types.
+ *
+ * @author James Moger
+ */
+public class ContentTypeMatcherTest extends Assert {
+
+    @Test
+    public void testNoDeclaredTypes() {
+        ContentTypeMatcher matcher = new ContentTypeMatcher(Collections.emptyList());
+        assertTrue(matcher.isEmpty());
+        assertFalse(matcher.matchesAll());
+        assertFalse(matcher.matches("application/json"));
+    }
+
+    @Test
+    public void testExactTypes() {
+        ContentTypeMatcher matcher = new ContentTypeMatcher(Arrays.asList("application/json", "text/plain"));
+        assertFalse(matcher.isEmpty());
+        assertFalse(matcher.matchesAll());
+        assertTrue(matcher.matches("application/json"));
+        assertTrue(matcher.matches("text/plain"));
+        assertFalse(matcher.matches("text/html"));
+        assertFalse(matcher.matches("application/jsonp"));
+    }
+
+    @Test
+    public void testPrefixTypes() {
+        ContentTypeMatcher matcher = new ContentTypeMatcher(Arrays.asList("application/*", "text/plain"));
+        assertTrue(matcher.matches("application/json"));
+        assertTrue(matcher.matches("application/xml"));
+        assertTrue(matcher.matches("text/plain"));
+        assertFalse(matcher.matches("text/html"));
+    }
+
+    @Test
+    public void testWildcardType() {
+        ContentTypeMatcher matcher = new ContentTypeMatcher(Arrays.asList(Consumes.ALL));
+        assertTrue(matcher.matchesAll());
+        assertTrue(matcher.matches("application/json"));
+        assertTrue(matcher.matches("text/html"));
+    }
+
+    @Test
+    public void testFindMatch() {
+        ContentTypeMatcher matcher = new ContentTypeMatcher(Arrays.asList("application/*"));
+        assertEquals("application/xml", matcher.findMatch(Arrays.asList("text/html", "application/xml", "application/json")));
+        assertNull(matcher.findMatch(Arrays.asList("text/html", "text/plain")));
+        assertNull(matcher.findMatch(Collections.emptyList()));
+    }
+
+}
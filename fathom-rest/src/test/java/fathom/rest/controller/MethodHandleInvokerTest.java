@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.controller;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Test that the MethodHandleInvoker converts arguments and reports failures like reflection.
+ *
+ * @author James Moger
+ */
+public class MethodHandleInvokerTest extends Assert {
+
+    @Test
+    public void testWidening() throws Exception {
+        assertEquals(3L, invoke("add", 1, (short) 2));
+        assertEquals(3L, invoke("add", 1L, (byte) 2));
+    }
+
+    @Test
+    public void testNarrowing() throws Exception {
+        assertMismatch("add", 1L, 2L);
+        assertMismatch("add", 1.0d, 2);
+        assertMismatch("add", 1L, null);
+        assertMismatch("concat", 1, "b");
+    }
+
+    @Test
+    public void testThrownException() throws Exception {
+        for (MethodInvoker invoker : invokers("fail")) {
+            try {
+                invoker.invoke(new Target(), new Object[]{"a"});
+                fail("Expected an InvocationTargetException");
+            } catch (InvocationTargetException e) {
+                assertTrue(e.getCause() instanceof ClassCastException);
+            }
+        }
+    }
+
+    private static Object invoke(String methodName, Object... args) throws Exception {
+        MethodInvoker[] invokers = invokers(methodName);
+        Object expected = invokers[0].invoke(new Target(), args);
+        assertEquals(expected, invokers[1].invoke(new Target(), args));
+        return expected;
+    }
+
+    private static void assertMismatch(String methodName, Object... args) throws Exception {
+        for (MethodInvoker invoker : invokers(methodName)) {
+            try {
+                invoker.invoke(new Target(), args);
+                fail(invoker.getClass().getSimpleName() + " accepted mismatched arguments");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private static MethodInvoker[] invokers(String methodName) {
+        for (Method method : Target.class.getMethods()) {
+            if (method.getName().equals(methodName)) {
+                MethodInvoker invoker = MethodHandleInvoker.create(method);
+                assertTrue(invoker instanceof MethodHandleInvoker);
+                return new MethodInvoker[]{new ReflectionInvoker(method), invoker};
+            }
+        }
+        throw new AssertionError(methodName);
+    }
+
+    public static class Target {
+
+        public long add(long a, int b) {
+            return a + b;
+        }
+
+        public String concat(String a, String b) {
+            return a + b;
+        }
+
+        public String fail(Object value) {
+            return (String) (Object) Integer.valueOf(value.hashCode());
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.controller;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import fathom.conf.Settings;
+import fathom.rest.Context;
+import fathom.rest.RestModule;
+import org.junit.Assert;
+import org.junit.Test;
+import ro.pippo.core.Application;
+import ro.pippo.core.ContentTypeEngines;
+import ro.pippo.core.Languages;
+import ro.pippo.core.Messages;
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+import ro.pippo.core.route.Route;
+import ro.pippo.core.route.RouteHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the RouteInterceptor chain of controller methods.
+ *
+ * @author James Moger
+ */
+public class RouteInterceptorContextTest extends Assert {
+
+    @Test
+    public void testInterceptorRoute() {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        ControllerHandler handler = new ControllerHandler(newInjector(interceptor), ItemsController.class, "get");
+
+        Route matchedRoute = new Route("GET", "/items/{id}", handler);
+        handler.processRouteInterceptors(newContext("GET", "/items/1", matchedRoute));
+        handler.processRouteInterceptors(newContext("GET", "/items/2", matchedRoute));
+
+        // interceptors see the request method and the uri pattern of the matched route
+        assertEquals(2, interceptor.routes.size());
+        for (Route route : interceptor.routes) {
+            assertEquals("GET", route.getRequestMethod());
+            assertEquals("/items/{id}", route.getUriPattern());
+            assertEquals("RouteInterceptor<RecordingInterceptor>", route.getName());
+        }
+        assertSame(interceptor.routes.get(0), interceptor.routes.get(1));
+    }
+
+    @Test
+    public void testInterceptorRouteWithoutMatchedRoute() {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        ControllerHandler handler = new ControllerHandler(newInjector(interceptor), ItemsController.class, "get");
+
+        handler.processRouteInterceptors(newContext("POST", "/items/1", null));
+
+        assertEquals(1, interceptor.routes.size());
+        Route route = interceptor.routes.get(0);
+        assertEquals("POST", route.getRequestMethod());
+        assertEquals("/items/1", route.getUriPattern());
+    }
+
+    private Injector newInjector(RecordingInterceptor interceptor) {
+        Settings settings = new Settings();
+        return Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Settings.class).toInstance(settings);
+                bind(Messages.class).toInstance(new Messages(new Languages(RestModule.getPippoSettings(settings))));
+                bind(ContentTypeEngines.class).toInstance(new ContentTypeEngines());
+                bind(RecordingInterceptor.class).toInstance(interceptor);
+            }
+        });
+    }
+
+    private Context newContext(String requestMethod, String requestUri, Route matchedRoute) {
+        Application application = new Application();
+        HttpServletRequest httpServletRequest = mock(HttpServletRequest.class);
+        when(httpServletRequest.getMethod()).thenReturn(requestMethod);
+        when(httpServletRequest.getContextPath()).thenReturn("");
+        when(httpServletRequest.getParameterNames()).thenReturn(Collections.emptyEnumeration());
+
+        Request request = new Request(httpServletRequest, application);
+        Response response = new Response(mock(HttpServletResponse.class), application);
+
+        Context context = mock(Context.class);
+        when(context.getApplication()).thenReturn(application);
+        when(context.getRequest()).thenReturn(request);
+        when(context.getResponse()).thenReturn(response);
+        when(context.getRequestMethod()).thenReturn(requestMethod);
+        when(context.getRequestUri()).thenReturn(requestUri);
+        when(context.getRoute()).thenReturn(matchedRoute);
+        return context;
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @RouteInterceptor(RecordingInterceptor.class)
+    public @interface Recorded {
+    }
+
+    public static class RecordingInterceptor implements RouteHandler<Context> {
+
+        final List<Route> routes = new ArrayList<>();
+
+        @Override
+        public void handle(Context context) {
+            routes.add(context.getRoute());
+            context.next();
+        }
+    }
+
+    public static class ItemsController extends Controller {
+
+        @Recorded
+        public void get() {
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.rest.controller;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import fathom.conf.Settings;
+import fathom.exception.FatalException;
+import fathom.rest.Context;
+import fathom.rest.RestModule;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ro.pippo.core.Application;
+import ro.pippo.core.ContentTypeEngines;
+import ro.pippo.core.Languages;
+import ro.pippo.core.Messages;
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test stateless controllers.
+ *
+ * @author James Moger
+ */
+public class StatelessControllerTest extends Assert {
+
+    @After
+    public void tearDown() {
+        Controller.bindContext(null);
+    }
+
+    @Test
+    public void testRequestAndResponse() {
+        Application application = new Application();
+        HttpServletRequest httpServletRequest = mock(HttpServletRequest.class);
+        when(httpServletRequest.getMethod()).thenReturn("GET");
+        when(httpServletRequest.getContextPath()).thenReturn("");
+        when(httpServletRequest.getParameterNames()).thenReturn(Collections.emptyEnumeration());
+        Request request = new Request(httpServletRequest, application);
+        Response response = new Response(mock(HttpServletResponse.class), application);
+
+        Context context = mock(Context.class);
+        when(context.getRequest()).thenReturn(request);
+        when(context.getResponse()).thenReturn(response);
+
+        ItemsController controller = new ItemsController();
+        assertTrue(ControllerUtil.isStateless(ItemsController.class));
+
+        Controller.bindContext(context);
+        assertSame(context, controller.getContext());
+        assertSame(request, controller.getRequest());
+        assertSame(response, controller.getResponse());
+        assertEquals("GET", controller.method());
+        controller.noContent();
+        assertEquals(204, response.getStatus());
+
+        Controller.bindContext(null);
+        assertNull(controller.getContext());
+    }
+
+    @Test
+    public void testSharedInstance() {
+        Settings settings = new Settings();
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Settings.class).toInstance(settings);
+                bind(Messages.class).toInstance(new Messages(new Languages(RestModule.getPippoSettings(settings))));
+                bind(ContentTypeEngines.class).toInstance(new ContentTypeEngines());
+            }
+        });
+
+        ControllerHandler first = new ControllerHandler(injector, SharedController.class, "first");
+        ControllerHandler second = new ControllerHandler(injector, SharedController.class, "second");
+        Context context = mock(Context.class);
+
+        // the routes of a stateless controller share one instance
+        Controller controller = first.getController(context);
+        assertSame(controller, first.getController(context));
+        assertSame(controller, second.getController(context));
+
+        // other controllers are provisioned per request
+        ControllerHandler stateful = new ControllerHandler(injector, StatefulController.class, "first");
+        assertNotSame(stateful.getController(context), stateful.getController(context));
+    }
+
+    @Test
+    public void testValidController() {
+        ControllerUtil.validateStatelessController(ItemsController.class);
+    }
+
+    @Test(expected = FatalException.class)
+    public void testMutableField() {
+        ControllerUtil.validateStatelessController(MutableController.class);
+    }
+
+    @Test(expected = FatalException.class)
+    public void testRequestField() {
+        ControllerUtil.validateStatelessController(RequestController.class);
+    }
+
+    @Stateless
+    public static class ItemsController extends Controller {
+
+        @Inject
+        Application application;
+
+        final String name = "items";
+
+        public String method() {
+            return getRequest().getMethod();
+        }
+
+        public void noContent() {
+            getResponse().status(204);
+        }
+    }
+
+    @Stateless
+    public static class SharedController extends Controller {
+
+        public void first() {
+        }
+
+        public void second() {
+        }
+    }
+
+    public static class StatefulController extends Controller {
+
+        public void first() {
+        }
+    }
+
+    @Stateless
+    public static class MutableController extends Controller {
+
+        int count;
+    }
+
+    @Stateless
+    public static class RequestController extends Controller {
+
+        @Inject
+        Request request;
+    }
+
+}
@@ -21,8 +21,10 @@ import com.typesafe.config.Config;
 import fathom.authc.AuthenticationToken;
 import fathom.authc.StandardCredentials;
 import fathom.realm.Account;
+import fathom.realm.FileMonitor;
 import fathom.realm.MemoryRealm;
 import fathom.utils.ClassUtil;
+import fathom.utils.CryptoUtil;
 import fathom.utils.Util;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.digest.Crypt;
@@ -34,10 +36,12 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -58,7 +62,13 @@ import java.util.regex.Pattern;
  * <li><i>file</i> - The text file with the htpasswd entries to be used for authentication.</li>
  * <li><i>allowClearPasswords</i> - Boolean flag for controlling clear/crypt passwords.
  * The file is formatted using one or the other, but not both.</li>
+ * <li><i>reloadInterval</i> - The interval between checks of the file for modifications,
+ * default is 5 seconds.</li>
  * </ul>
+ * <p>
+ * The credentials are published as an immutable snapshot which is replaced by a
+ * background FileMonitor when the file changes.  Authentication does not lock nor
+ * touch the file.
  *
  * @author Florian Zschocke
  * @author James Moger
@@ -67,18 +77,23 @@ public class HtpasswdRealm extends MemoryRealm {
 
     private final static Logger log = LoggerFactory.getLogger(HtpasswdRealm.class);
 
-    private final Map<String, String> credentialsMap;
+    private volatile Credentials credentials;
 
     private String file;
 
     private volatile File realmFile;
 
-    private volatile long lastModified;
+    private volatile FileMonitor fileMonitor;
+
+    private long reloadInterval;
+
+    private boolean running;
 
     private boolean isAllowClearTextPasswords;
 
     public HtpasswdRealm() {
-        this.credentialsMap = new ConcurrentHashMap<>();
+        this.credentials = new Credentials(Collections.emptyMap());
+        this.reloadInterval = TimeUnit.SECONDS.toMillis(5);
     }
 
     @Override
@@ -103,31 +118,46 @@ public class HtpasswdRealm extends MemoryRealm {
             isAllowClearTextPasswords = config.getBoolean("allowClearPasswords");
         }
 
+        if (config.hasPath("reloadInterval")) {
+            reloadInterval = config.getDuration("reloadInterval", TimeUnit.MILLISECONDS);
+        }
+
         file = config.getString("file");
         Preconditions.checkNotNull(file, "You must specify an htpasswd 'file'!");
 
         if (file.startsWith("classpath:")) {
             // one-time read of the credentials file
             URL url = ClassUtil.getResource(file.substring("classpath:".length()));
-            credentialsMap.putAll(readCredentialsURL(url));
-            log.debug("Read {} standard credentials from '{}'", credentialsMap.size(), url);
+            credentials = new Credentials(readCredentialsURL(url));
+            log.debug("Read {} standard credentials from '{}'", credentials.passwords.size(), url);
         } else {
             // keep a credentials file reference so it may auto-reload
             setFile(new File(file));
-            log.debug("Read {} standard credentials from '{}'", credentialsMap.size(), file);
+            log.debug("Read {} standard credentials from '{}'", credentials.passwords.size(), file);
         }
 
     }
 
     @Override
-    public void start() {
+    public synchronized void start() {
         log.debug("Realm '{}' configuration:", getRealmName());
         Util.logSetting(log, "file", file);
         Util.logSetting(log, "allowClearPasswords", isAllowClearTextPasswords);
+        Util.logSetting(log, "reloadInterval (msecs)", reloadInterval);
+        logVerifiedCacheSettings(log);
+
+        if (fileMonitor != null) {
+            fileMonitor.start(reloadInterval);
+        }
+        running = true;
     }
 
     @Override
-    public void stop() {
+    public synchronized void stop() {
+        if (fileMonitor != null) {
+            fileMonitor.stop();
+        }
+        running = false;
     }
 
     public boolean isAllowClearTextPasswords() {
@@ -142,8 +172,30 @@ public class HtpasswdRealm extends MemoryRealm {
         Preconditions.checkNotNull(realmFile, "File is null!");
         Preconditions.checkArgument(realmFile.exists(), "{} does not exist!", realmFile);
 
+        if (fileMonitor != null) {
+            fileMonitor.stop();
+        }
+
         this.realmFile = realmFile;
+        this.fileMonitor = new FileMonitor(realmFile, this::readCredentialsFile);
         readCredentialsFile();
+
+        if (running) {
+            fileMonitor.start(reloadInterval);
+        }
+    }
+
+    FileMonitor getFileMonitor() {
+        return fileMonitor;
+    }
+
+    /**
+     * Sets the interval between checks of the htpasswd file for modifications.
+     *
+     * @param reloadInterval in milliseconds
+     */
+    public void setReloadInterval(long reloadInterval) {
+        this.reloadInterval = reloadInterval;
     }
 
     /**
@@ -156,33 +208,22 @@ public class HtpasswdRealm extends MemoryRealm {
      */
     @Override
     public boolean hasAccount(String username) {
-        return credentialsMap.containsKey(username);
+        return credentials.passwords.containsKey(username);
     }
 
     @Override
     public Account getAccount(String username) {
         // if we do not have a defined account (e.g. defined in realms.conf)
         // then we create an empty placeholder
+        // which belongs to the current credentials snapshot
         Account account = super.getAccount(username);
         if (account == null) {
-            account = addAccount(username, credentialsMap.get(username));
+            account = credentials.getAccount(username);
         }
 
         return account;
     }
 
-    /**
-     * Force a re-read of the credentials file (if modified) before executing authentication.
-     *
-     * @param authenticationToken
-     * @return the account if authentication is successful
-     */
-    @Override
-    public Account authenticate(AuthenticationToken authenticationToken) {
-        readCredentialsFile();
-        return super.authenticate(authenticationToken);
-    }
-
     /**
      * htpasswd supports a few other password encryption schemes than the StandardCredentialsRealm.
      *
@@ -199,7 +240,7 @@ public class HtpasswdRealm extends MemoryRealm {
 
         // test Apache MD5 variant encrypted password
         if (storedPassword.startsWith("$apr1$")) {
-            if (storedPassword.equals(Md5Crypt.apr1Crypt(password, storedPassword))) {
+            if (CryptoUtil.constantTimeEquals(storedPassword, Md5Crypt.apr1Crypt(password, storedPassword))) {
                 log.trace("Apache MD5 encoded password matched for user '{}'", username);
                 authenticated = true;
             }
@@ -207,18 +248,18 @@ public class HtpasswdRealm extends MemoryRealm {
         // test Unsalted SHA password
         else if (storedPassword.startsWith("{SHA}")) {
             String password64 = Base64.encodeBase64String(DigestUtils.sha1(password));
-            if (storedPassword.substring("{SHA}".length()).equals(password64)) {
+            if (CryptoUtil.constantTimeEquals(storedPassword.substring("{SHA}".length()), password64)) {
                 log.trace("Unsalted SHA-1 encoded password matched for user '{}'", username);
                 authenticated = true;
             }
         }
         // test Libc Crypt password
-        else if (!isAllowClearTextPasswords() && storedPassword.equals(Crypt.crypt(password, storedPassword))) {
+        else if (!isAllowClearTextPasswords() && CryptoUtil.constantTimeEquals(storedPassword, Crypt.crypt(password, storedPassword))) {
             log.trace("Libc crypt encoded password matched for user '{}'", username);
             authenticated = true;
         }
         // test Clear Text password
-        else if (isAllowClearTextPasswords() && storedPassword.equals(password)) {
+        else if (isAllowClearTextPasswords() && CryptoUtil.constantTimeEquals(storedPassword, password)) {
             log.trace("Clear text password matched for user '{}'", username);
             authenticated = true;
         }
@@ -227,15 +268,23 @@ public class HtpasswdRealm extends MemoryRealm {
     }
 
     /**
-     * Reads the credentials file and rebuilds the in-memory lookup tables.
+     * The Apache MD5 and the libc crypt schemes iterate their digests.
+     *
+     * @param storedPassword
+     * @return true if the stored password is an iterated hash
      */
-    protected synchronized void readCredentialsFile() {
-        if (realmFile != null && realmFile.exists() && (realmFile.lastModified() != lastModified)) {
-            lastModified = realmFile.lastModified();
+    @Override
+    protected boolean isExpensiveHash(String storedPassword) {
+        return storedPassword.startsWith("$") || super.isExpensiveHash(storedPassword);
+    }
+
+    /**
+     * Reads the credentials file and replaces the credentials snapshot.
+     */
+    protected void readCredentialsFile() {
+        if (realmFile != null && realmFile.exists()) {
             try {
-                Map<String, String> credentials = readCredentialsURL(realmFile.toURI().toURL());
-                credentialsMap.clear();
-                credentialsMap.putAll(credentials);
+                credentials = new Credentials(readCredentialsURL(realmFile.toURI().toURL()));
             } catch (Exception e) {
                 log.error("Failed to read {}", realmFile, e);
             }
@@ -274,4 +323,28 @@ public class HtpasswdRealm extends MemoryRealm {
         }
         return credentials;
     }
+
+    /**
+     * An immutable set of htpasswd credentials and the placeholder accounts created for them.
+     */
+    private static class Credentials {
+
+        final Map<String, String> passwords;
+
+        final Map<String, Account> accounts;
+
+        Credentials(Map<String, String> passwords) {
+            this.passwords = Collections.unmodifiableMap(passwords);
+            this.accounts = new ConcurrentHashMap<>();
+        }
+
+        Account getAccount(String username) {
+            if (!passwords.containsKey(username)) {
+                return new Account(null, new StandardCredentials(username, null));
+            }
+            return accounts.computeIfAbsent(username,
+                    name -> new Account(null, new StandardCredentials(name, passwords.get(name))));
+        }
+    }
+
 }
@@ -16,17 +16,29 @@
 package fathom.realm.htpasswd;
 
 import fathom.realm.Account;
+import fathom.realm.FileMonitor;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test the Htpasswd Realm.
  */
 public class HtpasswdRealmTest extends Assert {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     HtpasswdRealm htpasswd;
 
     @Before
@@ -162,4 +174,54 @@ public class HtpasswdRealmTest extends Assert {
         assertNull(htpasswd.authenticate("crypt", "password"));
     }
 
+    @Test
+    public void testReload() throws Exception {
+        File file = folder.newFile("realm.htpasswd");
+        write(file, 1);
+
+        // the realm is not started, reloads are triggered by checking the monitor
+        HtpasswdRealm realm = new HtpasswdRealm();
+        realm.setAllowClearTextPasswords(true);
+        realm.setFile(file);
+        assertNotNull(realm.authenticate("user", "pass1"));
+        assertFalse(realm.getFileMonitor().check());
+
+        write(file, 2);
+        assertTrue(realm.getFileMonitor().check());
+        assertNotNull(realm.authenticate("stable", "stable"));
+        assertNotNull(realm.authenticate("user", "pass2"));
+        assertNull(realm.authenticate("user", "pass1"));
+    }
+
+    @Test
+    public void testSetFileWhileRunning() throws Exception {
+        File file = folder.newFile("realm.htpasswd");
+        write(file, 1);
+
+        HtpasswdRealm realm = new HtpasswdRealm();
+        realm.setFile(file);
+        realm.start();
+        try {
+            FileMonitor previous = realm.getFileMonitor();
+            realm.setFile(file);
+            assertFalse(previous.isRunning());
+            assertTrue(realm.getFileMonitor().isRunning());
+        } finally {
+            realm.stop();
+        }
+        assertFalse(realm.getFileMonitor().isRunning());
+    }
+
+    private void write(File file, int generation) throws IOException {
+        String content = "stable:stable\nuser:pass" + generation + "\n";
+
+        // replace the file atomically like the htpasswd tool
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        Files.write(tmp.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // a distinct modification time regardless of the file system resolution
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(TimeUnit.HOURS.toMillis(generation)));
+    }
+
 }
@@ -45,16 +45,26 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 
 /**
  * Realm that allows you to authenticate against a JDBC datasource.
+ * <p>
+ * The result of the {@code definedRolesQuery} is cached for {@code definedRolesTtl} minutes.
+ * If {@code combinedQuery} is set, the {@code accountQuery} may return several rows for an account,
+ * e.g. by joining the roles and permissions tables, and the role, permission, and email mappings
+ * are collected from all rows.  This loads an account with one statement.
+ * </p>
  *
  * @author James Moger
  */
@@ -92,6 +102,10 @@ public class JdbcRealm extends CachingRealm {
 
     protected String definedRolesQuery;
 
+    protected int definedRolesTtl;
+
+    protected boolean combinedQuery;
+
     protected String startScript;
 
     protected String stopScript;
@@ -101,6 +115,10 @@ public class JdbcRealm extends CachingRealm {
     @Inject
     MetricRegistry metricRegistry;
 
+    private volatile Map<String, Role> definedRoles;
+
+    private volatile long definedRolesExpiration;
+
     @Override
     public void setup(Config config) {
         super.setup(config);
@@ -157,6 +175,15 @@ public class JdbcRealm extends CachingRealm {
             definedRolesQuery = Strings.emptyToNull(config.getString("definedRolesQuery"));
         }
 
+        definedRolesTtl = 5;
+        if (config.hasPath("definedRolesTtl")) {
+            definedRolesTtl = config.getInt("definedRolesTtl");
+        }
+
+        if (config.hasPath("combinedQuery")) {
+            combinedQuery = config.getBoolean("combinedQuery");
+        }
+
         if (config.hasPath("startScript")) {
             startScript = Strings.emptyToNull(config.getString("startScript"));
         }
@@ -187,6 +214,8 @@ public class JdbcRealm extends CachingRealm {
         Util.logSetting(log, "accountRolesQuery", accountRolesQuery);
         Util.logSetting(log, "accountPermissionsQuery", accountPermissionsQuery);
         Util.logSetting(log, "definedRolesQuery", definedRolesQuery);
+        Util.logSetting(log, "definedRolesTtl (mins)", definedRolesTtl);
+        Util.logSetting(log, "combinedQuery", combinedQuery);
         Util.logSetting(log, "startScript", startScript);
         Util.logSetting(log, "stopScript", stopScript);
         super.logCacheSettings(log);
@@ -255,7 +284,7 @@ public class JdbcRealm extends CachingRealm {
         final String username = requestCredentials.getUsername();
         final String password = requestCredentials.getPassword();
 
-        if (hasAccount(username)) {
+        if (super.hasAccount(username)) {
             // account is cached, authenticate against the cache
             return super.authenticate(new StandardCredentials(username, password));
         }
@@ -281,7 +310,7 @@ public class JdbcRealm extends CachingRealm {
             }
 
             StandardCredentials requestCredentials = new StandardCredentials(username, password);
-            if (validatePassword(requestCredentials, storedCredentials)) {
+            if (checkPassword(requestCredentials, storedCredentials)) {
                 log.debug("Authentication succeeded for '{}' against '{}'", username, getRealmName());
 
                 setAuthorizationsByQuery(conn, account);
@@ -299,6 +328,14 @@ public class JdbcRealm extends CachingRealm {
         return null;
     }
 
+    /**
+     * Uncached accounts are queried from the database.
+     */
+    @Override
+    public LookupCost getLookupCost() {
+        return LookupCost.REMOTE;
+    }
+
     @Override
     public boolean hasAccount(String username) {
         if (super.hasAccount(username)) {
@@ -322,6 +359,7 @@ public class JdbcRealm extends CachingRealm {
                 account = getAccount(conn, username);
                 if (account != null) {
                     setAuthorizationsByQuery(conn, account);
+                    cacheAccount(account);
                 }
             } catch (SQLException e) {
                 log.error("There was an SQL error while getting account '{}'", username, e);
@@ -331,17 +369,88 @@ public class JdbcRealm extends CachingRealm {
         return account;
     }
 
+    @Override
+    public Account loadAccount(String username) {
+        return getAccount(username);
+    }
+
+    /**
+     * Returns the accounts of the specified users from the cache or, in bulk, from the database.
+     * Unknown usernames are ignored.
+     *
+     * @param usernames
+     * @return the accounts
+     */
+    public Collection<Account> getAccounts(Collection<String> usernames) {
+        List<Account> accounts = new ArrayList<>();
+        List<String> uncached = new ArrayList<>();
+        for (String username : usernames) {
+            Account account = super.getAccount(username);
+            if (account == null) {
+                uncached.add(username);
+            } else {
+                accounts.add(account);
+            }
+        }
+
+        Collection<Account> loaded = loadAccounts(uncached);
+        loaded.forEach(this::cacheAccount);
+        accounts.addAll(loaded);
+        return accounts;
+    }
+
+    /**
+     * Loads the specified accounts on one connection, executing the same prepared statements
+     * for each username.
+     *
+     * @param usernames
+     * @return the loaded accounts
+     */
+    @Override
+    public Collection<Account> loadAccounts(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Account> accounts = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement accountStatement = conn.prepareStatement(accountQuery);
+             PreparedStatement rolesStatement = prepareStatement(conn, accountRolesQuery);
+             PreparedStatement permissionsStatement = prepareStatement(conn, accountPermissionsQuery)) {
+
+            Map<String, Role> definedRoles = getDefinedRoles(conn);
+            for (String username : usernames) {
+                Account account = getAccount(conn, accountStatement, username);
+                if (account != null) {
+                    Set<String> roles = rolesStatement == null ? Collections.emptySet()
+                            : queryValues(rolesStatement, username, COMMA_SEMI_COLON_DELIMITER);
+                    Set<String> permissions = permissionsStatement == null ? Collections.emptySet()
+                            : queryValues(permissionsStatement, username, SEMI_COLON_DELIMITER);
+                    addAuthorizations(account, definedRoles, roles, permissions);
+                    accounts.add(account);
+                }
+            }
+        } catch (SQLException e) {
+            log.error("There was an SQL error while loading {} accounts", usernames.size(), e);
+        }
+
+        log.debug("Loaded {} of {} accounts from '{}'", accounts.size(), usernames.size(), getRealmName());
+        return accounts;
+    }
+
     protected Account getAccount(Connection conn, String username) throws SQLException {
-        Account account = null;
         try (PreparedStatement ps = conn.prepareStatement(accountQuery)) {
-            ps.setString(1, username);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    // Check to ensure only one row is processed
-                    if (account != null) {
-                        throw new FathomException("More than one row found for '{}'. Usernames must be unique.", username);
-                    }
+            return getAccount(conn, ps, username);
+        }
+    }
 
+    private Account getAccount(Connection conn, PreparedStatement ps, String username) throws SQLException {
+        Account account = null;
+        Set<String> roles = new LinkedHashSet<>();
+        ps.setString(1, username);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (account == null) {
                     String password = Strings.emptyToNull(rs.getString(passwordMapping));
                     Preconditions.checkNotNull(password, "Password for '{}' is null or empty!", username);
 
@@ -353,73 +462,105 @@ public class JdbcRealm extends CachingRealm {
 
                     // create an account
                     account = new Account(name, new StandardCredentials(username, password));
+                } else if (!combinedQuery) {
+                    // Check to ensure only one row is processed
+                    throw new FathomException("More than one row found for '{}'. Usernames must be unique.", username);
+                }
 
-                    // add email addresses from the accounts query
-                    if (!Strings.isNullOrEmpty(emailMapping)) {
-                        String value = rs.getString(emailMapping);
-                        Set<String> addresses = toSet(value, COMMA_SEMI_COLON_DELIMITER);
-                        account.addEmailAddresses(addresses);
-                    }
+                setAccountMappings(rs, account, roles);
+            }
+        }
 
-                    // add permissions from the accounts query
-                    if (!Strings.isNullOrEmpty(permissionMapping)) {
-                        String value = rs.getString(permissionMapping);
-                        Set<String> permissions = toSet(value, SEMI_COLON_DELIMITER);
-                        for (String permission : permissions) {
-                            account.getAuthorizations().addPermission(permission);
-                        }
-                    }
+        if (account != null) {
+            if (!roles.isEmpty()) {
+                addAuthorizations(account, getDefinedRoles(conn), roles, Collections.emptySet());
+            }
+        }
 
-                    // add roles from the accounts query
-                    if (!Strings.isNullOrEmpty(roleMapping)) {
-                        Map<String, Role> definedRoles = getDefinedRoles(conn);
-
-                        String value = rs.getString(roleMapping);
-                        Set<String> roles = toSet(value, COMMA_SEMI_COLON_DELIMITER);
-                        for (String role : roles) {
-                            if (definedRoles.containsKey(role)) {
-                                Role definedRole = definedRoles.get(role);
-                                account.getAuthorizations().addRole(definedRole);
-                            } else {
-                                account.getAuthorizations().addRole(role);
-                            }
-                        }
-                    }
+        return account;
+    }
 
-                    cacheAccount(account);
-                }
+    /**
+     * Adds the email addresses and permissions mapped from a row of the accounts query
+     * and collects the mapped roles.
+     */
+    private void setAccountMappings(ResultSet rs, Account account, Set<String> roles) throws SQLException {
+        // add email addresses from the accounts query
+        if (!Strings.isNullOrEmpty(emailMapping)) {
+            String value = rs.getString(emailMapping);
+            Set<String> addresses = toSet(value, COMMA_SEMI_COLON_DELIMITER);
+            account.addEmailAddresses(addresses);
+        }
+
+        // add permissions from the accounts query
+        if (!Strings.isNullOrEmpty(permissionMapping)) {
+            String value = rs.getString(permissionMapping);
+            Set<String> permissions = toSet(value, SEMI_COLON_DELIMITER);
+            for (String permission : permissions) {
+                account.getAuthorizations().addPermission(permission);
             }
         }
 
-        return account;
+        // add roles from the accounts query
+        if (!Strings.isNullOrEmpty(roleMapping)) {
+            String value = rs.getString(roleMapping);
+            roles.addAll(toSet(value, COMMA_SEMI_COLON_DELIMITER));
+        }
     }
 
     private void setAuthorizationsByQuery(Connection conn, Account account) throws SQLException {
         // Retrieve roles and permissions from database
-        Map<String, Role> declaredRoles = getDefinedRoles(conn);
-
         Set<String> roles = getRolesByQuery(conn, account.getUsername());
+        Set<String> permissions = getPermissionsByQuery(conn, account.getUsername());
+        if (!roles.isEmpty() || !permissions.isEmpty()) {
+            addAuthorizations(account, getDefinedRoles(conn), roles, permissions);
+        }
+    }
+
+    private void addAuthorizations(Account account, Map<String, Role> definedRoles, Set<String> roles, Set<String> permissions) {
         for (String role : roles) {
-            if (declaredRoles.containsKey(role)) {
-                Role declaredRole = declaredRoles.get(role);
-                account.getAuthorizations().addRole(declaredRole);
+            if (definedRoles.containsKey(role)) {
+                Role definedRole = definedRoles.get(role);
+                account.getAuthorizations().addRole(definedRole);
             } else {
                 account.getAuthorizations().addRole(role);
             }
         }
 
-        Set<String> permissions = getPermissionsByQuery(conn, account.getUsername());
         for (String permission : permissions) {
             account.getAuthorizations().addPermission(permission);
         }
     }
 
+    /**
+     * Returns the defined roles.  The result of the definedRolesQuery is cached for definedRolesTtl
+     * minutes or until {@link #clearCache()} is called.
+     *
+     * @param conn
+     * @return the defined roles
+     * @throws SQLException
+     */
     protected Map<String, Role> getDefinedRoles(Connection conn) throws SQLException {
         if (Strings.isNullOrEmpty(definedRolesQuery)) {
             log.trace("'{}' not set", "definedRolesQuery");
             return Collections.emptyMap();
         }
 
+        Map<String, Role> roles = definedRoles;
+        if (roles != null && definedRolesExpiration - System.nanoTime() > 0) {
+            return roles;
+        }
+
+        roles = Collections.unmodifiableMap(queryDefinedRoles(conn));
+        if (definedRolesTtl > 0) {
+            definedRolesExpiration = System.nanoTime() + TimeUnit.MINUTES.toNanos(definedRolesTtl);
+            definedRoles = roles;
+        }
+
+        return roles;
+    }
+
+    private Map<String, Role> queryDefinedRoles(Connection conn) throws SQLException {
         Map<String, Role> declaredRoles = new HashMap<>();
         try (PreparedStatement ps = conn.prepareStatement(definedRolesQuery)) {
             try (ResultSet rs = ps.executeQuery()) {
@@ -452,19 +593,9 @@ public class JdbcRealm extends CachingRealm {
             return Collections.emptySet();
         }
 
-        Set<String> roles = new LinkedHashSet<String>();
         try (PreparedStatement ps = conn.prepareStatement(accountRolesQuery)) {
-            ps.setString(1, username);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    // Add the role to the set of roles
-                    String value = rs.getString(1);
-                    roles.addAll(toSet(value, COMMA_SEMI_COLON_DELIMITER));
-                }
-            }
+            return queryValues(ps, username, COMMA_SEMI_COLON_DELIMITER);
         }
-
-        return roles;
     }
 
     protected Set<String> getPermissionsByQuery(Connection conn, String username) throws SQLException {
@@ -473,19 +604,35 @@ public class JdbcRealm extends CachingRealm {
             return Collections.emptySet();
         }
 
-        Set<String> permissions = new LinkedHashSet<String>();
         try (PreparedStatement ps = conn.prepareStatement(accountPermissionsQuery)) {
-            ps.setString(1, username);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    // Add the permission to the set of permissions
-                    String value = rs.getString(1);
-                    permissions.addAll(toSet(value, SEMI_COLON_DELIMITER));
-                }
+            return queryValues(ps, username, SEMI_COLON_DELIMITER);
+        }
+    }
+
+    /**
+     * Executes a query for the username and collects the delimited values of the first column.
+     */
+    private Set<String> queryValues(PreparedStatement ps, String username, String delimiter) throws SQLException {
+        Set<String> values = new LinkedHashSet<>();
+        ps.setString(1, username);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String value = rs.getString(1);
+                values.addAll(toSet(value, delimiter));
             }
         }
 
-        return permissions;
+        return values;
+    }
+
+    private PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+        return Strings.isNullOrEmpty(sql) ? null : conn.prepareStatement(sql);
+    }
+
+    @Override
+    public void clearCache() {
+        super.clearCache();
+        definedRoles = null;
     }
 
     /**
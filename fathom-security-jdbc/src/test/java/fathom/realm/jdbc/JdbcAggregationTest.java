@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.realm.jdbc;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import fathom.authc.StandardCredentials;
+import fathom.conf.Settings;
+import fathom.realm.Account;
+import fathom.security.SecurityManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Counts the JdbcRealm statements of the SecurityManager account aggregation policies
+ * for a JdbcRealm and a FileRealm.
+ *
+ * @author James Moger
+ */
+public class JdbcAggregationTest extends Assert {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    SecurityManager securityManager;
+
+    StatementCounter counter;
+
+    @After
+    public void tearDown() {
+        if (securityManager != null) {
+            securityManager.stop();
+        }
+    }
+
+    @Test
+    public void testAll() throws IOException {
+        start("all", "jetsons");
+
+        // account, roles, permissions, and defined roles; the aggregation reuses the authenticated account
+        Account account = authenticate("gjetson", "astro");
+        assertEquals(4, counter.executed.get());
+        assertTrue(account.hasRole("buttonpusher"));
+        assertTrue(account.hasRole("inspector"));
+        assertTrue(account.getEmailAddresses().contains("george@jetsons.com"));
+
+        // the JdbcRealm account query for the FileRealm account
+        account = authenticate("cogswell", "cogs");
+        assertEquals(1 + 1, counter.executed.get());
+        assertTrue(account.hasRole("competitor"));
+    }
+
+    @Test
+    public void testFirst() throws IOException {
+        start("first", "jetsons");
+
+        Account account = authenticate("gjetson", "astro");
+        assertEquals(4, counter.executed.get());
+        assertTrue(account.hasRole("buttonpusher"));
+        assertFalse(account.hasRole("inspector"));
+
+        account = authenticate("cogswell", "cogs");
+        assertEquals(1, counter.executed.get());
+        assertTrue(account.hasRole("competitor"));
+    }
+
+    @Test
+    public void testGroups() throws IOException {
+        start("groups", "jetsons");
+
+        Account account = authenticate("gjetson", "astro");
+        assertEquals(4, counter.executed.get());
+        assertTrue(account.hasRole("buttonpusher"));
+        assertTrue(account.hasRole("inspector"));
+        assertFalse(account.hasRole("employee"));
+
+        account = authenticate("cogswell", "cogs");
+        assertEquals(1 + 1, counter.executed.get());
+        assertTrue(account.hasRole("competitor"));
+    }
+
+    @Test
+    public void testSeparateGroups() throws IOException {
+        start("groups", "cogswell");
+
+        Account account = authenticate("gjetson", "astro");
+        assertEquals(4, counter.executed.get());
+        assertFalse(account.hasRole("inspector"));
+
+        account = authenticate("cogswell", "cogs");
+        assertEquals(1, counter.executed.get());
+        assertTrue(account.hasRole("competitor"));
+    }
+
+    @Test
+    public void testLazy() throws IOException {
+        start("lazy", "jetsons");
+
+        Account account = authenticate("cogswell", "cogs");
+        assertEquals(1, counter.executed.get());
+
+        // the first authorization check aggregates the JdbcRealm account
+        assertTrue(account.hasRole("competitor"));
+        assertEquals(1 + 1, counter.executed.get());
+        assertTrue(account.isPermitted("sprockets:sabotage"));
+        assertEquals(1 + 1, counter.executed.get());
+
+        account = authenticate("gjetson", "astro");
+        assertEquals(4, counter.executed.get());
+        assertTrue(account.hasRole("inspector"));
+        assertTrue(account.isPermitted("powers:sleeping"));
+        assertEquals(4, counter.executed.get());
+    }
+
+    private Account authenticate(String username, String password) {
+        counter.reset();
+        Account account = securityManager.authenticate(new StandardCredentials(username, password));
+        assertNotNull(account);
+        return account;
+    }
+
+    private void start(String aggregation, String fileGroup) throws IOException {
+        String database = "aggregation_" + aggregation + "_" + fileGroup;
+
+        File users = folder.newFile("users.conf");
+        write(users, "accounts: [\n"
+                + "  { username: gjetson, emailAddresses: [\"george@jetsons.com\"], roles: [inspector] }\n"
+                + "  { username: cogswell, password: cogs, roles: [competitor], permissions: [\"sprockets:sabotage\"] }\n"
+                + "]\n");
+
+        File realms = folder.newFile("realms.conf");
+        write(realms, "aggregation: " + aggregation + "\n"
+                + "realms: [\n"
+                + "  {\n"
+                + "    name: \"Jdbc Realm\"\n"
+                + "    type: \"fathom.realm.jdbc.JdbcRealm\"\n"
+                + "    group: jetsons\n"
+                + "    url: \"jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1\"\n"
+                + "    username: \"\"\n"
+                + "    password: \"\"\n"
+                + "    startScript: \"classpath:conf/realm.sql\"\n"
+                + "    accountQuery: \"select * from accounts where username=?\"\n"
+                + "    passwordMapping: password\n"
+                + "    nameMapping: name\n"
+                + "    emailMapping: email\n"
+                + "    accountRolesQuery: \"select role from account_roles where username=?\"\n"
+                + "    accountPermissionsQuery: \"select permission from account_permissions where username=?\"\n"
+                + "    definedRolesQuery: \"select role, definition from defined_roles\"\n"
+                + "  }\n"
+                + "  {\n"
+                + "    name: \"File Realm\"\n"
+                + "    type: \"fathom.realm.FileRealm\"\n"
+                + "    group: " + fileGroup + "\n"
+                + "    file: \"" + users.getAbsolutePath().replace("\\", "/") + "\"\n"
+                + "  }\n"
+                + "  {\n"
+                + "    name: \"Spacely Realm\"\n"
+                + "    type: \"fathom.realm.MemoryRealm\"\n"
+                + "    accounts: [\n"
+                + "      { username: gjetson, roles: [employee] }\n"
+                + "    ]\n"
+                + "  }\n"
+                + "]\n");
+
+        Settings settings = new Settings();
+        settings.overrideSetting("security.configurationFile", "url:" + realms.toURI().toURL());
+
+        securityManager = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Settings.class).toInstance(settings);
+            }
+        }).getInstance(SecurityManager.class);
+        securityManager.start();
+
+        // count the statements of the JdbcRealm
+        counter = new StatementCounter(database);
+        JdbcRealm jdbcRealm = securityManager.getRealms(JdbcRealm.class).get(0);
+        jdbcRealm.stop();
+        jdbcRealm.setDataSource(counter.dataSource);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
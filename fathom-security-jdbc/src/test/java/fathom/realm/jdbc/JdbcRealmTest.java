@@ -18,12 +18,16 @@ package fathom.realm.jdbc;
 
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import fathom.authc.StandardCredentials;
 import fathom.realm.Account;
 import junit.framework.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Tests the Fathom JdbcRealm.
@@ -104,4 +108,116 @@ public class JdbcRealmTest extends Assert {
         assertTrue("Defined role lookup failed", account.isPermitted("secure:*"));
         assertTrue("Role lookup failed", account.hasRole("admin"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFailedAuthenticationIsNotCached() {
+        Map<String, Object> settings = getSettings();
+        settings.put("cacheTtl", 5);
+        settings.put("cacheMax", 100);
+        JdbcRealm realm = getRealm(getConfig(settings));
+
+        assertNull(realm.authenticate(new StandardCredentials("jjetson", "jane")));
+
+        Account account = realm.authenticate(new StandardCredentials("jjetson", "george"));
+        assertNotNull("Authentication failed", account);
+        assertTrue("Role lookup failed", account.hasRole("admin"));
+        assertTrue("Defined role lookup failed", account.isPermitted("secure:*"));
+
+        // authenticated against the cache
+        account = realm.authenticate(new StandardCredentials("jjetson", "george"));
+        assertNotNull("Authentication failed", account);
+        assertTrue("Role lookup failed", account.hasRole("admin"));
+
+        realm.stop();
+    }
+
+    @Test
+    public void testStatementsPerAuthentication() {
+        StatementCounter counter = new StatementCounter("statements");
+        JdbcRealm realm = getRealm(getConfig(), counter);
+
+        counter.reset();
+        Account account = realm.authenticate(new StandardCredentials("jjetson", "george"));
+        assertNotNull("Authentication failed", account);
+        assertTrue("Defined role lookup failed", account.isPermitted("secure:*"));
+        // account, roles, permissions, and defined roles
+        assertEquals(4, counter.executed.get());
+
+        // the defined roles are cached
+        counter.reset();
+        assertNull(realm.authenticate(new StandardCredentials("jjetson", "jane")));
+        account = realm.authenticate(new StandardCredentials("gjetson", "astro"));
+        assertNotNull("Authentication failed", account);
+        assertTrue("Role lookup failed", account.hasRole("buttonpusher"));
+        assertEquals(1 + 3, counter.executed.get());
+
+        realm.clearCache();
+        counter.reset();
+        assertNotNull(realm.authenticate(new StandardCredentials("gjetson", "astro")));
+        assertEquals(4, counter.executed.get());
+
+        realm.stop();
+    }
+
+    @Test
+    public void testCombinedQuery() {
+        Map<String, Object> settings = getSettings();
+        settings.put("combinedQuery", true);
+        settings.put("accountQuery", "select a.*, r.role, p.permission from accounts a"
+                + " left join account_roles r on r.username = a.username"
+                + " left join account_permissions p on p.username = a.username"
+                + " where a.username=?");
+        settings.put("roleMapping", "role");
+        settings.put("permissionMapping", "permission");
+        settings.remove("accountRolesQuery");
+        settings.remove("accountPermissionsQuery");
+
+        StatementCounter counter = new StatementCounter("combined");
+        JdbcRealm realm = getRealm(getConfig(settings), counter);
+        assertNotNull(realm.authenticate(new StandardCredentials("jjetson", "george")));
+
+        counter.reset();
+        Account account = realm.authenticate(new StandardCredentials("gjetson", "astro"));
+        assertEquals(1, counter.executed.get());
+
+        assertNotNull("Authentication failed", account);
+        assertEquals("Name mappingfailed", "George Jetson", account.getName());
+        assertTrue("Email address mapping failed", account.getEmailAddresses().contains("george@spacelyspacesprockets.com"));
+        assertTrue("Role lookup failed", account.hasRole("buttonpusher"));
+        assertTrue("Permission lookup failed", account.isPermitted("powers:sleeping"));
+        assertFalse("Role lookup failed", account.hasRole("admin"));
+
+        account = realm.authenticate(new StandardCredentials("jjetson", "george"));
+        assertTrue("Defined role lookup failed", account.isPermitted("secure:*"));
+        assertTrue("Role lookup failed", account.hasRole("admin"));
+
+        realm.stop();
+    }
+
+    @Test
+    public void testGetAccounts() {
+        StatementCounter counter = new StatementCounter("bulk");
+        JdbcRealm realm = getRealm(getConfig(), counter);
+
+        counter.reset();
+        Collection<Account> accounts = realm.getAccounts(Arrays.asList("gjetson", "jjetson", "nobody"));
+        Map<String, Account> byName = accounts.stream().collect(Collectors.toMap(Account::getUsername, a -> a));
+        assertEquals(2, byName.size());
+        assertTrue(byName.get("gjetson").isPermitted("powers:sleeping"));
+        assertTrue(byName.get("jjetson").isPermitted("secure:*"));
+
+        // the account, roles, and permissions statements are prepared once and reused
+        assertEquals(4, counter.prepared.get());
+
+        realm.stop();
+    }
+
+    private JdbcRealm getRealm(Config config, StatementCounter counter) {
+        JdbcRealm realm = new JdbcRealm();
+        realm.setup(config);
+        realm.setDataSource(counter.dataSource);
+        realm.start();
+        return realm;
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fathom.realm.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps an H2 DataSource and counts the prepared and executed statements.
+ *
+ * @author James Moger
+ */
+class StatementCounter {
+
+    final AtomicInteger prepared = new AtomicInteger();
+
+    final AtomicInteger executed = new AtomicInteger();
+
+    final DataSource dataSource;
+
+    StatementCounter(String database) {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+        dataSource = wrap(DataSource.class, h2);
+    }
+
+    void reset() {
+        prepared.set(0);
+        executed.set(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T wrap(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (method.getName().startsWith("execute")) {
+                executed.incrementAndGet();
+            }
+            if (result instanceof Connection) {
+                return wrap(Connection.class, (Connection) result);
+            } else if (result instanceof PreparedStatement) {
+                prepared.incrementAndGet();
+                return wrap(PreparedStatement.class, (PreparedStatement) result);
+            }
+            return result;
+        });
+    }
+
+}
@@ -196,6 +196,11 @@ public class KeycloakRealm implements Realm, UserSessionManagement {
     public void stop() {
     }
 
+    @Override
+    public LookupCost getLookupCost() {
+        return LookupCost.MEMORY;
+    }
+
     @Override
     public String getRealmName() {
         return realmName;
@@ -16,22 +16,31 @@
 
 package fathom.realm.ldap;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.inject.Inject;
 import com.typesafe.config.Config;
 import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.BindRequest;
 import com.unboundid.ldap.sdk.DereferencePolicy;
-import com.unboundid.ldap.sdk.ExtendedResult;
+import com.unboundid.ldap.sdk.GetEntryLDAPConnectionPoolHealthCheck;
 import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPConnectionPool;
+import com.unboundid.ldap.sdk.LDAPConnectionPoolStatistics;
 import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPInterface;
 import com.unboundid.ldap.sdk.LDAPSearchException;
-import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.PostConnectProcessor;
 import com.unboundid.ldap.sdk.SearchRequest;
 import com.unboundid.ldap.sdk.SearchResult;
 import com.unboundid.ldap.sdk.SearchResultEntry;
 import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldap.sdk.ServerSet;
 import com.unboundid.ldap.sdk.SimpleBindRequest;
-import com.unboundid.ldap.sdk.extensions.StartTLSExtendedRequest;
+import com.unboundid.ldap.sdk.SingleServerSet;
+import com.unboundid.ldap.sdk.StartTLSPostConnectProcessor;
 import com.unboundid.util.ssl.SSLUtil;
 import com.unboundid.util.ssl.TrustAllTrustManager;
 import fathom.authc.StandardCredentials;
@@ -44,11 +53,22 @@ import org.slf4j.LoggerFactory;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * LdapRealm allows you to authenticate against an Ldap server.
+ * <p>
+ * Account and group searches are executed on a pool of connections bound with the
+ * configured service account.  User passwords are verified on a separate pool of
+ * connections which are only used for user binds and which are bound with the service
+ * account again when they are returned to the pool.
+ * </p>
  *
  * @author John Crygier
  * @author James Moger
@@ -79,6 +99,21 @@ public class LdapRealm extends CachingRealm {
 
     protected List<String> adminGroups;
 
+    protected int poolSize;
+
+    protected int bindPoolSize;
+
+    protected int poolMaxConnectionAge;
+
+    protected int poolHealthCheckInterval;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    private volatile LDAPConnectionPool searchPool;
+
+    private volatile LDAPConnectionPool bindPool;
+
     // From: https://www.owasp.org/index.php/Preventing_LDAP_Injection_in_Java
     public static final String escapeLDAPSearchFilter(String filter) {
         StringBuilder sb = new StringBuilder();
@@ -161,6 +196,28 @@ public class LdapRealm extends CachingRealm {
             adminGroups = config.getStringList("adminGroups");
         }
 
+        poolSize = 10;
+        if (config.hasPath("poolSize")) {
+            poolSize = config.getInt("poolSize");
+        }
+        Preconditions.checkArgument(poolSize > 0, "The LDAP 'poolSize' setting must be greater than 0!");
+
+        bindPoolSize = poolSize;
+        if (config.hasPath("bindPoolSize")) {
+            bindPoolSize = config.getInt("bindPoolSize");
+        }
+        Preconditions.checkArgument(bindPoolSize > 0, "The LDAP 'bindPoolSize' setting must be greater than 0!");
+
+        poolMaxConnectionAge = 30;
+        if (config.hasPath("poolMaxConnectionAge")) {
+            poolMaxConnectionAge = config.getInt("poolMaxConnectionAge");
+        }
+
+        poolHealthCheckInterval = 60;
+        if (config.hasPath("poolHealthCheckInterval")) {
+            poolHealthCheckInterval = config.getInt("poolHealthCheckInterval");
+        }
+
     }
 
     @Override
@@ -177,11 +234,33 @@ public class LdapRealm extends CachingRealm {
         Util.logSetting(log, "groupBase", groupBase);
         Util.logSetting(log, "groupMemberPattern", groupMemberPattern);
         Util.logSetting(log, "adminGroups", adminGroups);
+        Util.logSetting(log, "poolSize", poolSize);
+        Util.logSetting(log, "bindPoolSize", bindPoolSize);
+        Util.logSetting(log, "poolMaxConnectionAge", poolMaxConnectionAge);
+        Util.logSetting(log, "poolHealthCheckInterval", poolHealthCheckInterval);
         super.logCacheSettings(log);
+
+        // open the pools early, a failure is retried on the first authentication
+        if (Strings.isNullOrEmpty(ldapBindPattern)) {
+            getSearchPool();
+        }
+        getBindPool();
     }
 
     @Override
-    public void stop() {
+    public synchronized void stop() {
+        if (searchPool != null) {
+            searchPool.close();
+            searchPool = null;
+        }
+        if (bindPool != null) {
+            bindPool.close();
+            bindPool = null;
+        }
+        if (metricRegistry != null) {
+            String prefix = MetricRegistry.name(LdapRealm.class, getRealmName()) + ".";
+            metricRegistry.removeMatching((name, metric) -> name.startsWith(prefix));
+        }
     }
 
     @Override
@@ -200,102 +279,193 @@ public class LdapRealm extends CachingRealm {
 
     @Override
     public Account authenticate(final String username, final String password) {
-        LDAPConnection ldapConnection = getLdapConnection();
-        if (ldapConnection != null) {
-            try {
-                boolean alreadyAuthenticated = false;
+        if (Strings.isNullOrEmpty(ldapBindPattern)) {
+            LDAPConnectionPool pool = getSearchPool();
+            if (pool == null) {
+                return null;
+            }
+            return authenticate(pool, username, password, false);
+        }
 
-                if (!Strings.isNullOrEmpty(ldapBindPattern)) {
-                    try {
-                        String bindUser = ldapBindPattern.replace("${username}", escapeLDAPSearchFilter(username));
-                        ldapConnection.bind(bindUser, password);
+        // bind as the user and search with the rights of the user
+        LDAPConnectionPool pool = getBindPool();
+        if (pool == null) {
+            return null;
+        }
 
-                        alreadyAuthenticated = true;
-                    } catch (LDAPException e) {
-                        return null;
-                    }
-                }
+        LDAPConnection ldapConnection = getConnection(pool);
+        if (ldapConnection == null) {
+            return null;
+        }
+
+        boolean usable = true;
+        try {
+            String bindUser = ldapBindPattern.replace("${username}", escapeLDAPSearchFilter(username));
+            ldapConnection.bind(bindUser, password);
 
-                // Find the logging in user's DN
-                String searchPattern = accountPattern.replace("${username}", escapeLDAPSearchFilter(username));
+            return authenticate(ldapConnection, username, password, true);
+        } catch (LDAPException e) {
+            usable = e.getResultCode().isConnectionUsable();
+            return null;
+        } finally {
+            releaseBoundConnection(pool, ldapConnection, usable);
+        }
+    }
 
-                SearchResult result = doSearch(ldapConnection, accountBase, searchPattern);
-                if (result != null && result.getEntryCount() == 1) {
-                    SearchResultEntry accountSearchResult = result.getSearchEntries().get(0);
-                    String accountDN = accountSearchResult.getDN();
+    private Account authenticate(LDAPInterface ldap, String username, String password, boolean alreadyAuthenticated) {
+        // Find the logging in user's DN
+        String searchPattern = accountPattern.replace("${username}", escapeLDAPSearchFilter(username));
 
-                    if (alreadyAuthenticated || isAuthenticated(ldapConnection, accountDN, password)) {
-                        log.debug("Authentication succeeded for '{}' against '{}'", username, getRealmName());
+        SearchResult result = doSearch(ldap, accountBase, searchPattern);
+        if (result != null && result.getEntryCount() == 1) {
+            SearchResultEntry accountSearchResult = result.getSearchEntries().get(0);
+            String accountDN = accountSearchResult.getDN();
 
-                        Account account = null;
-                        synchronized (this) {
-                            account = new Account(username, new StandardCredentials(username, password));
-                            setAccountRoles(ldapConnection, accountSearchResult, account);
-                            setAccountAttributes(accountSearchResult, account);
+            if (alreadyAuthenticated || isAuthenticated(accountDN, password)) {
+                log.debug("Authentication succeeded for '{}' against '{}'", username, getRealmName());
 
-                            cacheAccount(account);
-                        }
+                Account account = null;
+                synchronized (this) {
+                    account = newAccount(ldap, accountSearchResult, username, password);
 
-                        return account;
-                    } else {
-                        log.debug("Authentication failed for '{}' against '{}'", username, getRealmName());
-                    }
-                } else if (result == null || result.getSearchEntries().size() == 0) {
-                    log.debug("No account found for '{}' in '{}'", username, getRealmName());
+                    cacheAccount(account);
                 }
-            } finally {
-                ldapConnection.close();
+
+                return account;
+            } else {
+                log.debug("Authentication failed for '{}' against '{}'", username, getRealmName());
             }
+        } else if (result == null || result.getSearchEntries().size() == 0) {
+            log.debug("No account found for '{}' in '{}'", username, getRealmName());
         }
         return null;
     }
 
-    private LDAPConnection getLdapConnection() {
+    private Account newAccount(LDAPInterface ldap, SearchResultEntry accountSearchResult, String username, String password) {
+        Account account = new Account(username, new StandardCredentials(username, password));
+        setAccountRoles(ldap, accountSearchResult, account);
+        setAccountAttributes(accountSearchResult, account);
+        return account;
+    }
+
+    /**
+     * Loads the specified accounts, without credentials, with the search pool.
+     *
+     * @param usernames
+     * @return the loaded accounts
+     */
+    @Override
+    public Collection<Account> loadAccounts(Collection<String> usernames) {
+        LDAPConnectionPool pool = getSearchPool();
+        if (pool == null || usernames.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Account> accounts = new ArrayList<>();
+        for (String username : usernames) {
+            String searchPattern = accountPattern.replace("${username}", escapeLDAPSearchFilter(username));
+            SearchResult result = doSearch(pool, accountBase, searchPattern);
+            if (result != null && result.getEntryCount() == 1) {
+                accounts.add(newAccount(pool, result.getSearchEntries().get(0), username, null));
+            }
+        }
+
+        log.debug("Loaded {} of {} accounts from '{}'", accounts.size(), usernames.size(), getRealmName());
+        return accounts;
+    }
+
+    /**
+     * Returns the pool of connections, bound with the service account, used for searches.
+     *
+     * @return the search pool or null if the pool could not be created
+     */
+    protected LDAPConnectionPool getSearchPool() {
+        if (searchPool == null) {
+            synchronized (this) {
+                if (searchPool == null) {
+                    searchPool = createConnectionPool("search", getServiceBindRequest(), poolSize);
+                }
+            }
+        }
+        return searchPool;
+    }
+
+    /**
+     * Returns the pool of connections used to verify user passwords.  These connections
+     * are bound as a user on every use and are bound with the service account again
+     * before they are returned to the pool.
+     *
+     * @return the bind pool or null if the pool could not be created
+     */
+    protected LDAPConnectionPool getBindPool() {
+        if (bindPool == null) {
+            synchronized (this) {
+                if (bindPool == null) {
+                    bindPool = createConnectionPool("bind", getServiceBindRequest(), bindPoolSize);
+                }
+            }
+        }
+        return bindPool;
+    }
+
+    private BindRequest getServiceBindRequest() {
+        if (Strings.isNullOrEmpty(ldapUsername) && Strings.isNullOrEmpty(ldapPassword)) {
+            // anonymous bind
+            return new SimpleBindRequest();
+        } else {
+            // authenticated bind
+            return new SimpleBindRequest(ldapUsername, ldapPassword);
+        }
+    }
+
+    private LDAPConnectionPool createConnectionPool(String poolName, BindRequest bindRequest, int size) {
         try {
 
             URI ldapUrl = new URI(this.ldapUrl);
             String ldapHost = ldapUrl.getHost();
             int ldapPort = ldapUrl.getPort();
 
-            LDAPConnection conn;
+            ServerSet serverSet;
+            PostConnectProcessor postConnectProcessor = null;
             if (ldapUrl.getScheme().equalsIgnoreCase("ldaps")) {
                 // SSL
                 SSLUtil sslUtil = new SSLUtil(new TrustAllTrustManager());
-                conn = new LDAPConnection(sslUtil.createSSLSocketFactory());
                 if (ldapPort == -1) {
                     ldapPort = 636;
                 }
+                serverSet = new SingleServerSet(ldapHost, ldapPort, sslUtil.createSSLSocketFactory());
             } else if (ldapUrl.getScheme().equalsIgnoreCase("ldap") || ldapUrl.getScheme().equalsIgnoreCase("ldap+tls")) {
                 // no encryption or StartTLS
-                conn = new LDAPConnection();
                 if (ldapPort == -1) {
                     ldapPort = 389;
                 }
+                serverSet = new SingleServerSet(ldapHost, ldapPort);
+
+                if (ldapUrl.getScheme().equalsIgnoreCase("ldap+tls")) {
+                    SSLUtil sslUtil = new SSLUtil(new TrustAllTrustManager());
+                    postConnectProcessor = new StartTLSPostConnectProcessor(sslUtil.createSSLContext());
+                }
             } else {
                 log.error("Unsupported LDAP URL scheme: " + ldapUrl.getScheme());
                 return null;
             }
 
-            conn.connect(ldapHost, ldapPort);
+            LDAPConnectionPool pool = new LDAPConnectionPool(serverSet, bindRequest, 1, size, postConnectProcessor);
+            pool.setConnectionPoolName(getRealmName() + "-" + poolName);
+            pool.setCreateIfNecessary(true);
+            pool.setMaxConnectionAgeMillis(TimeUnit.MINUTES.toMillis(poolMaxConnectionAge));
 
-            if (ldapUrl.getScheme().equalsIgnoreCase("ldap+tls")) {
-                SSLUtil sslUtil = new SSLUtil(new TrustAllTrustManager());
-                ExtendedResult extendedResult = conn.processExtendedOperation(
-                        new StartTLSExtendedRequest(sslUtil.createSSLContext()));
-                if (extendedResult.getResultCode() != ResultCode.SUCCESS) {
-                    throw new LDAPException(extendedResult.getResultCode());
-                }
+            // read the root DSE of idle connections in the background and of connections which raised an error
+            pool.setHealthCheck(new GetEntryLDAPConnectionPoolHealthCheck("", TimeUnit.SECONDS.toMillis(10),
+                    false, false, false, true, true));
+            if (poolHealthCheckInterval > 0) {
+                pool.setHealthCheckIntervalMillis(TimeUnit.SECONDS.toMillis(poolHealthCheckInterval));
             }
 
-            if (Strings.isNullOrEmpty(ldapUsername) && Strings.isNullOrEmpty(ldapPassword)) {
-                // anonymous bind
-                conn.bind(new SimpleBindRequest());
-            } else {
-                // authenticated bind
-                conn.bind(new SimpleBindRequest(ldapUsername, ldapPassword));
-            }
+            registerMetrics(poolName, pool);
 
-            return conn;
+            log.debug("Created LDAP connection pool '{}' with {} connections", pool.getConnectionPoolName(), size);
+            return pool;
 
         } catch (URISyntaxException e) {
             log.error("Bad LDAP URL, should be in the form: ldap(s|+tls)://<server>:<port>", e);
@@ -312,24 +482,100 @@ public class LdapRealm extends CachingRealm {
         return null;
     }
 
-    private boolean isAuthenticated(LDAPConnection ldapConnection, String userDn, String password) {
+    private void registerMetrics(String poolName, LDAPConnectionPool pool) {
+        if (metricRegistry == null) {
+            return;
+        }
+
+        registerGauge(poolName, "available", pool, LDAPConnectionPoolStatistics::getNumAvailableConnections);
+        registerGauge(poolName, "maximumAvailable", pool, LDAPConnectionPoolStatistics::getMaximumAvailableConnections);
+        registerGauge(poolName, "checkouts", pool, LDAPConnectionPoolStatistics::getNumSuccessfulCheckouts);
+        registerGauge(poolName, "checkoutsAfterWaiting", pool, LDAPConnectionPoolStatistics::getNumSuccessfulCheckoutsAfterWaiting);
+        registerGauge(poolName, "failedCheckouts", pool, LDAPConnectionPoolStatistics::getNumFailedCheckouts);
+        registerGauge(poolName, "connectionsCreated", pool, LDAPConnectionPoolStatistics::getNumSuccessfulConnectionAttempts);
+        registerGauge(poolName, "failedConnections", pool, LDAPConnectionPoolStatistics::getNumFailedConnectionAttempts);
+        registerGauge(poolName, "closedDefunct", pool, LDAPConnectionPoolStatistics::getNumConnectionsClosedDefunct);
+        registerGauge(poolName, "closedExpired", pool, LDAPConnectionPoolStatistics::getNumConnectionsClosedExpired);
+    }
+
+    private void registerGauge(String poolName, String statistic, LDAPConnectionPool pool,
+                               Function<LDAPConnectionPoolStatistics, Number> function) {
+        String name = MetricRegistry.name(LdapRealm.class, getRealmName(), poolName, statistic);
+        metricRegistry.remove(name);
+        metricRegistry.register(name, (Gauge<Number>) () -> function.apply(pool.getConnectionPoolStatistics()));
+    }
+
+    private LDAPConnection getConnection(LDAPConnectionPool pool) {
+        try {
+            return pool.getConnection();
+        } catch (LDAPException e) {
+            if (!Strings.isNullOrEmpty(e.getDiagnosticMessage())) {
+                log.error(e.getDiagnosticMessage());
+            } else {
+                log.error("Error connecting to LDAP server", e);
+            }
+            return null;
+        }
+    }
+
+    private void releaseConnection(LDAPConnectionPool pool, LDAPConnection ldapConnection, boolean usable) {
+        if (usable) {
+            pool.releaseConnection(ldapConnection);
+        } else {
+            pool.releaseDefunctConnection(ldapConnection);
+        }
+    }
+
+    /**
+     * Releases a connection which was bound as a user.  The connection is bound with
+     * the service account again so that no user rights leak to the next checkout.
+     * If the re-bind fails the connection is closed.
+     */
+    private void releaseBoundConnection(LDAPConnectionPool pool, LDAPConnection ldapConnection, boolean usable) {
+        if (usable) {
+            try {
+                // bind requests are not thread-safe, use a new request for every re-bind
+                ldapConnection.bind(getServiceBindRequest());
+            } catch (LDAPException e) {
+                log.warn("Failed to re-bind LDAP connection with the service account", e);
+                usable = false;
+            }
+        }
+        releaseConnection(pool, ldapConnection, usable);
+    }
+
+    private boolean isAuthenticated(String userDn, String password) {
+        LDAPConnectionPool pool = getBindPool();
+        if (pool == null) {
+            return false;
+        }
+
+        LDAPConnection ldapConnection = getConnection(pool);
+        if (ldapConnection == null) {
+            return false;
+        }
+
+        boolean usable = true;
         try {
             // Binding will stop any LDAP-Injection Attacks since the searched-for user needs to bind to that DN
             ldapConnection.bind(userDn, password);
             return true;
         } catch (LDAPException e) {
+            usable = e.getResultCode().isConnectionUsable();
             if (!Strings.isNullOrEmpty(e.getDiagnosticMessage())) {
                 log.error(e.getDiagnosticMessage());
             } else {
                 log.error("Error authenticating user", e);
             }
             return false;
+        } finally {
+            releaseBoundConnection(pool, ldapConnection, usable);
         }
     }
 
-    private SearchResult doSearch(LDAPConnection ldapConnection, String base, String filter) {
+    private SearchResult doSearch(LDAPInterface ldap, String base, String filter) {
         try {
-            return ldapConnection.search(base, SearchScope.SUB, filter);
+            return ldap.search(base, SearchScope.SUB, filter);
         } catch (LDAPSearchException e) {
             if (!Strings.isNullOrEmpty(e.getDiagnosticMessage())) {
                 log.error(e.getDiagnosticMessage());
@@ -340,7 +586,7 @@ public class LdapRealm extends CachingRealm {
         }
     }
 
-    private SearchResult doSearch(LDAPConnection ldapConnection, String base, boolean dereferenceAliases, String filter, List<String> attributes) {
+    private SearchResult doSearch(LDAPInterface ldap, String base, boolean dereferenceAliases, String filter, List<String> attributes) {
         try {
             SearchRequest searchRequest = new SearchRequest(base, SearchScope.SUB, filter);
             if (dereferenceAliases) {
@@ -349,7 +595,7 @@ public class LdapRealm extends CachingRealm {
             if (attributes != null) {
                 searchRequest.setAttributes(attributes);
             }
-            return ldapConnection.search(searchRequest);
+            return ldap.search(searchRequest);
 
         } catch (LDAPException e) {
             if (!Strings.isNullOrEmpty(e.getDiagnosticMessage())) {
@@ -361,7 +607,7 @@ public class LdapRealm extends CachingRealm {
         }
     }
 
-    private void setAccountRoles(LDAPConnection ldapConnection, SearchResultEntry accountSearchResult, Account account) {
+    private void setAccountRoles(LDAPInterface ldap, SearchResultEntry accountSearchResult, Account account) {
         String accountDN = accountSearchResult.getDN();
 
         String groupMemberPattern = this.groupMemberPattern.replace("${dn}", escapeLDAPSearchFilter(accountDN));
@@ -372,7 +618,7 @@ public class LdapRealm extends CachingRealm {
             groupMemberPattern = groupMemberPattern.replace("${" + attribute.getName() + "}", escapeLDAPSearchFilter(attribute.getValue()));
         }
 
-        SearchResult groupsSearchResult = doSearch(ldapConnection, groupBase, true, groupMemberPattern, Arrays.asList("cn"));
+        SearchResult groupsSearchResult = doSearch(ldap, groupBase, true, groupMemberPattern, Arrays.asList("cn"));
         if (groupsSearchResult != null && groupsSearchResult.getEntryCount() > 0) {
             for (int i = 0; i < groupsSearchResult.getEntryCount(); i++) {
                 SearchResultEntry groupEntry = groupsSearchResult.getSearchEntries().get(i);
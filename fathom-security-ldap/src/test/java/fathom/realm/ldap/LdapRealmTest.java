@@ -16,22 +16,35 @@
  */
 package fathom.realm.ldap;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import com.unboundid.ldap.listener.InMemoryDirectoryServer;
 import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
 import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPConnectionPool;
+import com.unboundid.ldap.sdk.SimpleBindRequest;
 import com.unboundid.ldif.LDIFReader;
+import fathom.authc.StandardCredentials;
 import fathom.realm.Account;
 import junit.framework.Assert;
+import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An Integration test for LDAP that tests going against an in-memory UnboundID
@@ -71,6 +84,11 @@ public class LdapRealmTest extends Assert {
         ldap = newRealm(settings);
     }
 
+    @After
+    public void stop() {
+        ldap.stop();
+    }
+
     private Map<String, Object> getSettings() {
         Map<String, Object> settings = new HashMap<>();
         settings.put("url", "ldap://localhost:" + ldapPort);
@@ -88,6 +106,9 @@ public class LdapRealmTest extends Assert {
 
     private LdapRealm newRealm(Map<String, Object> settings) {
         Config config = ConfigFactory.parseMap(settings);
+        if (this.ldap != null) {
+            this.ldap.stop();
+        }
         LdapRealm ldap = new LdapRealm();
         ldap.setup(config);
         return ldap;
@@ -118,6 +139,20 @@ public class LdapRealmTest extends Assert {
         assertTrue("UserThree should be an administrator!", userThree.isAdministrator());
     }
 
+    @Test
+    public void testLoadAccount() {
+        // the account cache is disabled, the account is loaded with the search pool
+        Account userOne = ldap.loadAccount("UserOne");
+        assertNotNull(userOne);
+        assertFalse(ldap.hasAccount("UserOne"));
+        assertEquals("User One", userOne.getName());
+        assertNull(((StandardCredentials) userOne.getCredentials()).getPassword());
+        assertTrue(userOne.hasRole("Git_Admins"));
+        assertTrue(userOne.isAdministrator());
+
+        assertNull(ldap.loadAccount("UnknownUser"));
+    }
+
     @Test
     public void testSimpleName() {
         Account userOne = ldap.authenticate("UserOne", "userOnePassword");
@@ -181,4 +216,65 @@ public class LdapRealmTest extends Assert {
         assertNull(userOneFailedAuth);
     }
 
+    @Test
+    public void testBindPoolRebind() throws Exception {
+        Map<String, Object> settings = getSettings();
+        settings.put("bindPoolSize", 1);
+        ldap = newRealm(settings);
+
+        assertNotNull(ldap.authenticate("UserOne", "userOnePassword"));
+        assertNull(ldap.authenticate("UserTwo", "wrongPassword"));
+
+        // the pooled connection must not stay bound as the last user
+        LDAPConnectionPool pool = ldap.getBindPool();
+        LDAPConnection connection = pool.getConnection();
+        try {
+            assertEquals("cn=Directory Manager", ((SimpleBindRequest) connection.getLastBindRequest()).getBindDN());
+        } finally {
+            pool.releaseConnection(connection);
+        }
+    }
+
+    @Test
+    public void testConnectionPool() throws Exception {
+        Map<String, Object> settings = getSettings();
+        settings.put("name", "pooled");
+        settings.put("poolSize", 2);
+        settings.put("bindPoolSize", 3);
+        ldap = newRealm(settings);
+        ldap.metricRegistry = new MetricRegistry();
+        ldap.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Account>> accounts = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                accounts.add(executor.submit(() -> ldap.authenticate("UserOne", "userOnePassword")));
+                accounts.add(executor.submit(() -> ldap.authenticate("UserTwo", "wrongPassword")));
+            }
+            for (int i = 0; i < accounts.size(); i++) {
+                Account account = accounts.get(i).get(10, TimeUnit.SECONDS);
+                if (i % 2 == 0) {
+                    assertNotNull(account);
+                    assertTrue(account.hasRole("Git_Admins"));
+                } else {
+                    assertNull(account);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        String prefix = MetricRegistry.name(LdapRealm.class, "pooled");
+        Map<String, Gauge> gauges = ldap.metricRegistry.getGauges();
+        // an account search for every attempt and a group search for every successful attempt
+        assertEquals(120L, gauges.get(prefix + ".search.checkouts").getValue());
+        assertEquals(80L, gauges.get(prefix + ".bind.checkouts").getValue());
+        assertTrue((Integer) gauges.get(prefix + ".search.available").getValue() <= 2);
+        assertTrue((Integer) gauges.get(prefix + ".bind.available").getValue() <= 3);
+
+        ldap.stop();
+        assertTrue(ldap.metricRegistry.getGauges().isEmpty());
+    }
+
 }
@@ -18,6 +18,7 @@ package fathom.realm.redis;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.collect.Iterables;
 import com.typesafe.config.Config;
 import fathom.authc.StandardCredentials;
 import fathom.exception.FathomException;
@@ -29,6 +30,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.exceptions.JedisException;
 
 import java.io.BufferedReader;
@@ -37,14 +40,29 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
+ * RedisRealm authenticates against accounts stored in a Redis database.
+ * <p>
+ * All keys of an account are fetched with one pipelined request and {@link #loadAccounts(Collection)}
+ * pipelines the keys of many accounts.
+ * </p>
+ *
  * @author James Moger
  */
 public class RedisRealm extends CachingRealm {
 
     private static Logger log = LoggerFactory.getLogger(RedisRealm.class);
+
+    /**
+     * The number of accounts fetched by one pipelined request in {@link #loadAccounts(Collection)}.
+     */
+    private static final int BATCH_SIZE = 100;
+
     private JedisPool pool;
     private String redisUrl;
     private String redisPassword;
@@ -156,7 +174,11 @@ public class RedisRealm extends CachingRealm {
     public Account authenticate(final String username, final String password) {
         Jedis jedis = pool.getResource();
         try {
-            String storedPassword = asNull(jedis.get(key(username, passwordMapping)));
+            Pipeline pipeline = jedis.pipelined();
+            AccountResponses responses = new AccountResponses(pipeline, username);
+            pipeline.sync();
+
+            String storedPassword = responses.getPassword();
             if (Strings.isNullOrEmpty(storedPassword)) {
                 log.debug("Account '{}' in '{}' has no password and may not be used for authentication",
                         username, getRealmName());
@@ -165,28 +187,10 @@ public class RedisRealm extends CachingRealm {
 
             StandardCredentials requestCredentials = new StandardCredentials(username, password);
             StandardCredentials storedCredentials = new StandardCredentials(username, storedPassword);
-            if (validatePassword(requestCredentials, storedCredentials)) {
+            if (checkPassword(requestCredentials, storedCredentials)) {
                 log.debug("Authentication succeeded for '{}' against '{}'", username, getRealmName());
 
-                String name = null;
-                if (!Strings.isNullOrEmpty(nameMapping)) {
-                    name = asNull(jedis.get(key(username, nameMapping)));
-                }
-
-                Account account = new Account(name, new StandardCredentials(username, password));
-
-                if (!Strings.isNullOrEmpty(emailMapping)) {
-                    account.addEmailAddresses(jedis.lrange(key(username, emailMapping), 0, -1));
-                }
-
-                if (!Strings.isNullOrEmpty(roleMapping)) {
-                    account.getAuthorizations().addRoles(asArray(jedis.lrange(key(username, roleMapping), 0, -1)));
-                }
-
-                if (!Strings.isNullOrEmpty(permissionMapping)) {
-                    account.getAuthorizations().addPermissions(asArray(jedis.lrange(key(username, permissionMapping), 0, -1)));
-                }
-
+                Account account = responses.newAccount(new StandardCredentials(username, password));
                 cacheAccount(account);
 
                 return account;
@@ -205,6 +209,51 @@ public class RedisRealm extends CachingRealm {
         return null;
     }
 
+    /**
+     * Loads the specified accounts with pipelined requests.  Accounts without a password
+     * are ignored because they may not be used for authentication.
+     *
+     * @param usernames
+     * @return the loaded accounts
+     */
+    @Override
+    public Collection<Account> loadAccounts(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Account> accounts = new ArrayList<>();
+        Jedis jedis = pool.getResource();
+        try {
+            for (List<String> batch : Iterables.partition(usernames, BATCH_SIZE)) {
+                Pipeline pipeline = jedis.pipelined();
+                List<AccountResponses> batchResponses = new ArrayList<>(batch.size());
+                for (String username : batch) {
+                    batchResponses.add(new AccountResponses(pipeline, username));
+                }
+                pipeline.sync();
+
+                for (AccountResponses responses : batchResponses) {
+                    String storedPassword = responses.getPassword();
+                    if (!Strings.isNullOrEmpty(storedPassword)) {
+                        accounts.add(responses.newAccount(new StandardCredentials(responses.username, storedPassword)));
+                    }
+                }
+            }
+        } catch (JedisException e) {
+            pool.returnBrokenResource(jedis);
+            jedis = null;
+            throw new FathomException(e, "Failed to load {} accounts from '{}'", usernames.size(), getRealmName());
+        } finally {
+            if (jedis != null) {
+                pool.returnResource(jedis);
+            }
+        }
+
+        log.debug("Loaded {} of {} accounts from '{}'", accounts.size(), usernames.size(), getRealmName());
+        return accounts;
+    }
+
     /**
      * Constructs a key for use with a key-value data store.
      *
@@ -224,6 +273,55 @@ public class RedisRealm extends CachingRealm {
         return strings.toArray(new String[strings.size()]);
     }
 
+    /**
+     * The queued responses for the keys of one account.
+     */
+    private class AccountResponses {
+
+        final String username;
+
+        final Response<String> password;
+
+        final Response<String> name;
+
+        final Response<List<String>> emails;
+
+        final Response<List<String>> roles;
+
+        final Response<List<String>> permissions;
+
+        AccountResponses(Pipeline pipeline, String username) {
+            this.username = username;
+            this.password = pipeline.get(key(username, passwordMapping));
+            this.name = Strings.isNullOrEmpty(nameMapping) ? null : pipeline.get(key(username, nameMapping));
+            this.emails = Strings.isNullOrEmpty(emailMapping) ? null : pipeline.lrange(key(username, emailMapping), 0, -1);
+            this.roles = Strings.isNullOrEmpty(roleMapping) ? null : pipeline.lrange(key(username, roleMapping), 0, -1);
+            this.permissions = Strings.isNullOrEmpty(permissionMapping) ? null : pipeline.lrange(key(username, permissionMapping), 0, -1);
+        }
+
+        String getPassword() {
+            return asNull(password.get());
+        }
+
+        Account newAccount(StandardCredentials credentials) {
+            Account account = new Account(name == null ? null : asNull(name.get()), credentials);
+
+            if (emails != null) {
+                account.addEmailAddresses(emails.get());
+            }
+
+            if (roles != null) {
+                account.getAuthorizations().addRoles(asArray(roles.get()));
+            }
+
+            if (permissions != null) {
+                account.getAuthorizations().addPermissions(asArray(permissions.get()));
+            }
+
+            return account;
+        }
+    }
+
     private String unwrapQuotes(String value) {
         if (Strings.isNullOrEmpty(value)) {
             return value;
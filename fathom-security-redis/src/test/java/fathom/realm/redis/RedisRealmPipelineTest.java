@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.realm.redis;
+
+import com.typesafe.config.ConfigFactory;
+import fathom.authc.StandardCredentials;
+import fathom.realm.Account;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Tests the pipelined account loading of the RedisRealm against an in-memory Redis stand-in.
+ *
+ * @author James Moger
+ */
+public class RedisRealmPipelineTest extends Assert {
+
+    private static RedisStandIn redis;
+
+    private RedisRealm realm;
+
+    @BeforeClass
+    public static void startRedis() throws Exception {
+        redis = new RedisStandIn();
+    }
+
+    @AfterClass
+    public static void stopRedis() throws Exception {
+        redis.close();
+    }
+
+    @Before
+    public void startRealm() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("url", redis.getUrl(8));
+        settings.put("passwordMapping", "fathom:${username}:password");
+        settings.put("nameMapping", "fathom:${username}:name");
+        settings.put("emailMapping", "fathom:${username}:email");
+        settings.put("roleMapping", "fathom:${username}:roles");
+        settings.put("permissionMapping", "fathom:${username}:permissions");
+        settings.put("startScript", "classpath:conf/realm.redis");
+        settings.put("cacheTtl", 10);
+        settings.put("cacheMax", 100);
+
+        realm = new RedisRealm();
+        realm.setup(ConfigFactory.parseMap(settings));
+        realm.start();
+    }
+
+    @After
+    public void stopRealm() {
+        realm.stop();
+    }
+
+    @Test
+    public void testAuthenticate() {
+        int replies = redis.getReplyCount();
+        Account account = realm.authenticate("phineas", "iKnowWhatWereGonnaDoToday");
+        assertEquals("all account keys should be fetched in one round trip", 1, redis.getReplyCount() - replies);
+
+        assertNotNull(account);
+        assertEquals("phineas", account.getUsername());
+        assertEquals("Phineas Flynn", account.getName());
+        assertTrue(account.getEmailAddresses().contains("phineas.flynn@disney.com"));
+        assertTrue(account.hasRole("inventor"));
+        assertTrue(account.isPermitted("secure:view"));
+
+        assertNull(realm.authenticate("ferb", "fail"));
+
+        account = realm.authenticate("candace", "ilovejeremy");
+        assertNotNull(account);
+        assertEquals("Candace Flynn", account.getName());
+        assertFalse(account.hasRole("inventor"));
+        assertTrue(account.isPermitted("secure:view"));
+
+        account = realm.authenticate("linda", "imLindanaAndIWannaHaveFun");
+        assertNotNull(account);
+        assertFalse(account.hasRole("inventor"));
+        assertFalse(account.isPermitted("secure:view"));
+
+        assertNull(realm.authenticate("heinz", "CurseYouPerryThePlatypus"));
+    }
+
+    @Test
+    public void testLoadAccounts() {
+        int replies = redis.getReplyCount();
+        Collection<Account> accounts = realm.loadAccounts(Arrays.asList("phineas", "ferb", "candace", "linda", "heinz"));
+        assertEquals(1, redis.getReplyCount() - replies);
+
+        Map<String, Account> byName = accounts.stream().collect(Collectors.toMap(Account::getUsername, a -> a));
+        assertEquals(4, byName.size());
+        assertFalse(byName.containsKey("heinz"));
+
+        Account ferb = byName.get("ferb");
+        assertEquals("Ferb Fletcher", ferb.getName());
+        assertTrue(ferb.getEmailAddresses().contains("ferb.fletcher@disney.com"));
+        assertTrue(ferb.hasRole("inventor"));
+        assertTrue(ferb.isPermitted("secure:view"));
+        assertEquals("ferb", ((StandardCredentials) ferb.getCredentials()).getPassword());
+    }
+
+    @Test
+    public void testWarmUp() {
+        assertEquals(4, realm.warmUp(Arrays.asList("phineas", "ferb", "candace", "linda", "heinz")));
+        assertTrue(realm.hasAccount("ferb"));
+
+        // cached accounts authenticate without a request to Redis
+        int commands = redis.getCommandCount();
+        assertNotNull(realm.authenticate(new StandardCredentials("ferb", "ferb")));
+        assertNull(realm.authenticate(new StandardCredentials("ferb", "fail")));
+        assertEquals(commands, redis.getCommandCount());
+
+        assertEquals(0, realm.warmUp(Arrays.asList("phineas", "ferb")));
+    }
+
+}
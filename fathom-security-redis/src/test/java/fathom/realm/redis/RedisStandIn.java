@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.realm.redis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A minimal, in-memory Redis stand-in which speaks enough of the RESP protocol for the
+ * RedisRealm tests: SELECT, FLUSHDB, GET, SET, RPUSH, LRANGE and the EVAL form
+ * used by realm scripts.  All databases share one keyspace.
+ *
+ * @author James Moger
+ */
+class RedisStandIn implements AutoCloseable {
+
+    private static final Pattern EVAL_CALL = Pattern.compile("return redis\\.call\\((.*)\\)");
+
+    private static final Pattern EVAL_ARG = Pattern.compile("'([^']*)'");
+
+    private final ServerSocket serverSocket;
+
+    private final Map<String, Object> data = new ConcurrentHashMap<>();
+
+    private final AtomicInteger commands = new AtomicInteger();
+
+    private final AtomicInteger replies = new AtomicInteger();
+
+    RedisStandIn() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "redis-stand-in");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    String getUrl(int database) {
+        return "redis://localhost:" + serverSocket.getLocalPort() + "/" + database;
+    }
+
+    int getCommandCount() {
+        return commands.get();
+    }
+
+    /**
+     * Returns the number of flushed replies, i.e. round trips.  Pipelined commands which
+     * arrive together are answered by one flush.
+     */
+    int getReplyCount() {
+        return replies.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread connection = new Thread(() -> serve(socket), "redis-stand-in-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             InputStream in = new BufferedInputStream(s.getInputStream());
+             OutputStream out = new BufferedOutputStream(s.getOutputStream())) {
+            List<String> command;
+            while ((command = readCommand(in)) != null) {
+                commands.incrementAndGet();
+                boolean quit = "QUIT".equalsIgnoreCase(command.get(0));
+                write(out, execute(command));
+                if (in.available() == 0 || quit) {
+                    replies.incrementAndGet();
+                    out.flush();
+                }
+                if (quit) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // connection closed
+        }
+    }
+
+    private Object execute(List<String> command) {
+        String name = command.get(0).toUpperCase();
+        switch (name) {
+            case "PING":
+                return new Status("PONG");
+            case "QUIT":
+            case "SELECT":
+            case "AUTH":
+                return Status.OK;
+            case "FLUSHDB":
+            case "FLUSHALL":
+                data.clear();
+                return Status.OK;
+            case "GET":
+                Object value = data.get(command.get(1));
+                return value instanceof String ? value : null;
+            case "SET":
+                data.put(command.get(1), command.get(2));
+                return Status.OK;
+            case "RPUSH": {
+                List<String> list = getList(command.get(1));
+                synchronized (list) {
+                    list.addAll(command.subList(2, command.size()));
+                    return (long) list.size();
+                }
+            }
+            case "LRANGE": {
+                List<String> list = getList(command.get(1));
+                synchronized (list) {
+                    int start = index(Integer.parseInt(command.get(2)), list.size());
+                    int stop = Math.min(index(Integer.parseInt(command.get(3)), list.size()), list.size() - 1);
+                    return start > stop ? Collections.emptyList() : new ArrayList<>(list.subList(start, stop + 1));
+                }
+            }
+            case "EVAL": {
+                Matcher call = EVAL_CALL.matcher(command.get(1).trim());
+                if (!call.matches()) {
+                    return new Error("unsupported script");
+                }
+                List<String> args = new ArrayList<>();
+                Matcher arg = EVAL_ARG.matcher(call.group(1));
+                while (arg.find()) {
+                    args.add(arg.group(1));
+                }
+                return execute(args);
+            }
+            default:
+                return new Error("unknown command '" + name + "'");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> getList(String key) {
+        return (List<String>) data.computeIfAbsent(key, k -> new ArrayList<String>());
+    }
+
+    private static int index(int index, int size) {
+        return index < 0 ? Math.max(0, size + index) : index;
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        String line = readLine(in);
+        if (line == null) {
+            return null;
+        }
+        if (line.charAt(0) != '*') {
+            // inline command
+            return Arrays.asList(line.trim().split("\\s+"));
+        }
+
+        int count = Integer.parseInt(line.substring(1));
+        List<String> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String header = readLine(in);
+            int length = Integer.parseInt(header.substring(1));
+            byte[] bytes = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = in.read(bytes, read, length - read);
+                if (n < 0) {
+                    return null;
+                }
+                read += n;
+            }
+            readLine(in);
+            args.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return args;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\r') {
+                in.read();
+                return sb.toString();
+            }
+            sb.append((char) c);
+        }
+        return null;
+    }
+
+    private static void write(OutputStream out, Object reply) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        append(sb, reply);
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void append(StringBuilder sb, Object reply) {
+        if (reply == null) {
+            sb.append("$-1\r\n");
+        } else if (reply instanceof Status) {
+            sb.append('+').append(((Status) reply).message).append("\r\n");
+        } else if (reply instanceof Error) {
+            sb.append("-ERR ").append(((Error) reply).message).append("\r\n");
+        } else if (reply instanceof Long) {
+            sb.append(':').append(reply).append("\r\n");
+        } else if (reply instanceof List) {
+            List<?> list = (List<?>) reply;
+            sb.append('*').append(list.size()).append("\r\n");
+            for (Object item : list) {
+                append(sb, item);
+            }
+        } else {
+            byte[] bytes = reply.toString().getBytes(StandardCharsets.UTF_8);
+            sb.append('$').append(bytes.length).append("\r\n").append(reply).append("\r\n");
+        }
+    }
+
+    private static class Status {
+
+        static final Status OK = new Status("OK");
+
+        final String message;
+
+        Status(String message) {
+            this.message = message;
+        }
+    }
+
+    private static class Error {
+
+        final String message;
+
+        Error(String message) {
+            this.message = message;
+        }
+    }
+
+}
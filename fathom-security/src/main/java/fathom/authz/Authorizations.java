@@ -19,11 +19,10 @@
 package fathom.authz;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -46,6 +45,10 @@ public final class Authorizations implements Serializable, Cloneable {
 
     protected transient Collection<Permission> aggregatePermissions;
 
+    private transient volatile PermissionMatcher permissionMatcher;
+
+    private transient volatile Set<String> roleNames;
+
     public Authorizations() {
         this(new LinkedHashSet<>());
     }
@@ -92,6 +95,8 @@ public final class Authorizations implements Serializable, Cloneable {
     public Authorizations setRoles(Set<Role> roles) {
         this.roles.clear();
         this.aggregatePermissions = null;
+        this.permissionMatcher = null;
+        this.roleNames = null;
         addRoles(roles);
 
         return this;
@@ -118,6 +123,8 @@ public final class Authorizations implements Serializable, Cloneable {
     public Authorizations addRoles(Collection<Role> roles) {
         this.roles.addAll(roles);
         this.aggregatePermissions = null;
+        this.permissionMatcher = null;
+        this.roleNames = null;
 
         return this;
     }
@@ -142,6 +149,8 @@ public final class Authorizations implements Serializable, Cloneable {
     public Authorizations addRole(Role role) {
         this.roles.add(role);
         this.aggregatePermissions = null;
+        this.permissionMatcher = null;
+        this.roleNames = null;
 
         return this;
     }
@@ -169,6 +178,8 @@ public final class Authorizations implements Serializable, Cloneable {
     public Authorizations addPermission(String permission) {
         this.permissions.add(new Permission(permission));
         this.aggregatePermissions = null;
+        this.permissionMatcher = null;
+        this.roleNames = null;
 
         return this;
     }
@@ -182,6 +193,8 @@ public final class Authorizations implements Serializable, Cloneable {
     public Authorizations addPermissions(Collection<Permission> permissions) {
         this.permissions.addAll(permissions);
         this.aggregatePermissions = null;
+        this.permissionMatcher = null;
+        this.roleNames = null;
 
         return this;
     }
@@ -207,6 +220,8 @@ public final class Authorizations implements Serializable, Cloneable {
     public void setPermissions(Collection<Permission> permissions) {
         this.permissions.clear();
         this.aggregatePermissions = null;
+        this.permissionMatcher = null;
+        this.roleNames = null;
         this.addPermissions(permissions);
     }
 
@@ -221,7 +236,7 @@ public final class Authorizations implements Serializable, Cloneable {
      * @return true if this Account is permitted, false otherwise.
      */
     public boolean isPermitted(String permission) {
-        return isPermitted(new Permission(permission));
+        return isPermitted(PermissionMatcher.parse(permission));
     }
 
     /**
@@ -240,7 +255,7 @@ public final class Authorizations implements Serializable, Cloneable {
     public boolean[] isPermitted(String... permissions) {
         boolean[] rights = new boolean[permissions.length];
         for (int i = 0; i < permissions.length; i++) {
-            Permission permission = new Permission(permissions[i]);
+            Permission permission = PermissionMatcher.parse(permissions[i]);
             rights[i] = isPermitted(permission);
         }
         return rights;
@@ -283,12 +298,12 @@ public final class Authorizations implements Serializable, Cloneable {
     }
 
     protected boolean isPermitted(Permission permission) {
-        for (Permission perm : getAggregatePermissions()) {
-            if (perm.implies(permission)) {
-                return true;
-            }
+        PermissionMatcher matcher = permissionMatcher;
+        if (matcher == null) {
+            matcher = new PermissionMatcher(getAggregatePermissions());
+            permissionMatcher = matcher;
         }
-        return false;
+        return matcher.implies(permission);
     }
 
     /**
@@ -298,7 +313,7 @@ public final class Authorizations implements Serializable, Cloneable {
      * @return {@code true} if this Account has the specified role, {@code false} otherwise.
      */
     public boolean hasRole(String roleIdentifier) {
-        return roles.contains(new Role(roleIdentifier));
+        return getRoleNames().contains(roleIdentifier.trim());
     }
 
     /**
@@ -308,11 +323,12 @@ public final class Authorizations implements Serializable, Cloneable {
      * @return {@code true} if this Account has all the specified roles, {@code false} otherwise.
      */
     public boolean hasRoles(String... roleIdentifiers) {
-        List<Role> requiredRoles = new ArrayList<>();
         for (String roleIdentifier : roleIdentifiers) {
-            requiredRoles.add(new Role(roleIdentifier));
+            if (!hasRole(roleIdentifier)) {
+                return false;
+            }
         }
-        return roles.containsAll(requiredRoles);
+        return true;
     }
 
     /**
@@ -322,11 +338,30 @@ public final class Authorizations implements Serializable, Cloneable {
      * @return {@code true} if this Account has all the specified roles, {@code false} otherwise.
      */
     public boolean hasRoles(Collection<String> roleIdentifiers) {
-        List<Role> requiredRoles = new ArrayList<>();
         for (String roleIdentifier : roleIdentifiers) {
-            requiredRoles.add(new Role(roleIdentifier));
+            if (!hasRole(roleIdentifier)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the names of the assigned roles.  The set is rebuilt if the roles have been
+     * modified directly through {@link #getRoles()}.
+     *
+     * @return the role names
+     */
+    protected Set<String> getRoleNames() {
+        Set<String> names = roleNames;
+        if (names == null || names.size() != roles.size()) {
+            names = new HashSet<>();
+            for (Role role : roles) {
+                names.add(role.getName());
+            }
+            roleNames = names;
         }
-        return roles.containsAll(requiredRoles);
+        return names;
     }
 
     /**
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.authz;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PermissionMatcher compiles a collection of granted permissions into a trie which
+ * is keyed by the subpart tokens of each part.
+ * <p>
+ * A permission check walks the trie one part at a time following the exact token and
+ * the wildcard branch, so the cost depends on the length of the checked permission and
+ * not on the number of granted permissions.  Checked permissions with multiple subparts
+ * in a part, granted permissions which expand to too many trie paths, and Permission
+ * subclasses which override {@link Permission#implies(Permission)} are matched linearly.
+ * The result is always identical to testing each granted permission with
+ * {@link Permission#implies(Permission)}.
+ *
+ * @author James Moger
+ */
+final class PermissionMatcher {
+
+    /**
+     * Granted permissions like "a:b,c:d,e,f" are inserted once per token combination.
+     */
+    private static final int MAX_PATHS = 64;
+
+    private static final Cache<String, Permission> PERMISSIONS = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .build();
+
+    private final Node root;
+
+    private final List<Permission> indexed;
+
+    private final List<Permission> unindexed;
+
+    PermissionMatcher(Collection<Permission> permissions) {
+        this.root = new Node();
+        this.indexed = new ArrayList<>();
+        this.unindexed = new ArrayList<>();
+        for (Permission permission : permissions) {
+            if (isIndexable(permission)) {
+                root.insert(permission.getParts(), 0);
+                indexed.add(permission);
+            } else {
+                unindexed.add(permission);
+            }
+        }
+    }
+
+    /**
+     * Returns the interned Permission for the permission string.
+     *
+     * @param permission
+     * @return the parsed permission
+     */
+    static Permission parse(String permission) {
+        Permission parsed = PERMISSIONS.getIfPresent(permission);
+        if (parsed == null) {
+            parsed = new Permission(permission);
+            PERMISSIONS.put(permission, parsed);
+        }
+        return parsed;
+    }
+
+    /**
+     * Returns true if any of the granted permissions implies the permission.
+     *
+     * @param permission
+     * @return true if the permission is implied
+     */
+    boolean implies(Permission permission) {
+        List<Set<String>> parts = permission.getParts();
+        if (isSingleTokens(parts)) {
+            if (root.implies(parts, 0)) {
+                return true;
+            }
+        } else if (impliesLinearly(indexed, permission)) {
+            // the trie does not record which paths belong to the same granted permission
+            return true;
+        }
+
+        return impliesLinearly(unindexed, permission);
+    }
+
+    private static boolean impliesLinearly(List<Permission> permissions, Permission permission) {
+        for (Permission granted : permissions) {
+            if (granted.implies(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIndexable(Permission permission) {
+        if (permission.getClass() != Permission.class) {
+            try {
+                if (permission.getClass().getMethod("implies", Permission.class).getDeclaringClass() != Permission.class) {
+                    return false;
+                }
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+
+        List<Set<String>> parts = permission.getParts();
+        if (parts == null || parts.isEmpty()) {
+            return false;
+        }
+
+        int paths = 1;
+        for (Set<String> part : parts) {
+            if (!part.contains(Permission.WILDCARD_TOKEN)) {
+                paths *= part.size();
+                if (paths > MAX_PATHS) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSingleTokens(List<Set<String>> parts) {
+        for (Set<String> part : parts) {
+            if (part.size() != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Node {
+
+        final Map<String, Node> children = new HashMap<>();
+
+        Node wildcard;
+
+        /**
+         * True if a granted permission ends at this node.  Such a permission implies all remaining parts.
+         */
+        boolean terminal;
+
+        void insert(List<Set<String>> parts, int index) {
+            if (index == parts.size()) {
+                terminal = true;
+                return;
+            }
+
+            Set<String> part = parts.get(index);
+            if (part.contains(Permission.WILDCARD_TOKEN)) {
+                if (wildcard == null) {
+                    wildcard = new Node();
+                }
+                wildcard.insert(parts, index + 1);
+            } else {
+                for (String token : part) {
+                    Node child = children.get(token);
+                    if (child == null) {
+                        child = new Node();
+                        children.put(token, child);
+                    }
+                    child.insert(parts, index + 1);
+                }
+            }
+        }
+
+        /**
+         * Returns true if a granted permission ends here or continues with wildcard parts only.
+         */
+        boolean impliesAll() {
+            return terminal || (wildcard != null && wildcard.impliesAll());
+        }
+
+        boolean implies(List<Set<String>> parts, int index) {
+            if (terminal) {
+                return true;
+            }
+            if (index == parts.size()) {
+                return impliesAll();
+            }
+
+            if (wildcard != null && wildcard.implies(parts, index + 1)) {
+                return true;
+            }
+
+            // a checked wildcard token is only implied by a granted wildcard, which are not children
+            Node child = children.get(parts.get(index).iterator().next());
+            return child != null && child.implies(parts, index + 1);
+        }
+    }
+
+}
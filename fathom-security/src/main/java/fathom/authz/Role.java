@@ -95,7 +95,7 @@ public class Role implements Serializable {
     }
 
     public boolean isPermitted(String permission) {
-        return isPermitted(new Permission(permission));
+        return isPermitted(PermissionMatcher.parse(permission));
     }
 
     public boolean isPermitted(Permission permission) {
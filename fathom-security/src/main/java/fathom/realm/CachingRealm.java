@@ -22,7 +22,11 @@ import com.typesafe.config.Config;
 import fathom.utils.Util;
 import org.slf4j.Logger;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * A CachingRealm maintains an expiring Guava Cache of Accounts.
@@ -42,6 +46,7 @@ public abstract class CachingRealm extends StandardCredentialsRealm {
     }
 
     public void setup(Config config) {
+        super.setup(config);
 
         realmName = getClass().getSimpleName();
         if (config.hasPath("name")) {
@@ -70,6 +75,7 @@ public abstract class CachingRealm extends StandardCredentialsRealm {
         Util.logSetting(log, "caching", accountCache != null);
         Util.logSetting(log, "cacheTtl (mins)", cacheTtl);
         Util.logSetting(log, "cacheMax (accounts)", cacheMax);
+        logVerifiedCacheSettings(log);
     }
 
     @Override
@@ -87,12 +93,73 @@ public abstract class CachingRealm extends StandardCredentialsRealm {
         return null;
     }
 
+    /**
+     * Accounts are only looked up in the cache.
+     */
+    @Override
+    public LookupCost getLookupCost() {
+        return LookupCost.MEMORY;
+    }
+
+    /**
+     * Returns the cached account or loads the account from the backing store with
+     * {@link #loadAccounts(Collection)}.  A loaded account has no credentials so it is
+     * not cached, the cache is reserved for accounts which verify passwords.
+     *
+     * @param username
+     * @return the account or null
+     */
+    @Override
+    public Account loadAccount(String username) {
+        Account account = getAccount(username);
+        if (account == null) {
+            account = loadAccounts(Collections.singletonList(username)).stream().findFirst().orElse(null);
+        }
+        return account;
+    }
+
     protected void cacheAccount(Account account) {
         if (accountCache != null) {
             accountCache.put(account.getUsername(), account);
         }
     }
 
+    /**
+     * Loads the specified accounts, which are not already cached, and adds them to the cache.
+     *
+     * @param usernames
+     * @return the number of accounts which were loaded
+     */
+    public int warmUp(Collection<String> usernames) {
+        if (accountCache == null) {
+            return 0;
+        }
+
+        List<String> uncached = usernames.stream()
+                .filter(username -> accountCache.getIfPresent(username) == null)
+                .distinct()
+                .collect(Collectors.toList());
+        if (uncached.isEmpty()) {
+            return 0;
+        }
+
+        Collection<Account> accounts = loadAccounts(uncached);
+        accounts.forEach(this::cacheAccount);
+        return accounts.size();
+    }
+
+    /**
+     * Loads the specified accounts from the backing store, bypassing the cache.  Unknown
+     * usernames are ignored.  Realms which can fetch many accounts in one request override
+     * this method, the default implementation loads nothing.
+     *
+     * @param usernames
+     * @return the loaded accounts
+     */
+    public Collection<Account> loadAccounts(Collection<String> usernames) {
+        return Collections.emptyList();
+    }
+
     /**
      * Clears this Realm's account cache.
      */
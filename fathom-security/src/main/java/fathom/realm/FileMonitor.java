@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.realm;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileMonitor polls a file from a background thread and notifies a listener when
+ * the modification time or the size of the file changes.
+ * <p>
+ * File-backed realms use a FileMonitor to reload their accounts off the authentication
+ * path.  A poller is used rather than a WatchService because a WatchService watches
+ * whole directories and falls back to slow polling on some platforms anyway.
+ *
+ * @author James Moger
+ */
+public class FileMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(FileMonitor.class);
+
+    private final File file;
+
+    private final Runnable listener;
+
+    // checks do not hold the monitor lock, a listener which waits for the lock of a
+    // realm can not deadlock with a realm which stops the monitor
+    private final Object checkLock = new Object();
+
+    private FileTime lastModified;
+
+    private long length;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates a FileMonitor and records the current state of the file.
+     *
+     * @param file
+     * @param listener notified from the monitor thread when the file changes
+     */
+    public FileMonitor(File file, Runnable listener) {
+        this.file = Preconditions.checkNotNull(file, "File is null!");
+        this.listener = Preconditions.checkNotNull(listener, "Listener is null!");
+        isModified();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Starts polling the file.
+     *
+     * @param interval the poll interval in milliseconds
+     */
+    public synchronized void start(long interval) {
+        Preconditions.checkArgument(interval > 0, "The poll interval must be greater than zero!");
+        if (executor != null) {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "file-monitor-" + file.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+        log.debug("Monitoring '{}' every {} msecs", file, interval);
+    }
+
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Notifies the listener if the file has changed since the last check.
+     *
+     * @return true if the file has changed
+     */
+    public boolean check() {
+        synchronized (checkLock) {
+            if (!isModified()) {
+                return false;
+            }
+
+            log.debug("'{}' has been modified", file);
+            try {
+                listener.run();
+            } catch (Exception e) {
+                log.error("Failed to process modified file {}", file, e);
+            }
+            return true;
+        }
+    }
+
+    private boolean isModified() {
+        FileTime modified = null;
+        long size = -1;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            modified = attributes.lastModifiedTime();
+            size = attributes.size();
+        } catch (IOException e) {
+            // the file does not exist or is being replaced, try again on the next check
+            return false;
+        }
+
+        if (modified.equals(lastModified) && size == length) {
+            return false;
+        }
+
+        lastModified = modified;
+        length = size;
+        return true;
+    }
+
+}
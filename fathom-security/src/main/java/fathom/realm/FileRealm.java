@@ -20,16 +20,17 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
-import fathom.authc.AuthenticationToken;
 import fathom.utils.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A FileRealm is a MemoryRealm that loads accounts and roles from an external file.
- * The external file is watched and reloaded on modification.
+ * The external file is watched from a background thread and reloaded on modification.
+ * Authentication never touches the file.
  *
  * @author James Moger
  */
@@ -39,7 +40,15 @@ public class FileRealm extends MemoryRealm {
 
     private volatile File realmFile;
 
-    private volatile long lastModified;
+    private volatile FileMonitor fileMonitor;
+
+    private long reloadInterval;
+
+    private boolean running;
+
+    public FileRealm() {
+        this.reloadInterval = TimeUnit.SECONDS.toMillis(5);
+    }
 
     @Override
     public void setup(Config config) {
@@ -48,39 +57,67 @@ public class FileRealm extends MemoryRealm {
         String file = Strings.emptyToNull(config.getString("file"));
         Preconditions.checkNotNull(file, "The [file] setting must be set!");
 
+        if (config.hasPath("reloadInterval")) {
+            reloadInterval = config.getDuration("reloadInterval", TimeUnit.MILLISECONDS);
+        }
+
         File realmFile = new File(file);
         setFile(realmFile);
     }
 
-    public void setFile(File realmFile) {
+    public synchronized void setFile(File realmFile) {
+        if (fileMonitor != null) {
+            fileMonitor.stop();
+        }
+
         this.realmFile = realmFile;
+        this.fileMonitor = new FileMonitor(realmFile, this::readFile);
         readFile();
+
+        if (running) {
+            fileMonitor.start(reloadInterval);
+        }
     }
 
-    @Override
-    public void start() {
-        log.debug("Realm '{}' configuration:", getRealmName());
-        Util.logSetting(log, "file", realmFile);
+    FileMonitor getFileMonitor() {
+        return fileMonitor;
     }
 
     /**
-     * Force a re-read of the credentials file (if modified) before executing authentication.
+     * Sets the interval between checks of the realm file for modifications.
      *
-     * @param authenticationToken
-     * @return the account if authentication is successful
+     * @param reloadInterval in milliseconds
      */
+    public void setReloadInterval(long reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
     @Override
-    public Account authenticate(AuthenticationToken authenticationToken) {
-        readFile();
-        return super.authenticate(authenticationToken);
+    public synchronized void start() {
+        log.debug("Realm '{}' configuration:", getRealmName());
+        Util.logSetting(log, "file", realmFile);
+        Util.logSetting(log, "reloadInterval (msecs)", reloadInterval);
+        logVerifiedCacheSettings(log);
+
+        if (fileMonitor != null) {
+            fileMonitor.start(reloadInterval);
+        }
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (fileMonitor != null) {
+            fileMonitor.stop();
+        }
+        running = false;
     }
 
     /**
-     * Reads the realm file and rebuilds the in-memory lookup tables.
+     * Reads the realm file and replaces the in-memory lookup tables.
      */
-    protected synchronized void readFile() {
-        if (realmFile != null && realmFile.exists() && (realmFile.lastModified() != lastModified)) {
-            lastModified = realmFile.lastModified();
+    protected void readFile() {
+        if (realmFile != null && realmFile.exists()) {
             try {
                 Preconditions.checkArgument(realmFile.canRead(), "The file '{}' can not be read!", realmFile);
                 Config config = ConfigFactory.parseFile(realmFile);
@@ -35,6 +35,10 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A MemoryRealm caches all accounts in a ConcurrentHashMap.
+ * <p>
+ * The accounts, tokens, and defined roles parsed by {@link #setup(Config)} are
+ * published together so that a re-setup, like a FileRealm reload, replaces them
+ * atomically and lookups never observe a partially parsed configuration.
  *
  * @author James Moger
  */
@@ -42,17 +46,14 @@ public class MemoryRealm extends StandardCredentialsRealm {
 
     private static final Logger log = LoggerFactory.getLogger(MemoryRealm.class);
 
-    private final Map<String, Account> accounts;
-    private final Map<String, Account> tokens;
-    private final Map<String, Role> definedRoles;
+    private volatile Snapshot snapshot;
+    private Snapshot parsing;
     private String realmName;
 
     public MemoryRealm() {
         super();
         this.realmName = getClass().getSimpleName();
-        this.accounts = new ConcurrentHashMap<>();
-        this.tokens = new ConcurrentHashMap<>();
-        this.definedRoles = new ConcurrentHashMap<>();
+        this.snapshot = new Snapshot(Collections.emptyMap());
     }
 
     @Override
@@ -72,23 +73,27 @@ public class MemoryRealm extends StandardCredentialsRealm {
 
     @Override
     public synchronized void setup(Config config) {
+        super.setup(config);
+
         if (config.hasPath("name")) {
             realmName = config.getString("name");
         }
 
-        definedRoles.clear();
-        definedRoles.putAll(parseDefinedRoles(config));
-
-        accounts.clear();
-        tokens.clear();
-        if (config.hasPath("accounts")) {
-            for (Config accountConfig : config.getConfigList("accounts")) {
-                Account account = parseAccount(accountConfig);
-                addAccount(account);
-                log.trace("Added '{}' account to '{}'", account, getRealmName());
+        Snapshot next = new Snapshot(parseDefinedRoles(config));
+        parsing = next;
+        try {
+            if (config.hasPath("accounts")) {
+                for (Config accountConfig : config.getConfigList("accounts")) {
+                    Account account = parseAccount(accountConfig);
+                    next.accounts.putIfAbsent(account.getUsername(), account);
+                    log.trace("Added '{}' account to '{}'", account, getRealmName());
+                }
             }
+        } finally {
+            parsing = null;
         }
 
+        snapshot = next;
     }
 
     @Override
@@ -99,7 +104,18 @@ public class MemoryRealm extends StandardCredentialsRealm {
     public void stop() {
     }
 
+    /**
+     * Parses an account.  During {@link #setup(Config)} the tokens and defined roles of
+     * the configuration which is being parsed are used.
+     *
+     * @param accountConfig
+     * @return the account
+     */
     protected Account parseAccount(Config accountConfig) {
+        Snapshot target = parsing == null ? snapshot : parsing;
+        Map<String, Account> tokens = target.tokens;
+        Map<String, Role> definedRoles = target.definedRoles;
+
         // all accounts require a username
         String username = Strings.emptyToNull(accountConfig.getString("username"));
         Preconditions.checkNotNull(username, "The 'username' setting may not be null nor empty!");
@@ -184,6 +200,11 @@ public class MemoryRealm extends StandardCredentialsRealm {
         return Collections.unmodifiableMap(roleMap);
     }
 
+    @Override
+    public LookupCost getLookupCost() {
+        return LookupCost.MEMORY;
+    }
+
     @Override
     public String getRealmName() {
         return realmName;
@@ -191,12 +212,12 @@ public class MemoryRealm extends StandardCredentialsRealm {
 
     @Override
     public boolean hasAccount(String username) {
-        return accounts.containsKey(username);
+        return snapshot.accounts.containsKey(username);
     }
 
     @Override
     public Account getAccount(String username) {
-        Account account = accounts.get(username);
+        Account account = snapshot.accounts.get(username);
         return account;
     }
 
@@ -207,7 +228,7 @@ public class MemoryRealm extends StandardCredentialsRealm {
     }
 
     public Account authenticateToken(TokenCredentials credentials) {
-        return tokens.get(credentials.getToken());
+        return snapshot.tokens.get(credentials.getToken());
     }
 
     public Account addAccount(String username, String password) {
@@ -221,13 +242,29 @@ public class MemoryRealm extends StandardCredentialsRealm {
     }
 
     public Account addAccount(Account account) {
-        accounts.putIfAbsent(account.getUsername(), account);
+        snapshot.accounts.putIfAbsent(account.getUsername(), account);
         return account;
     }
 
     public Account removeAccount(String username) {
-        Account account = accounts.remove(username);
+        Account account = snapshot.accounts.remove(username);
         return account;
     }
 
+    /**
+     * The accounts, tokens, and defined roles of one setup.
+     */
+    private static class Snapshot {
+
+        final Map<String, Account> accounts;
+        final Map<String, Account> tokens;
+        final Map<String, Role> definedRoles;
+
+        Snapshot(Map<String, Role> definedRoles) {
+            this.accounts = new ConcurrentHashMap<>();
+            this.tokens = new ConcurrentHashMap<>();
+            this.definedRoles = definedRoles;
+        }
+    }
+
 }
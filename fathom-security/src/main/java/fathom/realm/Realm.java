@@ -42,4 +42,49 @@ public interface Realm {
 
     Account getAccount(String username);
 
+    /**
+     * Returns the account of a username which has been authenticated by other means, like
+     * a signed token, loading it from the backing store if necessary.  No credentials are
+     * validated.  The default implementation looks the account up with
+     * {@link #hasAccount(String)} and {@link #getAccount(String)}.
+     *
+     * @param username
+     * @return the account or null if the Realm does not have an account for the username
+     */
+    default Account loadAccount(String username) {
+        if (getLookupCost() == LookupCost.REMOTE) {
+            return getAccount(username);
+        }
+        return hasAccount(username) ? getAccount(username) : null;
+    }
+
+    /**
+     * Returns the cost of {@link #hasAccount(String)} and {@link #getAccount(String)}.
+     * The default is MEMORY, the SecurityManager calls hasAccount before getAccount.
+     * If the realms are ordered by lookup cost, the SecurityManager consults cheap Realms
+     * first when it aggregates accounts.
+     *
+     * @return the account lookup cost
+     */
+    default LookupCost getLookupCost() {
+        return LookupCost.MEMORY;
+    }
+
+    /**
+     * The cost of an account lookup.
+     */
+    enum LookupCost {
+
+        /**
+         * Accounts are looked up in memory or in a cache.
+         */
+        MEMORY,
+
+        /**
+         * Accounts are looked up in a backend, like a database.  Both hasAccount and
+         * getAccount may query the backend so only getAccount is called during aggregation.
+         */
+        REMOTE
+    }
+
 }
@@ -17,15 +17,28 @@
 package fathom.realm;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.typesafe.config.Config;
 import fathom.authc.AuthenticationToken;
 import fathom.authc.StandardCredentials;
 import fathom.utils.CryptoUtil;
+import fathom.utils.Util;
 import org.mindrot.jbcrypt.BCrypt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Parent class for StandardCredentials realms.
+ * <p>
+ * Successful verifications of expensive password hashes, like BCrypt, are remembered
+ * for a short time so that clients which send their credentials with every request
+ * do not pay for the hash on every request.  The verified credentials are keyed by a
+ * salted SHA-256 of the username and password; the salt is random and only kept in memory.
  *
  * @author James Moger
  */
@@ -33,6 +46,60 @@ public abstract class StandardCredentialsRealm implements Realm {
 
     private final static Logger log = LoggerFactory.getLogger(StandardCredentialsRealm.class);
 
+    private final String verifiedSalt;
+
+    private int verifiedCacheTtl;
+
+    private int verifiedCacheMax;
+
+    private volatile Cache<String, String> verifiedCredentials;
+
+    protected StandardCredentialsRealm() {
+        byte[] salt = new byte[32];
+        new SecureRandom().nextBytes(salt);
+        this.verifiedSalt = CryptoUtil.toHex(salt);
+        this.verifiedCacheTtl = 5;
+        this.verifiedCacheMax = 1000;
+        this.verifiedCredentials = buildVerifiedCredentialsCache();
+    }
+
+    /**
+     * Configures the cache of verified credentials.
+     * <ul>
+     * <li><i>verifiedCacheTtl</i> - the time to remember a verification in minutes, 0 disables the cache</li>
+     * <li><i>verifiedCacheMax</i> - the maximum number of verifications to remember</li>
+     * </ul>
+     *
+     * @param config
+     */
+    @Override
+    public void setup(Config config) {
+        if (config.hasPath("verifiedCacheTtl") || config.hasPath("verifiedCacheMax")) {
+            if (config.hasPath("verifiedCacheTtl")) {
+                verifiedCacheTtl = config.getInt("verifiedCacheTtl");
+            }
+            if (config.hasPath("verifiedCacheMax")) {
+                verifiedCacheMax = config.getInt("verifiedCacheMax");
+            }
+            verifiedCredentials = buildVerifiedCredentialsCache();
+        }
+    }
+
+    private Cache<String, String> buildVerifiedCredentialsCache() {
+        if (verifiedCacheTtl > 0 && verifiedCacheMax > 0) {
+            return CacheBuilder.newBuilder()
+                    .expireAfterWrite(verifiedCacheTtl, TimeUnit.MINUTES)
+                    .maximumSize(verifiedCacheMax)
+                    .build();
+        }
+        return null;
+    }
+
+    protected void logVerifiedCacheSettings(Logger log) {
+        Util.logSetting(log, "verifiedCacheTtl (mins)", verifiedCacheTtl);
+        Util.logSetting(log, "verifiedCacheMax", verifiedCacheMax);
+    }
+
     @Override
     public String toString() {
         return getRealmName();
@@ -60,8 +127,13 @@ public abstract class StandardCredentialsRealm implements Realm {
     }
 
     public Account authenticate(StandardCredentials requestCredentials) {
+        Account storedAccount = null;
         if (hasAccount(requestCredentials.getUsername())) {
-            Account storedAccount = getAccount(requestCredentials.getUsername());
+            // the account may have been removed by a concurrent reload
+            storedAccount = getAccount(requestCredentials.getUsername());
+        }
+
+        if (storedAccount != null) {
             StandardCredentials storedCredentials = (StandardCredentials) storedAccount.getCredentials();
             if (Strings.isNullOrEmpty(storedCredentials.getPassword())) {
                 log.debug("Account '{}' in '{}' has no password and may not be used for authentication",
@@ -69,7 +141,7 @@ public abstract class StandardCredentialsRealm implements Realm {
                 return null;
             }
 
-            if (validatePassword(requestCredentials, storedCredentials)) {
+            if (checkPassword(requestCredentials, storedCredentials)) {
                 log.debug("Authentication succeeded for '{}' against '{}'",
                         requestCredentials.getUsername(), getRealmName());
                 return storedAccount;
@@ -84,6 +156,66 @@ public abstract class StandardCredentialsRealm implements Realm {
         return null;
     }
 
+    /**
+     * Checks a password against the stored password.  A recent successful verification
+     * of the same credentials against the same expensive stored hash is reused,
+     * otherwise the password is validated with {@link #validatePassword}.
+     *
+     * @param requestCredentials
+     * @param storedCredentials
+     * @return true if the request password matches the stored password
+     */
+    protected boolean checkPassword(StandardCredentials requestCredentials, StandardCredentials storedCredentials) {
+        Cache<String, String> cache = verifiedCredentials;
+        String storedPassword = storedCredentials.getPassword();
+        if (cache == null || !isExpensiveHash(storedPassword)) {
+            return validatePassword(requestCredentials, storedCredentials);
+        }
+
+        String key = getVerifiedKey(requestCredentials);
+        String verifiedPassword = cache.getIfPresent(key);
+        if (verifiedPassword != null && CryptoUtil.constantTimeEquals(verifiedPassword, storedPassword)) {
+            log.trace("Reused the verified password of user '{}'", requestCredentials.getUsername());
+            return true;
+        }
+
+        if (validatePassword(requestCredentials, storedCredentials)) {
+            // remember the stored hash so that the verification is invalidated when it changes
+            cache.put(key, storedPassword);
+            return true;
+        }
+
+        if (verifiedPassword != null) {
+            cache.invalidate(key);
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if verifying a password against the stored password is expensive.
+     *
+     * @param storedPassword
+     * @return true for BCrypt hashes
+     */
+    protected boolean isExpensiveHash(String storedPassword) {
+        return storedPassword.startsWith("{BF}");
+    }
+
+    private String getVerifiedKey(StandardCredentials credentials) {
+        String text = verifiedSalt + '\0' + credentials.getUsername() + '\0' + credentials.getPassword();
+        return CryptoUtil.getHashSHA256(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Clears the verified credentials.
+     */
+    public void clearVerifiedCredentials() {
+        Cache<String, String> cache = verifiedCredentials;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
     /**
      * Validate a password.
      * <p>
@@ -108,7 +240,8 @@ public abstract class StandardCredentialsRealm implements Realm {
 
         // test blowfish password
         if (storedPassword.startsWith("{BF}")) {
-            if (BCrypt.checkpw(password, storedPassword.substring("{BF}".length()))) {
+            String hash = storedPassword.substring("{BF}".length());
+            if (CryptoUtil.constantTimeEquals(BCrypt.hashpw(password, hash), hash)) {
                 log.trace("Blowfish hashed password matched for user '{}'", username);
                 authenticated = true;
             }
@@ -116,7 +249,7 @@ public abstract class StandardCredentialsRealm implements Realm {
         // test unsalted SHA-256 password
         else if (storedPassword.startsWith("{SHA256}")) {
             String shaPassword = CryptoUtil.getHashSHA256(password);
-            if (storedPassword.substring("{SHA256}".length()).equals(shaPassword)) {
+            if (CryptoUtil.constantTimeEquals(storedPassword.substring("{SHA256}".length()), shaPassword)) {
                 log.trace("Unsalted SHA-256 hashed password matched for user '{}'", username);
                 authenticated = true;
             }
@@ -124,7 +257,7 @@ public abstract class StandardCredentialsRealm implements Realm {
         // test unsalted SHA-1 password
         else if (storedPassword.startsWith("{SHA1}")) {
             String shaPassword = CryptoUtil.getHashSHA1(password);
-            if (storedPassword.substring("{SHA1}".length()).equals(shaPassword)) {
+            if (CryptoUtil.constantTimeEquals(storedPassword.substring("{SHA1}".length()), shaPassword)) {
                 log.trace("Unsalted SHA-1 hashed password matched for user '{}'", username);
                 authenticated = true;
             }
@@ -132,7 +265,7 @@ public abstract class StandardCredentialsRealm implements Realm {
         // test unsalted MD5 password
         else if (storedPassword.startsWith("{MD5}")) {
             String md5Password = CryptoUtil.getHashMD5(password);
-            if (storedPassword.substring("{MD5}".length()).equals(md5Password)) {
+            if (CryptoUtil.constantTimeEquals(storedPassword.substring("{MD5}".length()), md5Password)) {
                 log.trace("Unsalted MD5 hashed password matched for user '{}'", username);
                 authenticated = true;
             }
@@ -140,13 +273,13 @@ public abstract class StandardCredentialsRealm implements Realm {
         // test username salted MD5 password
         else if (storedPassword.startsWith("{CMD5}")) {
             String cmd5Password = CryptoUtil.getHashMD5(username + password);
-            if (storedPassword.substring("{CMD5}".length()).equals(cmd5Password)) {
+            if (CryptoUtil.constantTimeEquals(storedPassword.substring("{CMD5}".length()), cmd5Password)) {
                 log.trace("Salted MD5 hashed password matched for user '{}'", username);
                 authenticated = true;
             }
         }
         // test clear text password
-        else if (storedPassword.equals(password)) {
+        else if (CryptoUtil.constantTimeEquals(storedPassword, password)) {
             log.trace("Clear text password matched for user '{}'", username);
             authenticated = true;
         }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.security;
+
+import fathom.authc.Credentials;
+import fathom.authz.Authorizations;
+import fathom.realm.Account;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * An Account which aggregates the accounts of the other Realms on first use of its
+ * metadata, roles, or permissions.
+ *
+ * @author James Moger
+ */
+class AggregateAccount extends Account {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient volatile Consumer<Account> aggregator;
+
+    private transient boolean aggregating;
+
+    AggregateAccount(String name, Credentials credentials, Consumer<Account> aggregator) {
+        super(name, credentials);
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * Runs the aggregator until it succeeds once.  Concurrent callers wait for the
+     * aggregation to complete, calls from the aggregator itself return immediately.
+     * A failed aggregation is propagated to the caller and is retried on the next use.
+     */
+    private void aggregate() {
+        if (aggregator != null) {
+            synchronized (this) {
+                if (aggregator != null && !aggregating) {
+                    aggregating = true;
+                    try {
+                        aggregator.accept(this);
+                        aggregator = null;
+                    } finally {
+                        aggregating = false;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public Authorizations getAuthorizations() {
+        aggregate();
+        return super.getAuthorizations();
+    }
+
+    @Override
+    public String getName() {
+        aggregate();
+        return super.getName();
+    }
+
+    @Override
+    public String getEmailAddress() {
+        aggregate();
+        return super.getEmailAddress();
+    }
+
+    @Override
+    public Collection<String> getEmailAddresses() {
+        aggregate();
+        return super.getEmailAddresses();
+    }
+
+    @Override
+    public String getToken() {
+        aggregate();
+        return super.getToken();
+    }
+
+    @Override
+    public Collection<String> getTokens() {
+        aggregate();
+        return super.getTokens();
+    }
+
+    @Override
+    public boolean hasToken(String token) {
+        aggregate();
+        return super.hasToken(token);
+    }
+
+    @Override
+    public boolean isPermitted(String permission) {
+        aggregate();
+        return super.isPermitted(permission);
+    }
+
+    @Override
+    public boolean[] isPermitted(String... permissions) {
+        aggregate();
+        return super.isPermitted(permissions);
+    }
+
+    @Override
+    public boolean isPermittedAll(String... permissions) {
+        aggregate();
+        return super.isPermittedAll(permissions);
+    }
+
+    @Override
+    public boolean isPermittedAll(Collection<String> permissions) {
+        aggregate();
+        return super.isPermittedAll(permissions);
+    }
+
+    @Override
+    public boolean hasRole(String roleIdentifier) {
+        aggregate();
+        return super.hasRole(roleIdentifier);
+    }
+
+    @Override
+    public boolean hasRoles(String... roleIdentifiers) {
+        aggregate();
+        return super.hasRoles(roleIdentifiers);
+    }
+
+    @Override
+    public boolean hasRoles(Collection<String> roleIdentifiers) {
+        aggregate();
+        return super.hasRoles(roleIdentifiers);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // the aggregator references the Realms and is not serialized
+        aggregate();
+        out.defaultWriteObject();
+    }
+
+}
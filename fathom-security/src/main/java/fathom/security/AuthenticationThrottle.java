@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.security;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import fathom.authc.AuthenticationToken;
+import fathom.authc.StandardCredentials;
+import fathom.authc.TokenCredentials;
+import fathom.conf.Settings;
+import fathom.utils.CryptoUtil;
+import fathom.utils.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AuthenticationThrottle limits the Realm work caused by failed authentications.
+ * <p>
+ * Failed credentials are remembered by digest for a short time so that replaying them
+ * is rejected without consulting the Realms.  This never rejects a correct password.
+ * <p>
+ * Optionally, failures are also counted per username and remote address pair and per
+ * remote address; once a key exceeds its failure threshold, further attempts, even with
+ * correct credentials, are rejected for an exponentially increasing backoff period.
+ * Both backoffs are disabled by default.  A username is only counted for a known remote
+ * address so that the failures of one client do not lock the account out for the other
+ * clients.  The address backoff affects every client behind a proxy or NAT, a successful
+ * authentication does not reset it.
+ *
+ * @author James Moger
+ */
+class AuthenticationThrottle {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthenticationThrottle.class);
+
+    private final Cache<String, Boolean> failedCredentials;
+
+    private final Cache<String, Failures> usernameFailures;
+
+    private final Cache<String, Failures> addressFailures;
+
+    private final int usernameThreshold;
+
+    private final int addressThreshold;
+
+    private final long initialBackoff;
+
+    private final long maxBackoff;
+
+    private final MetricRegistry metricRegistry;
+
+    private final Meter failed;
+
+    private final Meter rejectedCredentials;
+
+    private final Meter rejectedUsernames;
+
+    private final Meter rejectedAddresses;
+
+    AuthenticationThrottle(Settings settings, MetricRegistry metricRegistry) {
+        long failuresTtl = settings.getDuration("security.failures.cacheTtl", TimeUnit.MILLISECONDS, TimeUnit.SECONDS.toMillis(30));
+        int failuresMax = settings.getInteger("security.failures.cacheMax", 1000);
+        this.usernameThreshold = settings.getInteger("security.backoff.threshold", 0);
+        this.addressThreshold = settings.getInteger("security.backoff.addressThreshold", 0);
+        this.initialBackoff = settings.getDuration("security.backoff.initial", TimeUnit.MILLISECONDS, TimeUnit.SECONDS.toMillis(1));
+        this.maxBackoff = settings.getDuration("security.backoff.max", TimeUnit.MILLISECONDS, TimeUnit.MINUTES.toMillis(5));
+        long backoffWindow = settings.getDuration("security.backoff.window", TimeUnit.MILLISECONDS, TimeUnit.MINUTES.toMillis(15));
+        int backoffMax = settings.getInteger("security.backoff.cacheMax", 10000);
+
+        log.debug("Authentication throttle configuration:");
+        Util.logSetting(log, "security.failures.cacheTtl (msecs)", failuresTtl);
+        Util.logSetting(log, "security.failures.cacheMax", failuresMax);
+        Util.logSetting(log, "security.backoff.threshold", usernameThreshold);
+        Util.logSetting(log, "security.backoff.addressThreshold", addressThreshold);
+        Util.logSetting(log, "security.backoff.initial (msecs)", initialBackoff);
+        Util.logSetting(log, "security.backoff.max (msecs)", maxBackoff);
+        Util.logSetting(log, "security.backoff.window (msecs)", backoffWindow);
+        Util.logSetting(log, "security.backoff.cacheMax", backoffMax);
+
+        if (failuresTtl > 0 && failuresMax > 0) {
+            this.failedCredentials = CacheBuilder.newBuilder()
+                    .expireAfterWrite(failuresTtl, TimeUnit.MILLISECONDS)
+                    .maximumSize(failuresMax)
+                    .build();
+        } else {
+            this.failedCredentials = null;
+        }
+
+        boolean backoff = initialBackoff > 0 && backoffWindow > 0 && backoffMax > 0;
+        this.usernameFailures = backoff && usernameThreshold > 0 ? newFailuresCache(backoffWindow, backoffMax) : null;
+        this.addressFailures = backoff && addressThreshold > 0 ? newFailuresCache(backoffWindow, backoffMax) : null;
+
+        this.metricRegistry = metricRegistry;
+        this.failed = metricRegistry.meter(name("failed"));
+        this.rejectedCredentials = metricRegistry.meter(name("rejected", "credentials"));
+        this.rejectedUsernames = metricRegistry.meter(name("rejected", "usernames"));
+        this.rejectedAddresses = metricRegistry.meter(name("rejected", "addresses"));
+        register(name("failures", "credentials"), failedCredentials);
+        register(name("failures", "usernames"), usernameFailures);
+        register(name("failures", "addresses"), addressFailures);
+    }
+
+    /**
+     * Returns true if the authentication attempt must be rejected without consulting the Realms.
+     *
+     * @param authenticationToken
+     * @param remoteAddress       may be null
+     * @return true if the attempt is rejected
+     */
+    boolean isRejected(AuthenticationToken authenticationToken, String remoteAddress) {
+        long now = System.currentTimeMillis();
+        if (isBackingOff(usernameFailures, getUsernameKey(authenticationToken, remoteAddress), now)) {
+            rejectedUsernames.mark();
+            return true;
+        }
+
+        if (isBackingOff(addressFailures, remoteAddress, now)) {
+            rejectedAddresses.mark();
+            return true;
+        }
+
+        if (failedCredentials != null) {
+            String digest = getDigest(authenticationToken);
+            if (digest != null && failedCredentials.getIfPresent(digest) != null) {
+                rejectedCredentials.mark();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    void failed(AuthenticationToken authenticationToken, String remoteAddress) {
+        failed.mark();
+        long now = System.currentTimeMillis();
+
+        if (failedCredentials != null) {
+            String digest = getDigest(authenticationToken);
+            if (digest != null) {
+                failedCredentials.put(digest, Boolean.TRUE);
+            }
+        }
+
+        recordFailure(usernameFailures, getUsernameKey(authenticationToken, remoteAddress), usernameThreshold, now);
+        recordFailure(addressFailures, remoteAddress, addressThreshold, now);
+    }
+
+    void succeeded(AuthenticationToken authenticationToken, String remoteAddress) {
+        String key = getUsernameKey(authenticationToken, remoteAddress);
+        if (usernameFailures != null && key != null) {
+            usernameFailures.invalidate(key);
+        }
+    }
+
+    void clear() {
+        for (Cache<String, ?> cache : new Cache[]{failedCredentials, usernameFailures, addressFailures}) {
+            if (cache != null) {
+                cache.invalidateAll();
+            }
+        }
+    }
+
+    void close() {
+        String prefix = MetricRegistry.name(SecurityManager.class, "authentications") + ".";
+        metricRegistry.removeMatching((name, metric) -> name.startsWith(prefix));
+    }
+
+    private static Cache<String, Failures> newFailuresCache(long window, int max) {
+        return CacheBuilder.newBuilder()
+                .expireAfterWrite(window, TimeUnit.MILLISECONDS)
+                .maximumSize(max)
+                .build();
+    }
+
+    private boolean isBackingOff(Cache<String, Failures> cache, String key, long now) {
+        if (cache == null || key == null) {
+            return false;
+        }
+        Failures failures = cache.getIfPresent(key);
+        return failures != null && failures.blockedUntil > now;
+    }
+
+    private void recordFailure(Cache<String, Failures> cache, String key, int threshold, long now) {
+        if (cache == null || key == null) {
+            return;
+        }
+
+        // compute is implemented with atomic replace operations which refresh the write expiration
+        cache.asMap().compute(key, (k, failures) -> {
+            int count = failures == null ? 1 : failures.count + 1;
+            long blockedUntil = now + getBackoff(count, threshold);
+            return new Failures(count, blockedUntil);
+        });
+    }
+
+    /**
+     * Returns the backoff period after the specified number of consecutive failures.
+     *
+     * @param failures
+     * @param threshold the number of failures before backing off
+     * @return the backoff period in milliseconds
+     */
+    long getBackoff(int failures, int threshold) {
+        if (failures < threshold) {
+            return 0;
+        }
+        int doublings = Math.min(failures - threshold, 62);
+        long backoff = initialBackoff << doublings;
+        if (backoff <= 0 || (backoff >> doublings) != initialBackoff) {
+            // overflow
+            return maxBackoff;
+        }
+        return Math.min(backoff, maxBackoff);
+    }
+
+    /**
+     * Returns the key of the username failures of a client.  Without a remote address the
+     * client can not be told apart from the other clients of the username, so the failures
+     * are not counted rather than locking out the account for everyone.
+     */
+    private static String getUsernameKey(AuthenticationToken authenticationToken, String remoteAddress) {
+        if (remoteAddress != null && authenticationToken instanceof StandardCredentials) {
+            String username = Strings.emptyToNull(((StandardCredentials) authenticationToken).getUsername());
+            if (username != null) {
+                return username + '\0' + remoteAddress;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a digest of the secret of the token.  The negative cache does not retain the secrets themselves.
+     */
+    private static String getDigest(AuthenticationToken authenticationToken) {
+        String secret;
+        if (authenticationToken instanceof StandardCredentials) {
+            StandardCredentials credentials = (StandardCredentials) authenticationToken;
+            secret = credentials.getUsername() + '\0' + credentials.getPassword();
+        } else if (authenticationToken instanceof TokenCredentials) {
+            secret = "token\0" + ((TokenCredentials) authenticationToken).getToken();
+        } else {
+            return null;
+        }
+        // UTF-8 so that distinct non-Latin secrets do not collide
+        return CryptoUtil.getHashSHA256(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String name(String... names) {
+        return MetricRegistry.name(MetricRegistry.name(SecurityManager.class, "authentications"), names);
+    }
+
+    private void register(String name, Cache<String, ?> cache) {
+        if (cache != null) {
+            metricRegistry.remove(name);
+            metricRegistry.register(name, (Gauge<Long>) cache::size);
+        }
+    }
+
+    private static class Failures {
+
+        final int count;
+
+        final long blockedUntil;
+
+        Failures(int count, long blockedUntil) {
+            this.count = count;
+            this.blockedUntil = blockedUntil;
+        }
+    }
+
+}
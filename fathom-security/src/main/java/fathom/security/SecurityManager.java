@@ -16,6 +16,7 @@
 
 package fathom.security;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
@@ -29,6 +30,7 @@ import fathom.Constants;
 import fathom.Service;
 import fathom.authc.AuthenticationException;
 import fathom.authc.AuthenticationToken;
+import fathom.authc.Credentials;
 import fathom.conf.Settings;
 import fathom.exception.FathomException;
 import fathom.realm.Account;
@@ -45,11 +47,22 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * SecurityManager manages the Realms and handles authentication.
+ * <p>
+ * Concurrent authentications of equal tokens are coalesced: the first caller consults
+ * the Realms and the others wait for and share its result.  Failed authentications
+ * are throttled by an {@link AuthenticationThrottle}.
  *
  * @author James Moger
  */
@@ -64,10 +77,23 @@ public class SecurityManager implements Service {
     @Inject
     private Settings settings;
 
+    @Inject
+    private MetricRegistry metricRegistry;
+
     private Collection<Realm> allRealms;
 
+    private List<Realm> aggregationRealms;
+
+    private Map<Realm, String> realmGroups;
+
+    private AggregationPolicy aggregationPolicy;
+
     private Cache<AuthenticationToken, Account> accountCache;
 
+    private AuthenticationThrottle authenticationThrottle;
+
+    private final ConcurrentMap<AuthenticationToken, CompletableFuture<Account>> inFlight = new ConcurrentHashMap<>();
+
     @Override
     public int getPreferredStartOrder() {
         return 50;
@@ -76,6 +102,8 @@ public class SecurityManager implements Service {
     @Override
     public void start() {
         allRealms = Collections.emptyList();
+        aggregationRealms = Collections.emptyList();
+        realmGroups = new HashMap<>();
 
         // configure the SecurityManager
         URL configFileUrl = settings.getFileUrl("security.configurationFile", "classpath:conf/realms.conf");
@@ -95,6 +123,32 @@ public class SecurityManager implements Service {
 
         allRealms = parseDefinedRealms(config);
 
+        String aggregationOrder = "configured";
+        if (config.hasPath("aggregationOrder")) {
+            aggregationOrder = config.getString("aggregationOrder").trim().toLowerCase();
+        }
+        List<Realm> realms = new ArrayList<>(allRealms);
+        if ("cost".equals(aggregationOrder)) {
+            // consult the cheapest realms first when aggregating accounts
+            realms.sort(Comparator.comparing(Realm::getLookupCost));
+        } else if (!"configured".equals(aggregationOrder)) {
+            throw new FathomException("Unknown account aggregation order '{}'!", aggregationOrder);
+        }
+        aggregationRealms = Collections.unmodifiableList(realms);
+
+        aggregationPolicy = AggregationPolicy.ALL;
+        if (config.hasPath("aggregation")) {
+            String aggregation = config.getString("aggregation");
+            try {
+                aggregationPolicy = AggregationPolicy.valueOf(aggregation.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new FathomException("Unknown account aggregation '{}'!", aggregation);
+            }
+        }
+        log.debug("Aggregating accounts from {} realms in {} order", aggregationPolicy.name().toLowerCase(), aggregationOrder);
+
+        authenticationThrottle = new AuthenticationThrottle(settings, metricRegistry);
+
         // configure an expiring account cache
         int cacheTtl = 0;
         if (config.hasPath("cacheTtl")) {
@@ -140,6 +194,10 @@ public class SecurityManager implements Service {
     public void stop() {
         clearCache();
 
+        if (authenticationThrottle != null) {
+            authenticationThrottle.close();
+        }
+
         for (Realm realm : allRealms) {
             try {
                 log.debug("Stopping realm '{}'", realm.getRealmName());
@@ -171,6 +229,22 @@ public class SecurityManager implements Service {
      * @return an Account instance if authentication is successful
      */
     public Account authenticate(AuthenticationToken authenticationToken) {
+        return authenticate(authenticationToken, null);
+    }
+
+    /**
+     * Tries to authenticate an AuthenticationToken presented by a remote client.
+     * <p>
+     * Failed authentications are counted against the username from the remote address
+     * and against the remote address.  A coalesced failure is counted once.
+     * Repeated failures are rejected with an exponential backoff and without consulting
+     * the Realms.
+     *
+     * @param authenticationToken
+     * @param remoteAddress       the address of the client, may be null
+     * @return an Account instance if authentication is successful
+     */
+    public Account authenticate(AuthenticationToken authenticationToken, String remoteAddress) {
 
         if (accountCache != null) {
             Account account = accountCache.getIfPresent(authenticationToken);
@@ -179,13 +253,100 @@ public class SecurityManager implements Service {
             }
         }
 
+        if (authenticationThrottle != null && authenticationThrottle.isRejected(authenticationToken, remoteAddress)) {
+            log.debug("Rejected throttled authentication from '{}'", remoteAddress);
+            return null;
+        }
+
+        return authenticateOnce(authenticationToken, remoteAddress);
+    }
+
+    /**
+     * Authenticates an AuthenticationToken, sharing the lookup with concurrent callers of an equal token.
+     * The result is recorded by the throttle once, for the caller which consulted the Realms.
+     *
+     * @param authenticationToken
+     * @param remoteAddress       the address of the client, may be null
+     * @return an Account instance if authentication is successful
+     */
+    private Account authenticateOnce(AuthenticationToken authenticationToken, String remoteAddress) {
+        CompletableFuture<Account> future = new CompletableFuture<>();
+        CompletableFuture<Account> inFlightFuture = inFlight.putIfAbsent(authenticationToken, future);
+        if (inFlightFuture != null) {
+            // an identical authentication is in progress, share its result
+            return awaitAuthentication(inFlightFuture);
+        }
+
+        try {
+            Account account = null;
+            if (accountCache != null) {
+                // the previous flight may have completed after our cache check
+                account = accountCache.getIfPresent(authenticationToken);
+            }
+            if (account == null) {
+                account = authenticateRealms(authenticationToken);
+                if (authenticationThrottle != null) {
+                    if (account == null) {
+                        authenticationThrottle.failed(authenticationToken, remoteAddress);
+                    } else {
+                        authenticationThrottle.succeeded(authenticationToken, remoteAddress);
+                    }
+                }
+            }
+            future.complete(account);
+            return account;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(authenticationToken, future);
+        }
+    }
+
+    private Account awaitAuthentication(CompletableFuture<Account> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Authenticates an AuthenticationToken against the Realms and assembles the aggregate Account.
+     *
+     * @param authenticationToken
+     * @return an Account instance if authentication is successful
+     */
+    private Account authenticateRealms(AuthenticationToken authenticationToken) {
         Account authenticatedAccount = null;
         for (Realm realm : allRealms) {
             if (realm.canAuthenticate(authenticationToken)) {
                 Account account = realm.authenticate(authenticationToken);
                 if (account != null && !account.isDisabled()) {
                     // create a sanitized copy of this account
-                    authenticatedAccount = new Account(account.getName(), account.getCredentials().sanitize());
+                    String name = account.getName();
+                    Credentials credentials = account.getCredentials().sanitize();
+                    if (aggregationPolicy == AggregationPolicy.LAZY) {
+                        authenticatedAccount = new AggregateAccount(name, credentials, aggregateAccount -> {
+                            try {
+                                aggregate(aggregateAccount, realm, account);
+                            } catch (RuntimeException e) {
+                                // do not serve a partially aggregated account from the cache
+                                if (accountCache != null) {
+                                    accountCache.invalidate(authenticationToken);
+                                }
+                                throw e;
+                            }
+                        });
+                    } else {
+                        authenticatedAccount = new Account(name, credentials);
+                        aggregate(authenticatedAccount, realm, account);
+                    }
                     break;
                 }
             }
@@ -196,39 +357,85 @@ public class SecurityManager implements Service {
             return null;
         }
 
-        // aggregate metadata, roles, & permissions
-        final Account aggregateAccount = authenticatedAccount;
-        allRealms.stream()
-                .filter(realm -> realm.hasAccount(aggregateAccount.getUsername()))
-                .map(realm -> realm.getAccount(aggregateAccount.getUsername()))
-                .filter(account -> account.isEnabled())
-                .forEach(account -> {
-                    if (Strings.isNullOrEmpty(aggregateAccount.getName())) {
-                        aggregateAccount.setName(account.getName());
-                    }
-                    aggregateAccount.addEmailAddresses(account.getEmailAddresses());
-                    aggregateAccount.addTokens(account.getTokens());
-                    aggregateAccount.getAuthorizations()
-                            .addRoles(account.getAuthorizations().getRoles())
-                            .addPermissions(account.getAuthorizations().getPermissions());
-                });
-
         if (accountCache != null) {
             // cache this assembled account
-            accountCache.put(authenticationToken, aggregateAccount);
+            accountCache.put(authenticationToken, authenticatedAccount);
         }
 
-        return aggregateAccount;
+        return authenticatedAccount;
     }
 
     /**
-     * Clears the SecurityManager account cache and any CachingRealm's cache.
+     * Assembles the aggregate Account of a username which has been authenticated by other
+     * means, like a signed token.  No credentials are validated.
+     *
+     * @param username
+     * @return the aggregate Account or null if no Realm has an enabled account for the username
+     */
+    public Account getAccount(String username) {
+        for (Realm realm : aggregationRealms) {
+            Account account = realm.loadAccount(username);
+            if (account != null && !account.isDisabled()) {
+                Account aggregateAccount = new Account(account.getName(), account.getCredentials().sanitize());
+                aggregate(aggregateAccount, realm, account);
+                return aggregateAccount;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Aggregates the metadata, roles, & permissions of the authenticated account and,
+     * depending on the aggregation policy, of the accounts of the other Realms.
+     *
+     * @param aggregateAccount    the account to populate
+     * @param authenticatingRealm the Realm which authenticated the account
+     * @param authenticatedAccount the account returned by the authenticating Realm
+     */
+    private void aggregate(Account aggregateAccount, Realm authenticatingRealm, Account authenticatedAccount) {
+        String username = aggregateAccount.getUsername();
+        String group = realmGroups.get(authenticatingRealm);
+        for (Realm realm : aggregationRealms) {
+            Account account;
+            if (realm == authenticatingRealm) {
+                // do not look up the authenticated account again
+                account = authenticatedAccount;
+            } else if (aggregationPolicy == AggregationPolicy.FIRST) {
+                continue;
+            } else if (aggregationPolicy == AggregationPolicy.GROUPS
+                    && (group == null || !group.equals(realmGroups.get(realm)))) {
+                continue;
+            } else if (realm.getLookupCost() == Realm.LookupCost.REMOTE) {
+                account = realm.getAccount(username);
+            } else {
+                account = realm.hasAccount(username) ? realm.getAccount(username) : null;
+            }
+
+            if (account != null && account.isEnabled()) {
+                if (Strings.isNullOrEmpty(aggregateAccount.getName())) {
+                    aggregateAccount.setName(account.getName());
+                }
+                aggregateAccount.addEmailAddresses(account.getEmailAddresses());
+                aggregateAccount.addTokens(account.getTokens());
+                aggregateAccount.getAuthorizations()
+                        .addRoles(account.getAuthorizations().getRoles())
+                        .addPermissions(account.getAuthorizations().getPermissions());
+            }
+        }
+    }
+
+    /**
+     * Clears the SecurityManager account cache, the failed authentication counters,
+     * and any CachingRealm's cache.
      * MemoryRealms are not affected by this call.
      */
     public void clearCache() {
         if (accountCache != null) {
             accountCache.invalidateAll();
         }
+        if (authenticationThrottle != null) {
+            authenticationThrottle.clear();
+        }
         for (Realm realm : allRealms) {
             if (realm instanceof CachingRealm) {
                 CachingRealm cachingRealm = (CachingRealm) realm;
@@ -272,6 +479,9 @@ public class SecurityManager implements Service {
                             Realm realm = injector.getInstance(realmClass);
                             realm.setup(realmConfig);
                             realms.add(realm);
+                            if (realmConfig.hasPath("group")) {
+                                realmGroups.put(realm, realmConfig.getString("group"));
+                            }
                             log.debug("Created '{}' named '{}'", realmType, realm.getRealmName());
                         } catch (Exception e) {
                             log.error("Failed to create '{}' realm", realmType, e);
@@ -286,4 +496,31 @@ public class SecurityManager implements Service {
 
         return Collections.unmodifiableList(realms);
     }
+
+    /**
+     * Determines which Realms contribute to the account of an authenticated user.
+     */
+    public enum AggregationPolicy {
+
+        /**
+         * Aggregate the accounts of all Realms.
+         */
+        ALL,
+
+        /**
+         * Only use the account of the authenticating Realm.
+         */
+        FIRST,
+
+        /**
+         * Aggregate the accounts of the Realms in the group of the authenticating Realm.
+         */
+        GROUPS,
+
+        /**
+         * Aggregate the accounts of all Realms on first use of the account's metadata or authorizations.
+         */
+        LAZY
+    }
+
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.security;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import fathom.authz.Role;
+import fathom.conf.Settings;
+import fathom.exception.FathomException;
+import fathom.realm.Account;
+import fathom.utils.CryptoUtil;
+import fathom.utils.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * SignedTokens issues and verifies self-contained authentication tokens.
+ * <p>
+ * A signed token carries the username, the expiration, and a digest of the roles of
+ * the Account.  The token is signed with an HMAC so it is verified without consulting
+ * the Realms; only the Account of the username is assembled by the SecurityManager and
+ * cached for a short time.  A token is rejected when the roles of the Account change.
+ * <p>
+ * Tokens are signed with <i>security.tokens.key</i> and carry its configured
+ * <i>security.tokens.keyId</i>.  To rotate the key, move the current key as
+ * <i>keyId:key</i> to <i>security.tokens.previousKeys</i> which are still accepted for
+ * verification, and specify a new key and key id.  Signed tokens are disabled if no key
+ * is configured.
+ *
+ * @author James Moger
+ */
+@Singleton
+public class SignedTokens {
+
+    private static final Logger log = LoggerFactory.getLogger(SignedTokens.class);
+
+    private static final Splitter DOT = Splitter.on('.');
+
+    private static final Pattern KEY_ID = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private final SecurityManager securityManager;
+
+    private final String signingKeyId;
+
+    private final Map<String, String> keys;
+
+    private final long ttl;
+
+    private final Cache<String, Account> accountCache;
+
+    @Inject
+    public SignedTokens(SecurityManager securityManager, Settings settings) {
+        this.securityManager = securityManager;
+
+        String signingKey = Strings.emptyToNull(settings.getString("security.tokens.key", null));
+        String keyId = null;
+        Map<String, String> keyMap = new LinkedHashMap<>();
+        if (signingKey != null) {
+            keyId = checkKeyId(settings.getString("security.tokens.keyId", null), "security.tokens.keyId");
+            keyMap.put(keyId, signingKey);
+            for (String previousKey : settings.getStrings("security.tokens.previousKeys")) {
+                if (Strings.isNullOrEmpty(previousKey)) {
+                    continue;
+                }
+                int separator = previousKey.indexOf(':');
+                if (separator < 0 || separator == previousKey.length() - 1) {
+                    throw new FathomException("Previous token keys must be specified as 'keyId:key'");
+                }
+                String previousKeyId = checkKeyId(previousKey.substring(0, separator), "security.tokens.previousKeys");
+                if (keyMap.putIfAbsent(previousKeyId, previousKey.substring(separator + 1)) != null) {
+                    throw new FathomException("The token key id '{}' is not unique", previousKeyId);
+                }
+            }
+        }
+        this.signingKeyId = keyId;
+        this.keys = Collections.unmodifiableMap(keyMap);
+        this.ttl = settings.getDuration("security.tokens.ttl", TimeUnit.SECONDS, TimeUnit.HOURS.toSeconds(1));
+
+        long accountCacheTtl = settings.getDuration("security.tokens.accountCacheTtl", TimeUnit.MILLISECONDS, TimeUnit.MINUTES.toMillis(1));
+        int accountCacheMax = settings.getInteger("security.tokens.accountCacheMax", 1000);
+        if (accountCacheTtl > 0 && accountCacheMax > 0) {
+            this.accountCache = CacheBuilder.newBuilder()
+                    .expireAfterWrite(accountCacheTtl, TimeUnit.MILLISECONDS)
+                    .maximumSize(accountCacheMax)
+                    .build();
+        } else {
+            this.accountCache = null;
+        }
+
+        log.debug("Signed tokens configuration:");
+        Util.logSetting(log, "security.tokens enabled", isEnabled());
+        Util.logSetting(log, "security.tokens.keyId", signingKeyId);
+        Util.logSetting(log, "security.tokens.previousKeys", Math.max(0, keys.size() - 1));
+        Util.logSetting(log, "security.tokens.ttl (secs)", ttl);
+        Util.logSetting(log, "security.tokens.accountCacheTtl (msecs)", accountCacheTtl);
+        Util.logSetting(log, "security.tokens.accountCacheMax", accountCacheMax);
+    }
+
+    /**
+     * Returns true if a signing key is configured.
+     *
+     * @return true if signed tokens are enabled
+     */
+    public boolean isEnabled() {
+        return signingKeyId != null;
+    }
+
+    /**
+     * Returns true if the token has the format of a signed token, <i>keyId.payload.signature</i>,
+     * and a known key id.  Other tokens should be authenticated by the SecurityManager.
+     *
+     * @param token
+     * @return true if the token should be verified by this class
+     */
+    public boolean isSignedToken(String token) {
+        if (!isEnabled() || token == null) {
+            return false;
+        }
+
+        List<String> parts = DOT.splitToList(token);
+        return parts.size() == 3 && keys.containsKey(parts.get(0))
+                && !parts.get(1).isEmpty() && !parts.get(2).isEmpty();
+    }
+
+    /**
+     * Issues a signed token for the Account which expires after the configured ttl.
+     *
+     * @param account
+     * @return a signed token
+     */
+    public String issue(Account account) {
+        return issue(account, ttl, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Issues a signed token for the Account.
+     *
+     * @param account
+     * @param duration
+     * @param timeUnit
+     * @return a signed token
+     */
+    public String issue(Account account, long duration, TimeUnit timeUnit) {
+        if (!isEnabled()) {
+            throw new FathomException("Signed tokens are disabled, please configure 'security.tokens.key'");
+        }
+
+        long expires = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + timeUnit.toSeconds(duration);
+        String payload = account.getUsername() + '\n' + expires + '\n' + getRolesDigest(account);
+        String encodedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        String message = signingKeyId + '.' + encodedPayload;
+        return message + '.' + CryptoUtil.getHmacSHA256(message, keys.get(signingKeyId));
+    }
+
+    /**
+     * Verifies a signed token and returns the Account of the token.
+     *
+     * @param token
+     * @return the Account or null if the token is invalid, expired, or the roles of the Account have changed
+     */
+    public Account verify(String token) {
+        if (!isSignedToken(token)) {
+            return null;
+        }
+
+        List<String> parts = DOT.splitToList(token);
+        String key = keys.get(parts.get(0));
+        String message = parts.get(0) + '.' + parts.get(1);
+        if (!CryptoUtil.constantTimeEquals(CryptoUtil.getHmacSHA256(message, key), parts.get(2))) {
+            log.debug("Rejected signed token with an invalid signature");
+            return null;
+        }
+
+        List<String> payload;
+        try {
+            payload = Splitter.on('\n').splitToList(new String(Base64.getUrlDecoder().decode(parts.get(1)), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (payload.size() != 3) {
+            return null;
+        }
+
+        String username = payload.get(0);
+        long expires;
+        try {
+            expires = Long.parseLong(payload.get(1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (expires <= TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())) {
+            log.debug("Rejected expired signed token of '{}'", username);
+            return null;
+        }
+
+        Account account = getAccount(username);
+        if (account == null || !payload.get(2).equals(getRolesDigest(account))) {
+            log.debug("Rejected signed token of '{}', the account has changed", username);
+            return null;
+        }
+
+        return account;
+    }
+
+    /**
+     * Clears the cached Accounts.
+     */
+    public void clearCache() {
+        if (accountCache != null) {
+            accountCache.invalidateAll();
+        }
+    }
+
+    private Account getAccount(String username) {
+        if (accountCache == null) {
+            return securityManager.getAccount(username);
+        }
+
+        Account account = accountCache.getIfPresent(username);
+        if (account == null) {
+            account = securityManager.getAccount(username);
+            if (account != null) {
+                accountCache.put(username, account);
+            }
+        }
+        return account;
+    }
+
+    private static String checkKeyId(String keyId, String setting) {
+        if (Strings.isNullOrEmpty(keyId) || !KEY_ID.matcher(keyId).matches()) {
+            throw new FathomException("Please configure a '{}' of letters, digits, '-', or '_'", setting);
+        }
+        return keyId;
+    }
+
+    private static String getRolesDigest(Account account) {
+        String text = account.getAuthorizations().getRoles().stream()
+                .map(Role::getName)
+                .sorted()
+                .collect(Collectors.joining("\n"));
+        return CryptoUtil.getHashSHA256(text.getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.authz;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the compiled PermissionMatcher with {@link Permission#implies(Permission)}
+ * for randomly generated permissions.
+ *
+ * @author James Moger
+ */
+public class PermissionMatcherTest extends Assert {
+
+    private static final String[] TOKENS = {"a", "b", "c", "D", "*"};
+
+    @Test
+    public void testRandomPermissions() {
+        Random random = new Random(8675309L);
+        for (int run = 0; run < 500; run++) {
+            List<Permission> granted = new ArrayList<>();
+            int count = random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                granted.add(randomPermission(random));
+            }
+
+            PermissionMatcher matcher = new PermissionMatcher(granted);
+            for (int i = 0; i < 50; i++) {
+                Permission permission = randomPermission(random);
+                assertEquals(granted + " implies " + permission, impliesLinearly(granted, permission), matcher.implies(permission));
+            }
+        }
+    }
+
+    @Test
+    public void testWildcards() {
+        Authorizations authorizations = new Authorizations()
+                .addPermissions("items:view", "orders:*:7", "reports:*", "*:audit");
+
+        assertTrue(authorizations.isPermitted("items:view"));
+        assertTrue(authorizations.isPermitted("items:view:42"));
+        assertFalse(authorizations.isPermitted("items"));
+        assertFalse(authorizations.isPermitted("items:delete"));
+        assertTrue(authorizations.isPermitted("orders:delete:7"));
+        assertFalse(authorizations.isPermitted("orders:delete:8"));
+        assertFalse(authorizations.isPermitted("orders:delete"));
+        assertTrue(authorizations.isPermitted("reports"));
+        assertTrue(authorizations.isPermitted("reports:view,edit"));
+        assertTrue(authorizations.isPermitted("anything:audit"));
+        assertFalse(authorizations.isPermitted("*"));
+        assertTrue(authorizations.isPermittedAll("ITEMS:VIEW", "orders:view,edit:7"));
+    }
+
+    @Test
+    public void testRoles() {
+        Authorizations authorizations = new Authorizations()
+                .addRole(new Role("reviewer", "items:view"))
+                .addRoles("editor", "author");
+
+        assertTrue(authorizations.hasRole("reviewer"));
+        assertTrue(authorizations.hasRole(" editor "));
+        assertFalse(authorizations.hasRole("administrator"));
+        assertTrue(authorizations.hasRoles("author", "editor"));
+        assertFalse(authorizations.hasRoles("author", "administrator"));
+        assertTrue(authorizations.isPermitted("items:view"));
+
+        authorizations.getRoles().add(new Role("administrator"));
+        assertTrue(authorizations.hasRole("administrator"));
+    }
+
+    private static boolean impliesLinearly(List<Permission> granted, Permission permission) {
+        for (Permission perm : granted) {
+            if (perm.implies(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Permission randomPermission(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int parts = 1 + random.nextInt(4);
+        for (int i = 0; i < parts; i++) {
+            if (i > 0) {
+                sb.append(':');
+            }
+            int subparts = random.nextInt(10) < 7 ? 1 : 1 + random.nextInt(3);
+            for (int j = 0; j < subparts; j++) {
+                if (j > 0) {
+                    sb.append(',');
+                }
+                sb.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+        }
+        return new Permission(sb.toString(), random.nextInt(4) == 0);
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.realm;
+
+import fathom.authc.StandardCredentials;
+import fathom.authc.TokenCredentials;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test the File Realm.
+ *
+ * @author James Moger
+ */
+public class FileRealmTest extends Assert {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    File file;
+
+    FileRealm realm;
+
+    @Before
+    public void setUp() throws IOException {
+        file = folder.newFile("realm.conf");
+        write(1);
+
+        // the realm is not started, reloads are triggered by checking the monitor
+        realm = new FileRealm();
+        realm.setFile(file);
+    }
+
+    @After
+    public void tearDown() {
+        realm.stop();
+    }
+
+    @Test
+    public void testAuthenticate() {
+        assertNotNull(realm.authenticate("stable", "stable"));
+        assertNotNull(realm.authenticate("user", "pass1"));
+        assertNull(realm.authenticate("user", "pass2"));
+        assertTrue(realm.getAccount("user").hasRole("gen1"));
+        assertNotNull(realm.authenticateToken(new TokenCredentials("token1")));
+    }
+
+    @Test
+    public void testConcurrentReload() throws Exception {
+        int threads = 8;
+        int generations = 25;
+        AtomicInteger generation = new AtomicInteger(1);
+        AtomicInteger logins = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                while (!done.get()) {
+                    // the account set is always complete
+                    Account stable = realm.authenticate("stable", "stable");
+                    assertNotNull(stable);
+
+                    // the user account is consistent with its generation
+                    int current = generation.get();
+                    Account user = realm.getAccount("user");
+                    assertNotNull(user);
+                    String password = ((StandardCredentials) user.getCredentials()).getPassword();
+                    int seen = Integer.parseInt(password.substring("pass".length()));
+                    assertTrue(seen <= current);
+                    assertTrue(user.hasRole("gen" + seen));
+                    if (realm.authenticate("user", password) == null) {
+                        // the account was replaced by a reload
+                        assertNotSame(user, realm.getAccount("user"));
+                    }
+                    logins.addAndGet(2);
+                }
+                return null;
+            }));
+        }
+
+        try {
+            for (int i = 2; i <= generations; i++) {
+                generation.set(i);
+                write(i);
+                assertTrue(realm.getFileMonitor().check());
+            }
+            done.set(true);
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            done.set(true);
+            executor.shutdown();
+        }
+
+        assertNotNull(realm.authenticate("user", "pass" + generations));
+        assertNull(realm.authenticate("user", "pass1"));
+        assertTrue(logins.get() > 0);
+    }
+
+    @Test
+    public void testSetFileWhileRunning() throws IOException {
+        realm.start();
+        assertTrue(realm.getFileMonitor().isRunning());
+
+        FileMonitor previous = realm.getFileMonitor();
+        realm.setFile(file);
+        assertFalse(previous.isRunning());
+        assertTrue(realm.getFileMonitor().isRunning());
+
+        realm.stop();
+        assertFalse(realm.getFileMonitor().isRunning());
+    }
+
+    private void write(int generation) throws IOException {
+        String content = "roles: {\n"
+                + "  gen" + generation + ": [\"items:view\"]\n"
+                + "}\n"
+                + "accounts: [\n"
+                + "  { username: stable, password: stable }\n"
+                + "  { username: user, password: pass" + generation
+                + ", roles: [gen" + generation + "], tokens: [token" + generation + "] }\n"
+                + "]\n";
+
+        // replace the file atomically like an editor
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        Files.write(tmp.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // a distinct modification time regardless of the file system resolution
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(TimeUnit.HOURS.toMillis(generation)));
+    }
+
+}
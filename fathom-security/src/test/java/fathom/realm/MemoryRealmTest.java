@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.realm;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import fathom.authc.StandardCredentials;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test the verified credentials cache of the Memory Realm.
+ *
+ * @author James Moger
+ */
+public class MemoryRealmTest extends Assert {
+
+    @Test
+    public void testVerifiedCredentials() {
+        CountingRealm realm = new CountingRealm();
+        realm.setup(config("{BF}" + BCrypt.hashpw("pass1", BCrypt.gensalt(4)), ""));
+
+        assertNotNull(realm.authenticate("user", "pass1"));
+        assertNotNull(realm.authenticate("user", "pass1"));
+        assertEquals("The verified password was validated again", 1, realm.validations.get());
+
+        assertNull(realm.authenticate("user", "wrong"));
+        assertNull(realm.authenticate("user", "wrong"));
+        assertEquals("A failed password must not be remembered", 3, realm.validations.get());
+
+        realm.clearVerifiedCredentials();
+        assertNotNull(realm.authenticate("user", "pass1"));
+        assertEquals(4, realm.validations.get());
+    }
+
+    @Test
+    public void testChangedPassword() {
+        CountingRealm realm = new CountingRealm();
+        realm.setup(config("{BF}" + BCrypt.hashpw("pass1", BCrypt.gensalt(4)), ""));
+        assertNotNull(realm.authenticate("user", "pass1"));
+
+        // the stored hash changes, the verification of the old password is invalid
+        realm.setup(config("{BF}" + BCrypt.hashpw("pass2", BCrypt.gensalt(4)), ""));
+        assertNull(realm.authenticate("user", "pass1"));
+        assertNotNull(realm.authenticate("user", "pass2"));
+        assertNotNull(realm.authenticate("user", "pass2"));
+        assertEquals(3, realm.validations.get());
+    }
+
+    @Test
+    public void testCheapHashes() {
+        CountingRealm realm = new CountingRealm();
+        realm.setup(config("pass1", ""));
+
+        assertNotNull(realm.authenticate("user", "pass1"));
+        assertNotNull(realm.authenticate("user", "pass1"));
+        assertEquals("Clear passwords must not be cached", 2, realm.validations.get());
+    }
+
+    @Test
+    public void testDisabled() {
+        CountingRealm realm = new CountingRealm();
+        realm.setup(config("{BF}" + BCrypt.hashpw("pass1", BCrypt.gensalt(4)), "verifiedCacheTtl: 0\n"));
+
+        assertNotNull(realm.authenticate("user", "pass1"));
+        assertNotNull(realm.authenticate("user", "pass1"));
+        assertEquals(2, realm.validations.get());
+    }
+
+    @Test
+    public void testParseAccountOverride() {
+        MemoryRealm realm = new MemoryRealm() {
+            @Override
+            protected Account parseAccount(Config accountConfig) {
+                Account account = super.parseAccount(accountConfig);
+                account.getAuthorizations().addRole("parsed");
+                return account;
+            }
+        };
+        realm.setup(config("pass1", ""));
+
+        assertTrue(realm.getAccount("user").hasRole("parsed"));
+    }
+
+    private static Config config(String storedPassword, String settings) {
+        return ConfigFactory.parseString(settings
+                + "accounts: [\n"
+                + "  { username: user, password: \"" + storedPassword + "\" }\n"
+                + "]\n");
+    }
+
+    private static class CountingRealm extends MemoryRealm {
+
+        final AtomicInteger validations = new AtomicInteger();
+
+        @Override
+        protected boolean validatePassword(StandardCredentials requestCredentials, StandardCredentials storedCredentials) {
+            validations.incrementAndGet();
+            return super.validatePassword(requestCredentials, storedCredentials);
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.security;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.typesafe.config.Config;
+import fathom.authc.AuthenticationToken;
+import fathom.authc.StandardCredentials;
+import fathom.conf.Settings;
+import fathom.realm.Account;
+import fathom.realm.MemoryRealm;
+import fathom.realm.Realm;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test the account aggregation of the SecurityManager.
+ *
+ * @author James Moger
+ */
+public class AggregationTest extends Assert {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    SecurityManager securityManager;
+
+    @After
+    public void tearDown() {
+        if (securityManager != null) {
+            securityManager.stop();
+        }
+    }
+
+    @Test
+    public void testDefaultLookupCost() throws IOException {
+        start("", "ThirdPartyRealm");
+
+        Account account = securityManager.authenticate(new StandardCredentials("admin", "admin"));
+        assertNotNull(account);
+        assertTrue(account.hasRole("reader"));
+
+        // a realm which does not declare a lookup cost is asked hasAccount first
+        ThirdPartyRealm realm = securityManager.getRealms(ThirdPartyRealm.class).get(0);
+        assertEquals(Arrays.asList("hasAccount", "getAccount"), realm.calls);
+    }
+
+    @Test
+    public void testConfiguredOrder() throws IOException {
+        start("", "RemoteRealm", "MemoryRealm");
+
+        // the first configured realm names the account
+        Account account = securityManager.authenticate(new StandardCredentials("admin", "admin"));
+        assertEquals("RemoteRealm", account.getName());
+
+        RemoteRealm realm = securityManager.getRealms(RemoteRealm.class).get(0);
+        assertEquals(Collections.singletonList("getAccount"), realm.calls);
+    }
+
+    @Test
+    public void testCostOrder() throws IOException {
+        start("aggregationOrder: cost\n", "RemoteRealm", "MemoryRealm");
+
+        // the memory realm is consulted before the remote realm
+        Account account = securityManager.authenticate(new StandardCredentials("admin", "admin"));
+        assertEquals("MemoryRealm", account.getName());
+    }
+
+    @Test
+    public void testLazyAggregationFailure() throws IOException {
+        start("aggregation: lazy\ncacheTtl: 5\n", "FailingRealm");
+        FailingRealm realm = securityManager.getRealms(FailingRealm.class).get(0);
+        realm.failures.set(1);
+
+        Account account = securityManager.authenticate(new StandardCredentials("admin", "admin"));
+        assertNotNull(account);
+        try {
+            account.hasRole("reader");
+            fail("The aggregation failure was not propagated");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // the partial account is no longer cached
+        Account next = securityManager.authenticate(new StandardCredentials("admin", "admin"));
+        assertNotSame(account, next);
+        assertTrue(next.hasRole("reader"));
+        assertSame(next, securityManager.authenticate(new StandardCredentials("admin", "admin")));
+
+        // the failed aggregation is retried
+        assertTrue(account.hasRole("reader"));
+    }
+
+    private void start(String settings, String... realmTypes) throws IOException {
+        StringBuilder sb = new StringBuilder(settings);
+        sb.append("realms: [\n");
+        sb.append("  { name: Authenticating, type: \"fathom.realm.MemoryRealm\", accounts: [ { username: admin, password: admin } ] }\n");
+        for (String realmType : realmTypes) {
+            String type = "MemoryRealm".equals(realmType) ? MemoryRealm.class.getName()
+                    : AggregationTest.class.getName() + "$" + realmType;
+            sb.append("  { name: ").append(realmType).append(", type: \"").append(type).append("\"");
+            sb.append(", accounts: [ { username: admin, name: ").append(realmType).append(", roles: [reader] } ] }\n");
+        }
+        sb.append("]\n");
+
+        File realms = folder.newFile("realms.conf");
+        Files.write(realms.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        Settings config = new Settings();
+        config.overrideSetting("security.configurationFile", "url:" + realms.toURI().toURL());
+        securityManager = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Settings.class).toInstance(config);
+            }
+        }).getInstance(SecurityManager.class);
+        securityManager.start();
+    }
+
+    /**
+     * A Realm which does not declare its lookup cost and records the lookups.
+     */
+    public static class ThirdPartyRealm implements Realm {
+
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+        final MemoryRealm memoryRealm = new MemoryRealm();
+
+        @Override
+        public void setup(Config config) {
+            memoryRealm.setup(config);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public String getRealmName() {
+            return memoryRealm.getRealmName();
+        }
+
+        @Override
+        public boolean canAuthenticate(AuthenticationToken authenticationToken) {
+            return false;
+        }
+
+        @Override
+        public Account authenticate(AuthenticationToken authenticationToken) {
+            return null;
+        }
+
+        @Override
+        public boolean hasAccount(String username) {
+            calls.add("hasAccount");
+            return memoryRealm.hasAccount(username);
+        }
+
+        @Override
+        public Account getAccount(String username) {
+            calls.add("getAccount");
+            return memoryRealm.getAccount(username);
+        }
+    }
+
+    /**
+     * A Realm which queries a backend for its accounts.
+     */
+    public static class RemoteRealm extends ThirdPartyRealm {
+
+        @Override
+        public LookupCost getLookupCost() {
+            return LookupCost.REMOTE;
+        }
+    }
+
+    /**
+     * A Realm which fails the specified number of account lookups.
+     */
+    public static class FailingRealm extends ThirdPartyRealm {
+
+        final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public Account getAccount(String username) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("The backend is not available");
+            }
+            return super.getAccount(username);
+        }
+    }
+
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.security;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import fathom.authc.AuthenticationToken;
+import fathom.authc.StandardCredentials;
+import fathom.conf.Settings;
+import fathom.realm.Account;
+import fathom.realm.MemoryRealm;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test the SecurityManager.
+ *
+ * @author James Moger
+ */
+public class SecurityManagerTest extends Assert {
+
+    SecurityManager securityManager;
+
+    SlowRealm realm;
+
+    @Before
+    public void setUp() {
+        Settings settings = new Settings();
+        settings.overrideSetting("security.configurationFile", "classpath:conf/realms-coalescing.conf");
+        settings.overrideSetting("security.backoff.threshold", 3);
+        settings.overrideSetting("security.backoff.addressThreshold", 5);
+        settings.overrideSetting("security.backoff.initial", "300 ms");
+        settings.overrideSetting("security.backoff.max", "1 second");
+
+        securityManager = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Settings.class).toInstance(settings);
+            }
+        }).getInstance(SecurityManager.class);
+        securityManager.start();
+
+        realm = securityManager.getRealms(SlowRealm.class).get(0);
+    }
+
+    @After
+    public void tearDown() {
+        realm.release.countDown();
+        securityManager.stop();
+    }
+
+    @Test
+    public void testCoalescedAuthentication() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        List<Future<Account>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                return securityManager.authenticate(new StandardCredentials("admin", "admin"));
+            }));
+        }
+
+        // hold the realm lookup until every caller has arrived
+        assertTrue(ready.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        realm.release.countDown();
+
+        Account first = futures.get(0).get(10, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertTrue(first.hasRole("administrator"));
+        for (Future<Account> future : futures) {
+            assertSame(first, future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(1, realm.authentications.get());
+
+        // completed flights are not reused
+        assertNotNull(securityManager.authenticate(new StandardCredentials("admin", "admin")));
+        assertEquals(2, realm.authentications.get());
+    }
+
+    @Test
+    public void testCoalescedFailure() throws Exception {
+        realm.release.countDown();
+
+        assertNull(securityManager.authenticate(new StandardCredentials("admin", "wrong")));
+        assertNotNull(securityManager.authenticate(new StandardCredentials("admin", "admin")));
+        assertEquals(2, realm.authentications.get());
+    }
+
+    @Test
+    public void testNegativeCache() {
+        realm.release.countDown();
+
+        StandardCredentials invalid = new StandardCredentials("admin", "wrong");
+        assertNull(securityManager.authenticate(invalid));
+        assertNull(securityManager.authenticate(invalid));
+        assertNull(securityManager.authenticate(new StandardCredentials("admin", "wrong")));
+        assertEquals(1, realm.authentications.get());
+
+        assertNotNull(securityManager.authenticate(new StandardCredentials("admin", "admin")));
+        assertEquals(2, realm.authentications.get());
+    }
+
+    @Test
+    public void testNegativeCacheUnicode() {
+        realm.release.countDown();
+
+        // distinct secrets which are equal in ISO-8859-1
+        assertNull(securityManager.authenticate(new StandardCredentials("admin", "\u043f\u0430\u0440\u043e\u043b\u044c")));
+        assertNull(securityManager.authenticate(new StandardCredentials("admin", "\u0441\u0435\u043a\u0440\u0435\u0442")));
+        assertEquals(2, realm.authentications.get());
+    }
+
+    @Test
+    public void testCoalescedFailureCountedOnce() throws Exception {
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        List<Future<Account>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                return securityManager.authenticate(new StandardCredentials("admin", "wrong"), "10.0.0.1");
+            }));
+        }
+
+        assertTrue(ready.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        realm.release.countDown();
+
+        for (Future<Account> future : futures) {
+            assertNull(future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, realm.authentications.get());
+
+        // one failure was recorded, the address is not backing off
+        assertNotNull(securityManager.authenticate(new StandardCredentials("admin", "admin"), "10.0.0.1"));
+    }
+
+    @Test
+    public void testUsernameBackoff() throws Exception {
+        realm.release.countDown();
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(securityManager.authenticate(new StandardCredentials("admin", "wrong" + i), "10.0.0.1"));
+        }
+        assertEquals(3, realm.authentications.get());
+
+        // the username is backing off for the client, even for valid credentials
+        assertNull(securityManager.authenticate(new StandardCredentials("admin", "admin"), "10.0.0.1"));
+        assertEquals(3, realm.authentications.get());
+
+        // the failures of one client do not lock out the account for other clients
+        assertNotNull(securityManager.authenticate(new StandardCredentials("admin", "admin"), "10.0.0.9"));
+        assertEquals(4, realm.authentications.get());
+
+        Thread.sleep(400);
+        assertNotNull(securityManager.authenticate(new StandardCredentials("admin", "admin"), "10.0.0.1"));
+        assertEquals(5, realm.authentications.get());
+
+        // success resets the username counter
+        assertNull(securityManager.authenticate(new StandardCredentials("admin", "wrong9"), "10.0.0.1"));
+        assertNotNull(securityManager.authenticate(new StandardCredentials("admin", "admin"), "10.0.0.1"));
+        assertEquals(7, realm.authentications.get());
+    }
+
+    @Test
+    public void testNoUsernameBackoffWithoutAddress() {
+        realm.release.countDown();
+
+        // clients without an address can not be told apart so they can not lock out the account
+        for (int i = 0; i < 5; i++) {
+            assertNull(securityManager.authenticate(new StandardCredentials("admin", "wrong" + i)));
+        }
+        assertNotNull(securityManager.authenticate(new StandardCredentials("admin", "admin")));
+        assertEquals(6, realm.authentications.get());
+    }
+
+    @Test
+    public void testUsernameBackoffPerAddress() {
+        realm.release.countDown();
+
+        // failures spread over many addresses do not lock out the account
+        for (int i = 0; i < 3; i++) {
+            assertNull(securityManager.authenticate(new StandardCredentials("admin", "wrong" + i), "10.0.0." + i));
+        }
+        assertNotNull(securityManager.authenticate(new StandardCredentials("admin", "admin"), "10.0.0.9"));
+        assertEquals(4, realm.authentications.get());
+    }
+
+    @Test
+    public void testAddressBackoff() throws Exception {
+        realm.release.countDown();
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(securityManager.authenticate(new StandardCredentials("user" + i, "password"), "10.0.0.1"));
+        }
+        assertEquals(5, realm.authentications.get());
+
+        // the address is backing off
+        assertNull(securityManager.authenticate(new StandardCredentials("admin", "admin"), "10.0.0.1"));
+        assertEquals(5, realm.authentications.get());
+
+        // other addresses are not affected
+        assertNotNull(securityManager.authenticate(new StandardCredentials("admin", "admin"), "10.0.0.2"));
+        assertEquals(6, realm.authentications.get());
+    }
+
+    @Test
+    public void testDefaultThrottle() {
+        AuthenticationThrottle throttle = new AuthenticationThrottle(new Settings(), new MetricRegistry());
+        for (int i = 0; i < 20; i++) {
+            throttle.failed(new StandardCredentials("admin", "wrong" + i), "10.0.0.1");
+        }
+
+        // by default only the failed credentials are rejected, never a correct password
+        assertTrue(throttle.isRejected(new StandardCredentials("admin", "wrong0"), "10.0.0.1"));
+        assertFalse(throttle.isRejected(new StandardCredentials("admin", "admin"), "10.0.0.1"));
+        assertFalse(throttle.isRejected(new StandardCredentials("other", "password"), "10.0.0.1"));
+    }
+
+    @Test
+    public void testBackoff() {
+        AuthenticationThrottle throttle = new AuthenticationThrottle(new Settings(), new MetricRegistry());
+        assertEquals(0, throttle.getBackoff(4, 5));
+        assertEquals(1000, throttle.getBackoff(5, 5));
+        assertEquals(2000, throttle.getBackoff(6, 5));
+        assertEquals(64000, throttle.getBackoff(11, 5));
+        assertEquals(300000, throttle.getBackoff(20, 5));
+        assertEquals(300000, throttle.getBackoff(Integer.MAX_VALUE, 5));
+    }
+
+    /**
+     * A MemoryRealm which counts authentications and blocks them until released.
+     */
+    public static class SlowRealm extends MemoryRealm {
+
+        final AtomicInteger authentications = new AtomicInteger();
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public Account authenticate(AuthenticationToken authenticationToken) {
+            authentications.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.authenticate(authenticationToken);
+        }
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fathom.security;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import fathom.authc.StandardCredentials;
+import fathom.conf.Settings;
+import fathom.exception.FathomException;
+import fathom.realm.Account;
+import fathom.realm.CachingRealm;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test the SignedTokens.
+ *
+ * @author James Moger
+ */
+public class SignedTokensTest extends Assert {
+
+    SecurityManager securityManager;
+
+    Account admin;
+
+    @Before
+    public void setUp() {
+        Settings settings = new Settings();
+        settings.overrideSetting("security.configurationFile", "classpath:conf/realms-tokens.conf");
+
+        securityManager = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Settings.class).toInstance(settings);
+            }
+        }).getInstance(SecurityManager.class);
+        securityManager.start();
+
+        admin = securityManager.authenticate(new StandardCredentials("admin", "admin"));
+        assertNotNull(admin);
+    }
+
+    @After
+    public void tearDown() {
+        securityManager.stop();
+    }
+
+    @Test
+    public void testVerify() {
+        SignedTokens signedTokens = signedTokens("k1", "key1");
+        String token = signedTokens.issue(admin);
+        assertTrue(signedTokens.isSignedToken(token));
+
+        Account account = signedTokens.verify(token);
+        assertNotNull(account);
+        assertEquals("admin", account.getUsername());
+        assertTrue(account.hasRole("administrator"));
+        assertTrue(account.isPermitted("anything"));
+    }
+
+    @Test
+    public void testTamperedToken() {
+        SignedTokens signedTokens = signedTokens("k1", "key1");
+        String token = signedTokens.issue(admin);
+        String[] parts = token.split("\\.");
+
+        String otherPayload = signedTokens.issue(new Account(null, new StandardCredentials("other", null))).split("\\.")[1];
+        assertNull(signedTokens.verify(parts[0] + "." + otherPayload + "." + parts[2]));
+        String signature = parts[2].substring(0, parts[2].length() - 1) + (parts[2].endsWith("0") ? "1" : "0");
+        assertNull(signedTokens.verify(parts[0] + "." + parts[1] + "." + signature));
+        assertNull(signedTokens.verify(parts[0] + "." + parts[1]));
+        assertNull(signedTokens.verify("cafebabe"));
+    }
+
+    @Test
+    public void testExpiredToken() {
+        SignedTokens signedTokens = signedTokens("k1", "key1");
+        assertNull(signedTokens.verify(signedTokens.issue(admin, 0, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void testChangedRoles() {
+        SignedTokens signedTokens = signedTokens("k1", "key1");
+        Account account = new Account(null, new StandardCredentials("admin", null));
+        account.getAuthorizations().addRoles("guest");
+        assertNull(signedTokens.verify(signedTokens.issue(account)));
+    }
+
+    @Test
+    public void testKeyRotation() {
+        String token = signedTokens("k1", "key1").issue(admin);
+        assertTrue(token.startsWith("k1."));
+
+        assertNotNull(signedTokens("k2", "key2", "k1:key1").verify(token));
+        assertNull(signedTokens("k2", "key2").verify(token));
+        assertNull(signedTokens("k3", "key3", "k2:key2").verify(token));
+
+        // the key id does not identify the key
+        assertNull(signedTokens("k1", "key2").verify(token));
+    }
+
+    @Test
+    public void testRealmTokens() {
+        SignedTokens signedTokens = signedTokens("k1", "key1");
+
+        // tokens of the realms may contain dots
+        assertFalse(signedTokens.isSignedToken("cafebabe"));
+        assertFalse(signedTokens.isSignedToken("legacy.token"));
+        assertFalse(signedTokens.isSignedToken("k2.payload.signature"));
+        assertFalse(signedTokens.isSignedToken("k1.payload.signature.suffix"));
+        assertFalse(signedTokens.isSignedToken("k1..signature"));
+        assertTrue(signedTokens.isSignedToken("k1.payload.signature"));
+    }
+
+    @Test(expected = FathomException.class)
+    public void testMissingKeyId() {
+        Settings settings = new Settings();
+        settings.overrideSetting("security.tokens.key", "key1");
+        new SignedTokens(securityManager, settings);
+    }
+
+    @Test(expected = FathomException.class)
+    public void testDuplicateKeyId() {
+        signedTokens("k1", "key2", "k1:key1");
+    }
+
+    @Test
+    public void testDisabled() {
+        SignedTokens enabled = signedTokens("k1", "key1");
+        SignedTokens disabled = new SignedTokens(securityManager, new Settings());
+        String token = enabled.issue(admin);
+
+        assertFalse(disabled.isEnabled());
+        assertFalse(disabled.isSignedToken(token));
+        assertNull(disabled.verify(token));
+    }
+
+    @Test
+    public void testCachingRealmAccount() {
+        Account account = securityManager.authenticate(new StandardCredentials("reader", "reader"));
+        assertNotNull(account);
+        String token = signedTokens("k1", "key1").issue(account);
+
+        // the account cache of the realm is disabled, the account is loaded from the backend
+        DirectoryRealm realm = securityManager.getRealms(DirectoryRealm.class).get(0);
+        assertFalse(realm.hasAccount("reader"));
+
+        Account verified = signedTokens("k1", "key1").verify(token);
+        assertNotNull(verified);
+        assertEquals("reader", verified.getUsername());
+        assertTrue(verified.hasRole("reader"));
+        assertFalse(realm.hasAccount("reader"));
+    }
+
+    private SignedTokens signedTokens(String keyId, String key, String... previousKeys) {
+        Settings settings = new Settings();
+        settings.overrideSetting("security.tokens.keyId", keyId);
+        settings.overrideSetting("security.tokens.key", key);
+        if (previousKeys.length > 0) {
+            settings.overrideSettings(Collections.singletonMap("security.tokens.previousKeys", Arrays.asList(previousKeys)));
+        }
+        return new SignedTokens(securityManager, settings);
+    }
+
+    /**
+     * A CachingRealm, like the LdapRealm, which only verifies passwords against its backend.
+     */
+    public static class DirectoryRealm extends CachingRealm {
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public Account authenticate(StandardCredentials requestCredentials) {
+            return authenticate(requestCredentials.getUsername(), requestCredentials.getPassword());
+        }
+
+        @Override
+        public Account authenticate(String username, String password) {
+            if ("reader".equals(username) && "reader".equals(password)) {
+                Account account = newAccount(username, password);
+                cacheAccount(account);
+                return account;
+            }
+            return null;
+        }
+
+        @Override
+        public Collection<Account> loadAccounts(Collection<String> usernames) {
+            return usernames.stream().filter("reader"::equals)
+                    .map(username -> newAccount(username, null)).collect(Collectors.toList());
+        }
+
+        private Account newAccount(String username, String password) {
+            Account account = new Account(null, new StandardCredentials(username, password));
+            account.getAuthorizations().addRole("reader");
+            return account;
+        }
+    }
+
+}
@@ -102,7 +102,7 @@ public abstract class XmlRpcRouteHandler implements RouteHandler<Context> {
                 if (authorization.toLowerCase().startsWith("token")) {
                     String packet = authorization.substring("token".length()).trim();
                     TokenCredentials credentials = new TokenCredentials(packet);
-                    account = securityManager.authenticate(credentials);
+                    account = securityManager.authenticate(credentials, context.getRequest().getClientIp());
                 } else if (authorization.toLowerCase().startsWith("basic")) {
                     String packet = authorization.substring("basic".length()).trim();
                     String credentials1 = new String(Base64.getDecoder().decode(packet), StandardCharsets.UTF_8);
@@ -110,7 +110,7 @@ public abstract class XmlRpcRouteHandler implements RouteHandler<Context> {
                     String username = values1[0];
                     String password = values1[1];
                     StandardCredentials authenticationToken = new StandardCredentials(username, password);
-                    account = securityManager.authenticate(authenticationToken);
+                    account = securityManager.authenticate(authenticationToken, context.getRequest().getClientIp());
                 }
             }
         }